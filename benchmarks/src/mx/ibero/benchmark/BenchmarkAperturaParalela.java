@@ -0,0 +1,84 @@
+package mx.ibero.benchmark;
+
+import mx.ibero.Buscaminas;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Mide el tiempo de una apertura de un millón de casillas con 1, 4 y N
+ * hilos. Cada apertura se hace desde un hilo de un ForkJoinPool con ese
+ * número de hilos, que es el que usa {@link Buscaminas#cavar(int, int)}
+ * para repartir las aperturas grandes; con un hilo la apertura es
+ * secuencial.
+ *
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp out mx.ibero.benchmark.BenchmarkAperturaParalela 1000 1000
+ * </pre>
+ *
+ * @author agent
+ */
+public class BenchmarkAperturaParalela
+{
+    private static final int CALENTAMIENTO = 5;
+    private static final int REPETICIONES = 15;
+
+    /**
+     * Ejecuta el benchmark.
+     *
+     * @param args Ancho y alto del tablero. Por defecto 1000 x 1000.
+     * @throws Exception Si el tablero no se puede construir.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int ancho = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int alto = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        // Una sola mina en una esquina: un clic en la esquina opuesta abre
+        // todo el tablero menos la mina
+        Buscaminas juego = new Buscaminas(ancho, alto, 1, 1);
+        int x = juego.hayMina(0, 0) ? ancho - 1 : 0;
+        int y = juego.hayMina(0, 0) ? alto - 1 : 0;
+
+        int procesadores = Runtime.getRuntime().availableProcessors();
+        int[] hilos = procesadores > 4 ? new int[] { 1, 4, procesadores } : new int[] { 1, 4 };
+
+        for (int n : hilos)
+        {
+            ForkJoinPool pool = new ForkJoinPool(n);
+            long[] tiempos = new long[REPETICIONES];
+            int casillas = 0;
+
+            for (int i = -CALENTAMIENTO; i < REPETICIONES; i++)
+            {
+                long[] medicion = pool.submit(() -> medir(juego, x, y)).get();
+
+                if (i >= 0)
+                    tiempos[i] = medicion[1];
+                casillas = (int) medicion[0];
+            }
+
+            pool.shutdown();
+            Arrays.sort(tiempos);
+
+            System.out.printf("%2d hilos: %,d casillas, mediana %.2f ms, mínimo %.2f ms%n",
+                    n, casillas, tiempos[REPETICIONES / 2] / 1e6, tiempos[0] / 1e6);
+        }
+    }
+
+    /**
+     * Reinicia el tablero y cava una vez.
+     *
+     * @return Casillas destapadas y nanosegundos empleados.
+     */
+    private static long[] medir(Buscaminas juego, int x, int y)
+    {
+        juego.reset();
+
+        long t0 = System.nanoTime();
+        juego.cavar(x, y);
+        long t1 = System.nanoTime();
+
+        return new long[] { juego.getCambios().tamano(), t1 - t0 };
+    }
+}
@@ -0,0 +1,129 @@
+package mx.ibero.benchmark;
+
+import mx.ibero.BuscaminasConcurrente;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Mide cuántas jugadas por segundo atiende {@link BuscaminasConcurrente}
+ * cuando varios hilos juegan a la vez sobre un mismo tablero grande. Cada
+ * hilo cava casillas al azar y pone una bandera en una de cada diez
+ * jugadas. El total de jugadas es el mismo para cada número de hilos.
+ *
+ * Al final de cada medición se cuentan las casillas destapadas del tablero
+ * y se comparan con el contador de la partida, para comprobar que ninguna
+ * casilla se contó dos veces.
+ *
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp out mx.ibero.benchmark.BenchmarkConcurrente 4096 4096 0.15 4000000
+ * </pre>
+ *
+ * @author agent
+ */
+public class BenchmarkConcurrente
+{
+    /**
+     * Ejecuta el benchmark con 1, 2, 4... hilos hasta el número de
+     * procesadores.
+     *
+     * @param args Ancho, alto, densidad de minas y total de jugadas. Por
+     *             defecto 2048 x 2048, 0.15 y 2,000,000.
+     * @throws Exception Si el tablero no se puede construir.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int ancho = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+        int alto = args.length > 1 ? Integer.parseInt(args[1]) : 2048;
+        double densidad = args.length > 2 ? Double.parseDouble(args[2]) : 0.15;
+        int jugadas = args.length > 3 ? Integer.parseInt(args[3]) : 2_000_000;
+
+        int procesadores = Runtime.getRuntime().availableProcessors();
+
+        // Calentamiento
+        medir(ancho, alto, densidad, jugadas / 4, procesadores);
+
+        for (int hilos = 1; ; hilos = Math.min(2 * hilos, procesadores))
+        {
+            long nanos = medir(ancho, alto, densidad, jugadas, hilos);
+
+            System.out.printf("%2d hilos: %.2f ms, %,.0f jugadas/s%n", hilos, nanos / 1e6, jugadas * 1e9 / nanos);
+
+            if (hilos == procesadores)
+                break;
+        }
+    }
+
+    /**
+     * Juega el número de jugadas repartido entre los hilos, sobre un tablero
+     * nuevo con la misma semilla.
+     *
+     * @return Nanosegundos desde que empiezan los hilos hasta que terminan.
+     */
+    private static long medir(int ancho, int alto, double densidad, int jugadas, int hilos) throws Exception
+    {
+        int minas = (int) (densidad * ancho * alto);
+
+        // Con tantas vidas como minas la partida no termina antes de tiempo
+        BuscaminasConcurrente juego = new BuscaminasConcurrente(ancho, alto, minas, minas, 1L, true);
+
+        CountDownLatch inicio = new CountDownLatch(1);
+        Thread[] jugadores = new Thread[hilos];
+
+        for (int h = 0; h < hilos; h++)
+        {
+            final int porHilo = jugadas / hilos;
+            final SplittableRandom azar = new SplittableRandom(h);
+
+            jugadores[h] = new Thread(() ->
+            {
+                try
+                {
+                    inicio.await();
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+
+                for (int j = 0; j < porHilo; j++)
+                {
+                    int x = azar.nextInt(ancho);
+                    int y = azar.nextInt(alto);
+
+                    if (azar.nextInt(10) == 0)
+                        juego.marcarBandera(x, y);
+                    else
+                        juego.cavar(x, y);
+                }
+            });
+            jugadores[h].start();
+        }
+
+        long t0 = System.nanoTime();
+        inicio.countDown();
+        for (Thread jugador : jugadores)
+            jugador.join();
+        long t1 = System.nanoTime();
+
+        comprobar(juego);
+        return t1 - t0;
+    }
+
+    /**
+     * Comprueba que el contador de casillas tapadas coincide con el tablero.
+     */
+    private static void comprobar(BuscaminasConcurrente juego)
+    {
+        int tapadas = 0;
+
+        for (int y = 0; y < juego.getAlto(); y++)
+            for (int x = 0; x < juego.getAncho(); x++)
+                if (!juego.hayMina(x, y) && !juego.estaDestapada(x, y))
+                    tapadas++;
+
+        if (tapadas != juego.getCasillasTapadasRestantes())
+            throw new IllegalStateException("Casillas tapadas: " + tapadas + " en el tablero, "
+                    + juego.getCasillasTapadasRestantes() + " en el contador");
+    }
+}
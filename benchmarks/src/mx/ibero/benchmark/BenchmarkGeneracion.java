@@ -0,0 +1,51 @@
+package mx.ibero.benchmark;
+
+import mx.ibero.Buscaminas;
+
+/**
+ * Mide el tiempo de generación de un tablero (colocar las minas y calcular
+ * las pistas) en los tamaños 8x8, 30x16 y 5000x5000 con la densidad de las
+ * dificultades estándar (alrededor de 20% de minas), además de un tablero
+ * casi lleno de minas para comprobar que la colocación no depende de la
+ * densidad.
+ *
+ * Para probar el cálculo vectorial de las pistas:
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp out mx.ibero.benchmark.BenchmarkGeneracion
+ * java -Dbuscaminas.vectorial=false -cp out mx.ibero.benchmark.BenchmarkGeneracion
+ * </pre>
+ *
+ * @author agent
+ */
+public class BenchmarkGeneracion
+{
+    private static final int[][] TAMANOS = { { 8, 8, 10 }, { 30, 16, 99 }, { 5000, 5000, 5_000_000 },
+            { 1000, 1000, 999_999 } };
+
+    /**
+     * Ejecuta el benchmark.
+     *
+     * @param args No se usan.
+     * @throws Exception Si algún tablero no se puede construir.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        for (int[] t : TAMANOS)
+        {
+            long casillas = (long) t[0] * t[1];
+            int repeticiones = (int) Math.max(3, Math.min(200_000, 50_000_000 / casillas));
+
+            // Calentamiento
+            for (int i = 0; i < repeticiones; i++)
+                new Buscaminas(t[0], t[1], t[2], 1);
+
+            long inicio = System.nanoTime();
+            for (int i = 0; i < repeticiones; i++)
+                new Buscaminas(t[0], t[1], t[2], 1);
+            long nanos = (System.nanoTime() - inicio) / repeticiones;
+
+            System.out.printf("%5d x %-5d %,9d minas: %,14d ns por tablero (%.2f ns/casilla)%n",
+                    t[0], t[1], t[2], nanos, (double) nanos / casillas);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package mx.ibero.benchmark;
+
+import mx.ibero.Buscaminas;
+
+/**
+ * Mide cuántas casillas por segundo destapa {@link Buscaminas#cavar(int, int)}
+ * al abrir una zona vacía. Se usa un tablero con una sola mina para que un
+ * clic abra prácticamente todo el tablero.
+ *
+ * <pre>
+ * java -Xss256k -cp out mx.ibero.benchmark.BenchmarkRevelado 4000 4000
+ * </pre>
+ *
+ * @author agent
+ */
+public class BenchmarkRevelado
+{
+    private static final int CALENTAMIENTO = 5;
+    private static final int REPETICIONES = 10;
+
+    /**
+     * Ejecuta el benchmark.
+     *
+     * @param args Ancho y alto del tablero. Por defecto 2000 x 2000.
+     * @throws Exception Si el tablero no se puede construir.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int ancho = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int alto = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        Buscaminas juego = new Buscaminas(ancho, alto, 1, 1);
+        int[] inicio = casillaVacia(juego);
+
+        for (int i = 0; i < CALENTAMIENTO; i++)
+            medir(juego, inicio);
+
+        long casillas = 0;
+        long nanos = 0;
+        for (int i = 0; i < REPETICIONES; i++)
+        {
+            long[] medicion = medir(juego, inicio);
+            casillas += medicion[0];
+            nanos += medicion[1];
+        }
+
+        System.out.printf("Tablero %d x %d: %,d casillas por apertura, %.2f ms por apertura, %,.0f casillas/s%n",
+                ancho, alto, casillas / REPETICIONES, nanos / 1e6 / REPETICIONES, casillas * 1e9 / nanos);
+    }
+
+    /**
+     * Reinicia el tablero y cava una vez.
+     *
+     * @return Casillas destapadas y nanosegundos empleados.
+     */
+    private static long[] medir(Buscaminas juego, int[] inicio)
+    {
+        juego.reset();
+        int antes = juego.getCasillasTapadasRestantes();
+
+        long t0 = System.nanoTime();
+        juego.cavar(inicio[0], inicio[1]);
+        long t1 = System.nanoTime();
+
+        return new long[] { antes - juego.getCasillasTapadasRestantes(), t1 - t0 };
+    }
+
+    /**
+     * Busca una casilla sin minas alrededor desde la cual empezar la apertura.
+     */
+    private static int[] casillaVacia(Buscaminas juego)
+    {
+        for (int y = 0; y < juego.getAlto(); y++)
+            for (int x = 0; x < juego.getAncho(); x++)
+                if (!juego.hayMinasAlrededor(x, y))
+                    return new int[] { x, y };
+
+        throw new IllegalStateException("El tablero no tiene casillas vacías");
+    }
+}
@@ -0,0 +1,96 @@
+package mx.ibero.benchmark;
+
+import mx.ibero.Buscaminas;
+
+/**
+ * Reporte de memoria del tablero. Compara los bytes por casilla que ocupaba
+ * la representación anterior (tres matrices boolean[][] y una int[][]) con
+ * el tablero compacto de un byte por casilla que usa {@link Buscaminas}.
+ *
+ * Se ejecuta sin interfaz gráfica:
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp out mx.ibero.benchmark.ReporteMemoria 10000 10000
+ * </pre>
+ *
+ * @author agent
+ */
+public class ReporteMemoria
+{
+    // Tamaños típicos de la JVM de 64 bits con compressed oops
+    private static final int CABECERA_ARREGLO = 16;
+    private static final int REFERENCIA = 4;
+
+    /**
+     * Imprime el reporte para los tamaños de tablero dados.
+     *
+     * @param args Ancho y alto del tablero. Por defecto 2000 x 2000.
+     * @throws Exception Si el tablero no se puede construir.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int ancho = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int alto = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        long casillas = (long) ancho * alto;
+
+        long antes = estimacionAnterior(ancho, alto);
+        long despues = estimacionCompacta(ancho, alto);
+
+        System.out.printf("Tablero %d x %d (%d casillas)%n", ancho, alto, casillas);
+        System.out.printf("  Estimado anterior: %,d bytes (%.2f bytes/casilla)%n", antes, (double) antes / casillas);
+        System.out.printf("  Estimado compacto: %,d bytes (%.2f bytes/casilla)%n", despues, (double) despues / casillas);
+
+        // Medición real sobre el heap: se reservan las matrices anteriores y
+        // luego se construye el tablero actual.
+        long base = memoriaUsada();
+        Object[] anterior = {
+                new boolean[alto][ancho],
+                new int[alto][ancho],
+                new boolean[alto][ancho],
+                new boolean[alto][ancho]
+        };
+        long medidoAntes = memoriaUsada() - base;
+
+        anterior = null;
+        base = memoriaUsada();
+        Buscaminas juego = new Buscaminas(ancho, alto, 1, 1);
+        long medidoDespues = memoriaUsada() - base;
+
+        System.out.printf("  Medido anterior:   %,d bytes (%.2f bytes/casilla)%n", medidoAntes, (double) medidoAntes / casillas);
+        System.out.printf("  Medido compacto:   %,d bytes (%.2f bytes/casilla)%n", medidoDespues, (double) medidoDespues / casillas);
+        System.out.printf("  Reportado por Buscaminas.bytesTablero(): %,d bytes%n", juego.bytesTablero());
+    }
+
+    /**
+     * Bytes de las matrices boolean[][] x3 e int[][] x1 de la versión anterior.
+     */
+    private static long estimacionAnterior(int ancho, int alto)
+    {
+        long filaBoolean = alinear(CABECERA_ARREGLO + ancho);
+        long filaInt = alinear(CABECERA_ARREGLO + 4L * ancho);
+        long exterior = alinear(CABECERA_ARREGLO + (long) REFERENCIA * alto);
+
+        return 3 * (exterior + alto * filaBoolean) + exterior + alto * filaInt;
+    }
+
+    /**
+     * Bytes del arreglo plano byte[] actual más la generación de cada fila.
+     */
+    private static long estimacionCompacta(int ancho, int alto)
+    {
+        return alinear(CABECERA_ARREGLO + (long) ancho * alto) + alinear(CABECERA_ARREGLO + 4L * alto);
+    }
+
+    private static long alinear(long bytes)
+    {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static long memoriaUsada()
+    {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
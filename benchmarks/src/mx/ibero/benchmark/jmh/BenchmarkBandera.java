@@ -0,0 +1,61 @@
+package mx.ibero.benchmark.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code marcarBandera} recorriendo el tablero casilla por casilla. Cada
+ * vuelta completa pone o quita todas las banderas, así que el tablero nunca
+ * llega a ganarse.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkBandera
+{
+    private int siguiente;
+
+    /**
+     * Quita las banderas de la iteración anterior.
+     *
+     * @param tablero Tablero generado.
+     */
+    @Setup(Level.Iteration)
+    public void reiniciar(Tablero tablero)
+    {
+        tablero.juego.reset();
+        siguiente = 0;
+    }
+
+    /**
+     * Pone o quita la bandera de la siguiente casilla.
+     *
+     * @param tablero Tablero generado.
+     * @return Banderas puestas, para que la JVM no elimine el cálculo.
+     */
+    @Benchmark
+    public int marcarBandera(Tablero tablero)
+    {
+        int i = siguiente;
+        siguiente = i + 1 == tablero.ancho * tablero.alto ? 0 : i + 1;
+
+        tablero.juego.marcarBandera(i % tablero.ancho, i / tablero.ancho);
+        return tablero.juego.getBanderasPuestas();
+    }
+}
@@ -0,0 +1,108 @@
+package mx.ibero.benchmark.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code cavar} en sus dos casos: una casilla con número, que solo destapa
+ * esa casilla, y la casilla vacía con la mayor apertura del tablero, que
+ * recorre toda la zona vacía.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkCavar
+{
+    private int[] numeradas;   // Casillas sin mina con al menos una vecina con mina
+    private int siguiente;
+    private int apertura;
+
+    /**
+     * Reúne las casillas con número y busca la mayor apertura.
+     *
+     * @param tablero Tablero generado.
+     */
+    @Setup(Level.Trial)
+    public void preparar(Tablero tablero)
+    {
+        int ancho = tablero.ancho;
+        int[] casillas = new int[ancho * tablero.alto];
+        int total = 0;
+
+        for (int y = 0; y < tablero.alto; y++)
+            for (int x = 0; x < ancho; x++)
+                if (!tablero.juego.hayMina(x, y) && tablero.juego.hayMinasAlrededor(x, y))
+                    casillas[total++] = y * ancho + x;
+
+        numeradas = Arrays.copyOf(casillas, total);
+        apertura = tablero.mayorApertura();
+    }
+
+    /**
+     * Deja el tablero sin destapar antes de cada iteración.
+     *
+     * @param tablero Tablero generado.
+     */
+    @Setup(Level.Iteration)
+    public void reiniciar(Tablero tablero)
+    {
+        tablero.juego.reset();
+        siguiente = 0;
+    }
+
+    /**
+     * Destapa la siguiente casilla con número. Cuando ya se destaparon todas
+     * se reinicia el tablero; ese reinicio queda incluido en la medición pero
+     * se reparte entre todas las casillas con número.
+     *
+     * @param tablero Tablero generado.
+     */
+    @Benchmark
+    public void casillaConNumero(Tablero tablero)
+    {
+        if (siguiente == numeradas.length)
+        {
+            tablero.juego.reset();
+            siguiente = 0;
+        }
+
+        int i = numeradas[siguiente++];
+        tablero.juego.cavar(i % tablero.ancho, i / tablero.ancho);
+    }
+
+    /**
+     * Reinicia el tablero y abre la mayor zona vacía. Incluye el costo del
+     * reinicio, que puede medirse por separado con {@link BenchmarkReset}.
+     *
+     * @param tablero Tablero generado.
+     * @return Casillas tapadas restantes, para que la JVM no elimine el
+     *         cálculo.
+     */
+    @Benchmark
+    public int mayorApertura(Tablero tablero)
+    {
+        tablero.juego.reset();
+
+        if (apertura >= 0)
+            tablero.juego.cavar(apertura % tablero.ancho, apertura / tablero.ancho);
+
+        return tablero.juego.getCasillasTapadasRestantes();
+    }
+}
@@ -0,0 +1,46 @@
+package mx.ibero.benchmark.jmh;
+
+import mx.ibero.Buscaminas;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generación completa de un tablero: colocar las minas
+ * ({@code ponerMinas}) y calcular las pistas ({@code minasAlrededor}).
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkConstructor
+{
+    private long semilla;
+
+    /**
+     * Construye un tablero nuevo con otra semilla en cada invocación para que
+     * la posición de las minas no sea siempre la misma.
+     *
+     * @param tablero Tamaño y densidad.
+     * @return El tablero, para que la JVM no elimine el cálculo.
+     * @throws Exception Si el tablero no se puede construir.
+     */
+    @Benchmark
+    public Buscaminas construir(Tablero tablero) throws Exception
+    {
+        return new Buscaminas(tablero.ancho, tablero.alto, tablero.minas, 1, semilla++);
+    }
+}
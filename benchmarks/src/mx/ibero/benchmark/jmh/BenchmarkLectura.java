@@ -0,0 +1,73 @@
+package mx.ibero.benchmark.jmh;
+
+import mx.ibero.Buscaminas;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura completa del tablero a través de los métodos de consulta, como lo
+ * hace la interfaz al redibujar todo: {@code estaDestapada},
+ * {@code tieneBandera}, {@code hayMina} y {@code contarMinasAlrededor} para
+ * cada casilla. El tablero tiene abierta su mayor zona vacía para que las
+ * ramas no sean siempre iguales.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkLectura
+{
+    /**
+     * Abre la mayor zona vacía del tablero.
+     *
+     * @param tablero Tablero generado.
+     */
+    @Setup(Level.Trial)
+    public void preparar(Tablero tablero)
+    {
+        int apertura = tablero.mayorApertura();
+
+        if (apertura >= 0)
+            tablero.juego.cavar(apertura % tablero.ancho, apertura / tablero.ancho);
+    }
+
+    /**
+     * Recorre todas las casillas.
+     *
+     * @param tablero Tablero generado.
+     * @return Suma de lo leído, para que la JVM no elimine el cálculo.
+     */
+    @Benchmark
+    public int leerTablero(Tablero tablero)
+    {
+        Buscaminas juego = tablero.juego;
+        int suma = 0;
+
+        for (int y = 0; y < tablero.alto; y++)
+            for (int x = 0; x < tablero.ancho; x++)
+            {
+                if (juego.estaDestapada(x, y))
+                    suma += juego.hayMina(x, y) ? 16 : juego.contarMinasAlrededor(x, y);
+                else if (juego.tieneBandera(x, y))
+                    suma++;
+            }
+
+        return suma;
+    }
+}
@@ -0,0 +1,59 @@
+package mx.ibero.benchmark.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code reset} de un tablero. Como reiniciar solo cambia de generación, el
+ * resultado debe ser el mismo para todos los tamaños de tablero y sin
+ * memoria reservada ({@code gc.alloc.rate.norm} = 0).
+ *
+ * {@link #cavarYReiniciar} mide el caso de los bots que juegan una y otra vez
+ * el mismo tablero: destapar una casilla y reiniciar. Ahí sí se paga limpiar
+ * las filas que se usaron, pero no el resto del tablero.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkReset
+{
+    /**
+     * Reinicia el tablero.
+     *
+     * @param tablero Tablero generado.
+     * @return Casillas tapadas restantes, para que la JVM no elimine el
+     *         cálculo.
+     */
+    @Benchmark
+    public int reset(Tablero tablero)
+    {
+        tablero.juego.reset();
+        return tablero.juego.getCasillasTapadasRestantes();
+    }
+
+    /**
+     * Destapa la esquina superior izquierda y reinicia el tablero.
+     *
+     * @param tablero Tablero generado.
+     * @return Casillas tapadas restantes, para que la JVM no elimine el
+     *         cálculo.
+     */
+    @Benchmark
+    public int cavarYReiniciar(Tablero tablero)
+    {
+        tablero.juego.cavar(0, 0);
+        tablero.juego.reset();
+        return tablero.juego.getCasillasTapadasRestantes();
+    }
+}
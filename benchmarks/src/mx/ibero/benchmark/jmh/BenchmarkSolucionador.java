@@ -0,0 +1,85 @@
+package mx.ibero.benchmark.jmh;
+
+import mx.ibero.Buscaminas;
+import mx.ibero.solver.Deducciones;
+import mx.ibero.solver.Solucionador;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiempo de un paso de {@link Solucionador#resolver(Buscaminas)} sobre un
+ * tablero experto (30 x 16, 99 minas). El tablero se congela después de
+ * jugar un número fijo de casillas seguras, para medir el solucionador con
+ * frentes de distinto tamaño.
+ *
+ * <pre>
+ * java -jar benchmarks.jar BenchmarkSolucionador -jvmArgsAppend --add-modules=jdk.incubator.vector
+ * </pre>
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkSolucionador
+{
+    /** Jugadas seguras hechas antes de congelar el tablero. */
+    @Param({ "0", "10", "40" })
+    public int jugadas;
+
+    private Buscaminas juego;
+    private Solucionador solucionador;
+
+    /**
+     * Juega con el solucionador hasta llegar al número de jugadas pedido o
+     * hasta que ya no haya casillas seguras.
+     *
+     * @throws Exception Si el tablero no se puede construir.
+     */
+    @Setup
+    public void preparar() throws Exception
+    {
+        juego = new Buscaminas(30, 16, 99, 1, 42L, true);
+        juego.setSoportaBanderas(false);
+        juego.cavar(15, 8);
+
+        solucionador = new Solucionador();
+
+        for (int n = 0; n < jugadas && !juego.isGameOver(); n++)
+        {
+            Deducciones deducciones = solucionador.resolver(juego);
+            if (deducciones.totalSeguras() == 0)
+                break;
+
+            int i = deducciones.segura(0);
+            juego.cavar(i % deducciones.getAncho(), i / deducciones.getAncho());
+        }
+    }
+
+    /**
+     * Un paso completo: leer el tablero, construir las restricciones y aplicar
+     * las reglas hasta no deducir nada más.
+     *
+     * @return Deducciones, para que la JVM no elimine el cálculo.
+     */
+    @Benchmark
+    public Deducciones resolver()
+    {
+        return solucionador.resolver(juego);
+    }
+}
@@ -0,0 +1,44 @@
+package mx.ibero.benchmark.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ejecuta los benchmarks de este paquete con el perfilador de recolección de
+ * basura, que agrega a cada resultado la tasa de asignación
+ * ({@code gc.alloc.rate.norm}, bytes por operación). Equivale a
+ * {@code java -jar benchmarks.jar mx.ibero.benchmark.jmh -prof gc}.
+ *
+ * JMH corre cada benchmark en una JVM nueva. Si esta se arrancó con el
+ * módulo jdk.incubator.vector, se le pasa también a esas JVM para que las
+ * pistas se calculen con SIMD igual que aquí.
+ *
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp out:lib/* mx.ibero.benchmark.jmh.Ejecutar [filtro]
+ * </pre>
+ *
+ * @author agent
+ */
+public class Ejecutar
+{
+    /**
+     * Ejecuta los benchmarks.
+     *
+     * @param args Expresión regular opcional para elegir benchmarks, por
+     *             ejemplo {@code BenchmarkCavar}. Por defecto todos.
+     * @throws Exception Si JMH no puede ejecutar los benchmarks.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        ChainedOptionsBuilder opciones = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : Ejecutar.class.getPackageName())
+                .addProfiler(GCProfiler.class);
+
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+            opciones.jvmArgsAppend("--add-modules=jdk.incubator.vector");
+
+        new Runner(opciones.build()).run();
+    }
+}
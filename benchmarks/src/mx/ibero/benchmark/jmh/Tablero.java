@@ -0,0 +1,82 @@
+package mx.ibero.benchmark.jmh;
+
+import mx.ibero.Buscaminas;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Estado compartido por los benchmarks del motor: un tablero del tamaño y
+ * densidad indicados por los parámetros, generado siempre con la misma
+ * semilla para que todas las corridas midan el mismo tablero.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+public class Tablero
+{
+    static final long SEMILLA = 42L;
+
+    /** Ancho x alto del tablero. */
+    @Param({ "30x16", "256x256", "1024x1024" })
+    public String tamano;
+
+    /** Fracción de casillas con mina. */
+    @Param({ "0.05", "0.20" })
+    public double densidad;
+
+    int ancho;
+    int alto;
+    int minas;
+    Buscaminas juego;
+
+    /**
+     * Lee los parámetros y genera el tablero.
+     *
+     * @throws Exception Si el tablero no se puede construir.
+     */
+    @Setup
+    public void preparar() throws Exception
+    {
+        int separador = tamano.indexOf('x');
+        ancho = Integer.parseInt(tamano.substring(0, separador));
+        alto = Integer.parseInt(tamano.substring(separador + 1));
+        minas = Math.max(1, (int) (ancho * alto * densidad));
+        juego = new Buscaminas(ancho, alto, minas, 1, SEMILLA);
+    }
+
+    /**
+     * Busca la casilla vacía cuya apertura destapa más casillas. Cada zona
+     * vacía se abre una sola vez, así que el costo es lineal en el tamaño
+     * del tablero. Deja el tablero sin destapar.
+     *
+     * @return Posición de la casilla (y * ancho + x), o -1 si no hay casillas
+     *         vacías.
+     */
+    int mayorApertura()
+    {
+        int mejor = -1;
+        int mayor = 0;
+
+        for (int y = 0; y < alto; y++)
+            for (int x = 0; x < ancho; x++)
+            {
+                if (juego.estaDestapada(x, y) || juego.hayMina(x, y) || juego.hayMinasAlrededor(x, y))
+                    continue;
+
+                int antes = juego.getCasillasTapadasRestantes();
+                juego.cavar(x, y);
+
+                if (antes - juego.getCasillasTapadasRestantes() > mayor)
+                {
+                    mayor = antes - juego.getCasillasTapadasRestantes();
+                    mejor = y * ancho + x;
+                }
+            }
+
+        juego.reset();
+        return mejor;
+    }
+}
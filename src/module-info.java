@@ -3,10 +3,17 @@
  *
  * @provides mx.ibero
  * @provides mx.ibero.exception
+ * @provides mx.ibero.infinito
+ * @provides mx.ibero.servidor
+ * @provides mx.ibero.simulador
+ * @provides mx.ibero.solver
  */
 open module Buscaminas
 {
     requires javafx.graphics;
     requires javafx.fxml;
     requires javafx.controls;
+
+    // Opcional: solo se usa si la JVM lo carga con --add-modules
+    requires static jdk.incubator.vector;
 }
\ No newline at end of file
@@ -0,0 +1,229 @@
+package mx.ibero;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Apertura de zonas vacías muy grandes repartida entre los hilos de un
+ * ForkJoinPool. {@link Buscaminas} empieza siempre en secuencia y solo pasa
+ * aquí la pila de casillas pendientes cuando una apertura ya destapó
+ * {@link #UMBRAL} casillas, así que los clics normales no pagan nada.
+ *
+ * Cada tarea recorre su propia pila y, si hay hilos sin trabajo, le da la
+ * mitad a una tarea nueva. Una casilla se destapa con compareAndSet sobre su
+ * byte: solo el hilo que lo consigue la cuenta y expande sus vecinas, así que
+ * ninguna casilla se destapa ni se cuenta dos veces. Durante la apertura las
+ * banderas y las minas no cambian, y las vecinas de una casilla vacía nunca
+ * son minas.
+ *
+ * Se usa el pool del hilo que llama si es un hilo de ForkJoinPool y, si no,
+ * el pool común.
+ *
+ * @author agent
+ */
+final class AperturaParalela extends RecursiveAction
+{
+    private static final long serialVersionUID = 1L;
+
+    /** Casillas que se destapan en secuencia antes de repartir la apertura. */
+    static final int UMBRAL = 1 << 16;
+
+    // Una tarea solo reparte su pila si tiene al menos el doble de esto
+    private static final int MINIMO_DIVISION = 256;
+
+    // Cada cuántas casillas expandidas se revisa si hay que repartir
+    private static final int REVISION = 64;
+
+    private static final VarHandle CELDAS = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final VarHandle FILAS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private static final int DESTAPADA = Buscaminas.DESTAPADA;
+    private static final int BANDERA = Buscaminas.BANDERA;
+    private static final int PISTA = Buscaminas.PISTA;
+
+    private final byte[] celdas;
+    private final int[] generacionFila;
+    private final int generacion;
+    private final int ancho;
+    private final int alto;
+
+    private int[] pila;
+    private int tope;
+
+    // Casillas destapadas por esta tarea, para la lista de cambios
+    private int[] destapadas = new int[MINIMO_DIVISION];
+    private int numDestapadas;
+
+    // Tareas creadas por esta, en una lista enlazada
+    private AperturaParalela hijas;
+    private AperturaParalela hermana;
+
+    private AperturaParalela(byte[] celdas, int[] generacionFila, int generacion, int ancho, int alto, int[] pila, int tope)
+    {
+        this.celdas = celdas;
+        this.generacionFila = generacionFila;
+        this.generacion = generacion;
+        this.ancho = ancho;
+        this.alto = alto;
+        this.pila = pila;
+        this.tope = tope;
+    }
+
+    /**
+     * Indica si vale la pena repartir una apertura desde el hilo actual: el
+     * pool que se usaría tiene más de un hilo.
+     *
+     * @return true si hay más de un hilo disponible.
+     */
+    static boolean disponible()
+    {
+        ForkJoinPool pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+        return pool.getParallelism() > 1;
+    }
+
+    /**
+     * Termina una apertura empezada en secuencia.
+     *
+     * @param celdas Tablero compacto de {@link Buscaminas}.
+     * @param generacionFila Generación de cada fila.
+     * @param generacion Generación actual.
+     * @param ancho Número de columnas.
+     * @param alto Número de filas.
+     * @param pendientes Casillas vacías ya destapadas cuyas vecinas faltan
+     *                   por expandir. Se usa como pila de la primera tarea.
+     * @param tope Número de casillas en pendientes.
+     * @param cambios Lista a la que se agregan las casillas destapadas.
+     * @return Casillas destapadas, todas sin mina.
+     */
+    static int abrir(byte[] celdas, int[] generacionFila, int generacion, int ancho, int alto, int[] pendientes, int tope, Cambios cambios)
+    {
+        AperturaParalela raiz = new AperturaParalela(celdas, generacionFila, generacion, ancho, alto, pendientes, tope);
+
+        if (ForkJoinTask.inForkJoinPool())
+            raiz.invoke();
+        else
+            ForkJoinPool.commonPool().invoke(raiz);
+
+        // Todas las tareas terminaron; se juntan sus resultados recorriendo
+        // el árbol de tareas
+        int total = 0;
+        AperturaParalela[] porVisitar = { raiz };
+        int numPorVisitar = 1;
+
+        while (numPorVisitar > 0)
+        {
+            AperturaParalela tarea = porVisitar[--numPorVisitar];
+
+            for (int n = 0; n < tarea.numDestapadas; n++)
+                cambios.agregar(tarea.destapadas[n]);
+            total += tarea.numDestapadas;
+
+            for (AperturaParalela hija = tarea.hijas; hija != null; hija = hija.hermana)
+            {
+                if (numPorVisitar == porVisitar.length)
+                    porVisitar = Arrays.copyOf(porVisitar, 2 * numPorVisitar);
+
+                porVisitar[numPorVisitar++] = hija;
+            }
+        }
+
+        return total;
+    }
+
+    @Override
+    protected void compute()
+    {
+        int expandidas = 0;
+
+        while (tope > 0)
+        {
+            if (++expandidas % REVISION == 0 && tope >= 2 * MINIMO_DIVISION && getSurplusQueuedTaskCount() <= 0)
+                dividir();
+
+            int actual = pila[--tope];
+            int cx = actual % ancho;
+            int cy = actual / ancho;
+
+            int x0 = cx > 0 ? cx - 1 : cx;
+            int x1 = cx < ancho - 1 ? cx + 1 : cx;
+            int y0 = cy > 0 ? cy - 1 : cy;
+            int y1 = cy < alto - 1 ? cy + 1 : cy;
+
+            for (int vy = y0; vy <= y1; vy++)
+            {
+                actualizarFila(vy);
+
+                for (int vx = x0; vx <= x1; vx++)
+                {
+                    int j = vy * ancho + vx;
+                    byte celda = (byte) CELDAS.getOpaque(celdas, j);
+
+                    if ((celda & (DESTAPADA | BANDERA)) != 0
+                            || !CELDAS.compareAndSet(celdas, j, celda, (byte) (celda | DESTAPADA)))
+                        continue;
+
+                    if (numDestapadas == destapadas.length)
+                        destapadas = Arrays.copyOf(destapadas, 2 * numDestapadas);
+                    destapadas[numDestapadas++] = j;
+
+                    if ((celda & PISTA) == 0)
+                    {
+                        if (tope == pila.length)
+                            pila = Arrays.copyOf(pila, 2 * tope);
+
+                        pila[tope++] = j;
+                    }
+                }
+            }
+        }
+
+        for (AperturaParalela hija = hijas; hija != null; hija = hija.hermana)
+            hija.join();
+    }
+
+    /**
+     * Pasa la mitad más antigua de la pila a una tarea nueva.
+     */
+    private void dividir()
+    {
+        int mitad = tope / 2;
+
+        AperturaParalela hija = new AperturaParalela(celdas, generacionFila, generacion, ancho, alto,
+                Arrays.copyOf(pila, Math.max(mitad, MINIMO_DIVISION)), mitad);
+
+        System.arraycopy(pila, mitad, pila, 0, tope - mitad);
+        tope -= mitad;
+
+        hija.hermana = hijas;
+        hijas = hija;
+        hija.fork();
+    }
+
+    /**
+     * Pasa una fila a la generación actual, como en Buscaminas, pero de
+     * forma segura entre hilos. Solo el primer hilo que llega a una fila
+     * vieja la limpia; los demás no escriben en ella hasta ver su generación
+     * nueva, que se publica después de limpiarla.
+     */
+    private void actualizarFila(int y)
+    {
+        if ((int) FILAS.getAcquire(generacionFila, y) == generacion)
+            return;
+
+        synchronized (generacionFila)
+        {
+            if (generacionFila[y] == generacion)
+                return;
+
+            int inicio = y * ancho;
+            for (int i = inicio; i < inicio + ancho; i++)
+                celdas[i] &= ~(DESTAPADA | BANDERA);
+
+            FILAS.setRelease(generacionFila, y, generacion);
+        }
+    }
+}
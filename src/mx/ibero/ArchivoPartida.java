@@ -0,0 +1,448 @@
+package mx.ibero;
+
+import mx.ibero.exception.DemasiadasMinasException;
+import mx.ibero.exception.NumeroDeVidasFueraDeRangoException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Guarda y carga partidas de {@link Buscaminas} en un formato binario
+ * versionado, pensado para pausar tableros enormes y para compartir
+ * tableros de prueba.
+ *
+ * Formato (enteros en big endian):
+ * <pre>
+ *  0  int   Número mágico "BMSP"
+ *  4  short Versión (1)
+ *  6  short Opciones: 1 = banderas, 2 = primer clic seguro,
+ *           4 = minas pendientes, 8 = juego terminado, 16 = ganador
+ *  8  int   Ancho
+ * 12  int   Alto
+ * 16  int   Total de minas
+ * 20  int   Vidas
+ * 24  int   Vidas restantes
+ * 28  int   Casillas tapadas restantes
+ * 32  int   Minas sin bandera restantes
+ * 36  int   Banderas puestas
+ * 40  long  Semilla
+ * 48        Planos de minas, destapadas y banderas
+ * </pre>
+ * Cada plano tiene un bit por casilla en el orden y * ancho + x, ocho
+ * casillas por byte empezando por el bit menos significativo. Las pistas no
+ * se guardan; se recalculan al cargar.
+ *
+ * La lectura mapea el archivo en memoria por bloques y pasa los bits
+ * directamente al tablero, sin copiar el archivo a arreglos intermedios. La
+ * escritura usa un búfer directo de tamaño fijo.
+ *
+ * Para tableros pequeños hay además un formato de texto legible, ver
+ * {@link #exportarTexto(Buscaminas)}.
+ *
+ * @author agent
+ */
+public final class ArchivoPartida
+{
+    private static final int MAGICO = 0x424D5350;   // "BMSP"
+    private static final short VERSION = 1;
+    private static final int CABECERA = 48;
+    private static final int BLOQUE = 1 << 20;   // Bytes por escritura
+    private static final long BLOQUE_MAPEO = 1L << 30;   // Bytes por región mapeada
+
+    private static final int OPCION_BANDERAS = 1;
+    private static final int OPCION_PRIMER_CLIC = 2;
+    private static final int OPCION_MINAS_PENDIENTES = 4;
+    private static final int OPCION_TERMINADO = 8;
+    private static final int OPCION_GANADOR = 16;
+
+    private static final int[] PLANOS = { Buscaminas.MINA, Buscaminas.DESTAPADA, Buscaminas.BANDERA };
+
+    private ArchivoPartida()
+    {
+    }
+
+    /**
+     * Guarda la partida. Se escribe en un archivo temporal que después
+     * reemplaza al destino, así un error a la mitad no deja un archivo
+     * incompleto.
+     *
+     * @param juego Partida a guardar.
+     * @param archivo Archivo destino.
+     * @throws IOException Si no se puede escribir.
+     */
+    public static void guardar(Buscaminas juego, Path archivo) throws IOException
+    {
+        byte[] celdas = juego.celdas();
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+            cabecera.putInt(MAGICO)
+                    .putShort(VERSION)
+                    .putShort((short) opciones(juego))
+                    .putInt(juego.getAncho())
+                    .putInt(juego.getAlto())
+                    .putInt(juego.getTotalMinas())
+                    .putInt(juego.getVidas())
+                    .putInt(juego.getVidasRestantes())
+                    .putInt(juego.getCasillasTapadasRestantes())
+                    .putInt(juego.getMinasSinBanderaRestantes())
+                    .putInt(juego.getBanderasPuestas())
+                    .putLong(juego.getSemilla())
+                    .flip();
+            escribirTodo(canal, cabecera);
+
+            // Los bits se juntan de 64 en 64; en little endian el primer byte
+            // del long queda con las primeras ocho casillas.
+            ByteBuffer bufer = ByteBuffer.allocateDirect(BLOQUE).order(ByteOrder.LITTLE_ENDIAN);
+            int completas = celdas.length & ~63;
+            boolean pendientes = !juego.isTableroGenerado();
+
+            for (int mascara : PLANOS)
+            {
+                // Las minas de un tablero aún sin generar pueden estar puestas
+                // de antemano; no se guardan porque salen de la semilla.
+                if (pendientes && mascara == Buscaminas.MINA)
+                    mascara = 0;
+
+                for (int i = 0; i < completas; i += 64)
+                {
+                    long bits = 0;
+                    for (int bit = 0; bit < 64; bit++)
+                        bits |= (long) ((celdas[i + bit] & mascara) != 0 ? 1 : 0) << bit;
+
+                    if (bufer.remaining() < Long.BYTES)
+                        vaciar(canal, bufer);
+
+                    bufer.putLong(bits);
+                }
+
+                // Últimas casillas, byte por byte
+                for (int i = completas; i < celdas.length; i += 8)
+                {
+                    int octeto = 0;
+                    int fin = Math.min(8, celdas.length - i);
+
+                    for (int bit = 0; bit < fin; bit++)
+                        if ((celdas[i + bit] & mascara) != 0)
+                            octeto |= 1 << bit;
+
+                    if (!bufer.hasRemaining())
+                        vaciar(canal, bufer);
+
+                    bufer.put((byte) octeto);
+                }
+            }
+
+            vaciar(canal, bufer);
+            canal.force(true);
+        }
+
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Carga una partida guardada con {@link #guardar(Buscaminas, Path)}.
+     *
+     * @param archivo Archivo a leer.
+     * @return La partida, lista para seguir jugando.
+     * @throws IOException Si no se puede leer o el archivo no es válido.
+     */
+    public static Buscaminas cargar(Path archivo) throws IOException
+    {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ))
+        {
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+            while (cabecera.hasRemaining())
+                if (canal.read(cabecera) < 0)
+                    throw new IOException("El archivo está incompleto.");
+            cabecera.flip();
+
+            if (cabecera.getInt() != MAGICO)
+                throw new IOException("El archivo no es una partida de buscaminas.");
+
+            short version = cabecera.getShort();
+            if (version != VERSION)
+                throw new IOException("Versión de archivo no soportada: " + version);
+
+            int opciones = cabecera.getShort();
+            int ancho = cabecera.getInt();
+            int alto = cabecera.getInt();
+            int minas = cabecera.getInt();
+            int vidas = cabecera.getInt();
+            int vidasRestantes = cabecera.getInt();
+            int tapadas = cabecera.getInt();
+            int minasSinBandera = cabecera.getInt();
+            int banderas = cabecera.getInt();
+            long semilla = cabecera.getLong();
+
+            if (ancho < 1 || alto < 1 || (long) ancho * alto > Integer.MAX_VALUE - 8)
+                throw new IOException("Tamaño de tablero inválido.");
+
+            long plano = bytesPlano(ancho * alto);
+            if (canal.size() != CABECERA + PLANOS.length * plano)
+                throw new IOException("El tamaño del archivo no corresponde al tablero.");
+
+            // Se crea sin colocar minas; los planos llenan el tablero
+            Buscaminas juego = crear(ancho, alto, minas, vidas, semilla);
+            byte[] celdas = juego.celdas();
+            long[] cuenta = new long[PLANOS.length];
+
+            for (int p = 0; p < PLANOS.length; p++)
+                cuenta[p] = leerPlano(canal, CABECERA + p * plano, plano, celdas, PLANOS[p]);
+
+            boolean pendientes = (opciones & OPCION_MINAS_PENDIENTES) != 0;
+            if (cuenta[0] != (pendientes ? 0 : minas) || cuenta[2] != banderas)
+                throw new IOException("Los planos no corresponden a los contadores de la partida.");
+
+            juego.restaurar(vidasRestantes, tapadas, minasSinBandera, banderas,
+                    (opciones & OPCION_TERMINADO) != 0, (opciones & OPCION_GANADOR) != 0,
+                    (opciones & OPCION_BANDERAS) != 0, (opciones & OPCION_PRIMER_CLIC) != 0, pendientes);
+            return juego;
+        }
+    }
+
+    /**
+     * Exporta la partida como texto. Pensado para tableros pequeños que se
+     * quieran leer o editar a mano. La primera línea es
+     * {@code buscaminas 1}; la segunda tiene ancho, alto, minas, vidas, vidas
+     * restantes, casillas tapadas restantes, minas sin bandera restantes,
+     * banderas, semilla y opciones (como en el formato binario). Después va
+     * una línea por fila con un carácter por casilla:
+     * <ul>
+     *     <li>{@code .} tapada, {@code *} tapada con mina</li>
+     *     <li>{@code f} bandera, {@code F} bandera sobre mina</li>
+     *     <li>{@code 0}-{@code 8} destapada, {@code X} mina destapada</li>
+     * </ul>
+     *
+     * @param juego Partida a exportar.
+     * @return Texto de la partida.
+     */
+    public static String exportarTexto(Buscaminas juego)
+    {
+        int ancho = juego.getAncho();
+        int alto = juego.getAlto();
+        StringBuilder texto = new StringBuilder(64 + (ancho + 1) * alto);
+
+        texto.append("buscaminas ").append(VERSION).append('\n')
+                .append(ancho).append(' ').append(alto).append(' ')
+                .append(juego.getTotalMinas()).append(' ').append(juego.getVidas()).append(' ')
+                .append(juego.getVidasRestantes()).append(' ').append(juego.getCasillasTapadasRestantes()).append(' ')
+                .append(juego.getMinasSinBanderaRestantes()).append(' ').append(juego.getBanderasPuestas()).append(' ')
+                .append(juego.getSemilla()).append(' ').append(opciones(juego)).append('\n');
+
+        for (int y = 0; y < alto; y++)
+        {
+            for (int x = 0; x < ancho; x++)
+            {
+                boolean mina = juego.hayMina(x, y);
+
+                if (juego.estaDestapada(x, y))
+                    texto.append(mina ? 'X' : (char) ('0' + juego.contarMinasAlrededor(x, y)));
+                else if (juego.tieneBandera(x, y))
+                    texto.append(mina ? 'F' : 'f');
+                else
+                    texto.append(mina ? '*' : '.');
+            }
+
+            texto.append('\n');
+        }
+
+        return texto.toString();
+    }
+
+    /**
+     * Crea una partida a partir del texto de {@link #exportarTexto(Buscaminas)}.
+     *
+     * @param texto Texto de la partida.
+     * @return La partida.
+     * @throws IllegalArgumentException Si el texto no tiene el formato
+     *                                  esperado.
+     */
+    public static Buscaminas importarTexto(String texto)
+    {
+        String[] lineas = texto.split("\r?\n");
+
+        if (lineas.length < 2 || !lineas[0].equals("buscaminas " + VERSION))
+            throw new IllegalArgumentException("El texto no es una partida de buscaminas.");
+
+        String[] campos = lineas[1].trim().split(" +");
+        if (campos.length != 10)
+            throw new IllegalArgumentException("La cabecera debe tener 10 campos.");
+
+        int ancho = Integer.parseInt(campos[0]);
+        int alto = Integer.parseInt(campos[1]);
+        int minas = Integer.parseInt(campos[2]);
+        int opciones = Integer.parseInt(campos[9]);
+
+        if (lineas.length < 2 + alto)
+            throw new IllegalArgumentException("Faltan filas del tablero.");
+
+        Buscaminas juego;
+        try
+        {
+            juego = crear(ancho, alto, minas, Integer.parseInt(campos[3]), Long.parseLong(campos[8]));
+        }
+        catch (IOException e)
+        {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+
+        byte[] celdas = juego.celdas();
+        int minasLeidas = 0;
+
+        for (int y = 0; y < alto; y++)
+        {
+            String fila = lineas[2 + y];
+            if (fila.length() != ancho)
+                throw new IllegalArgumentException("La fila " + y + " no mide " + ancho + ".");
+
+            for (int x = 0; x < ancho; x++)
+            {
+                int celda;
+                char c = fila.charAt(x);
+
+                if (c == '.')
+                    celda = 0;
+                else if (c == '*')
+                    celda = Buscaminas.MINA;
+                else if (c == 'f')
+                    celda = Buscaminas.BANDERA;
+                else if (c == 'F')
+                    celda = Buscaminas.MINA | Buscaminas.BANDERA;
+                else if (c == 'X')
+                    celda = Buscaminas.MINA | Buscaminas.DESTAPADA;
+                else if (c >= '0' && c <= '8')
+                    celda = Buscaminas.DESTAPADA;
+                else
+                    throw new IllegalArgumentException("Carácter desconocido '" + c + "' en la fila " + y + ".");
+
+                if ((celda & Buscaminas.MINA) != 0)
+                    minasLeidas++;
+
+                celdas[y * ancho + x] = (byte) celda;
+            }
+        }
+
+        boolean pendientes = (opciones & OPCION_MINAS_PENDIENTES) != 0;
+        if (minasLeidas != (pendientes ? 0 : minas))
+            throw new IllegalArgumentException("El tablero no tiene " + minas + " minas.");
+
+        juego.restaurar(Integer.parseInt(campos[4]), Integer.parseInt(campos[5]), Integer.parseInt(campos[6]),
+                Integer.parseInt(campos[7]), (opciones & OPCION_TERMINADO) != 0, (opciones & OPCION_GANADOR) != 0,
+                (opciones & OPCION_BANDERAS) != 0, (opciones & OPCION_PRIMER_CLIC) != 0, pendientes);
+        return juego;
+    }
+
+    /**
+     * Crea un tablero vacío del tamaño dado, sin colocar minas.
+     */
+    private static Buscaminas crear(int ancho, int alto, int minas, int vidas, long semilla) throws IOException
+    {
+        try
+        {
+            return new Buscaminas(ancho, alto, minas, vidas, semilla, true);
+        }
+        catch (DemasiadasMinasException | NumeroDeVidasFueraDeRangoException e)
+        {
+            throw new IOException("La configuración de la partida no es válida.", e);
+        }
+    }
+
+    /**
+     * Lee un plano mapeando el archivo por regiones y pone sus bits en las
+     * casillas.
+     *
+     * @return Número de bits encendidos en el plano.
+     */
+    private static long leerPlano(FileChannel canal, long inicio, long bytes, byte[] celdas, int mascara) throws IOException
+    {
+        long encendidos = 0;
+
+        for (long desplazamiento = 0; desplazamiento < bytes; desplazamiento += BLOQUE_MAPEO)
+        {
+            int tamano = (int) Math.min(BLOQUE_MAPEO, bytes - desplazamiento);
+            MappedByteBuffer region = canal.map(FileChannel.MapMode.READ_ONLY, inicio + desplazamiento, tamano);
+            int base = (int) (desplazamiento * 8);
+
+            for (int k = 0; k < tamano; k++, base += 8)
+            {
+                int octeto = region.get(k) & 0xFF;
+                if (octeto == 0)
+                    continue;
+
+                encendidos += Integer.bitCount(octeto);
+
+                // Bits después de la última casilla
+                if (base + 32 - Integer.numberOfLeadingZeros(octeto) > celdas.length)
+                    throw new IOException("El plano tiene casillas fuera del tablero.");
+
+                while (octeto != 0)
+                {
+                    celdas[base + Integer.numberOfTrailingZeros(octeto)] |= mascara;
+                    octeto &= octeto - 1;
+                }
+            }
+        }
+
+        return encendidos;
+    }
+
+    /**
+     * Bytes que ocupa un plano.
+     */
+    private static long bytesPlano(int casillas)
+    {
+        return (casillas + 7L) / 8;
+    }
+
+    /**
+     * Opciones de la partida como bits.
+     */
+    private static int opciones(Buscaminas juego)
+    {
+        int opciones = 0;
+
+        if (juego.hayBanderas())
+            opciones |= OPCION_BANDERAS;
+        if (juego.isPrimerClicSeguro())
+            opciones |= OPCION_PRIMER_CLIC;
+        if (!juego.isTableroGenerado())
+            opciones |= OPCION_MINAS_PENDIENTES;
+        if (juego.isGameOver())
+            opciones |= OPCION_TERMINADO;
+        if (juego.isGanador())
+            opciones |= OPCION_GANADOR;
+
+        return opciones;
+    }
+
+    /**
+     * Escribe lo acumulado en el búfer y lo deja listo para seguir
+     * llenándolo.
+     */
+    private static void vaciar(FileChannel canal, ByteBuffer bufer) throws IOException
+    {
+        bufer.flip();
+        escribirTodo(canal, bufer);
+        bufer.clear();
+    }
+
+    /**
+     * Escribe todo el contenido del búfer.
+     */
+    private static void escribirTodo(FileChannel canal, ByteBuffer bufer) throws IOException
+    {
+        while (bufer.hasRemaining())
+            canal.write(bufer);
+    }
+}
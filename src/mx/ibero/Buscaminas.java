@@ -3,6 +3,10 @@ package mx.ibero;
 import mx.ibero.exception.DemasiadasMinasException;
 import mx.ibero.exception.NumeroDeVidasFueraDeRangoException;
 
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Clase que simula al juego de buscaminas.
  *
@@ -11,10 +15,30 @@ import mx.ibero.exception.NumeroDeVidasFueraDeRangoException;
  */
 public class Buscaminas
 {
-    private boolean[][] tablero_minas;
-    private int[][] minas_alrededor;
-    private boolean[][] destapadas;
-    private boolean[][] banderas;
+    /*
+     * Todo el estado de una casilla cabe en un byte del arreglo "celdas":
+     *
+     *   bits 0-3  Pista (minas alrededor, de 0 a 9 contando la propia casilla)
+     *   bit  4    Hay mina
+     *   bit  5    Destapada
+     *   bit  6    Tiene bandera
+     *
+     * La casilla (x, y) se guarda en la posición y * ancho + x. Así un tablero
+     * ocupa un byte por casilla en lugar de las cuatro matrices de antes.
+     *
+     * Los bits de destapada y bandera de una fila solo cuentan si la fila
+     * tiene la generación actual (ver generacionFila). reset() solo cambia de
+     * generación; cada fila vieja se limpia la siguiente vez que se escribe
+     * en ella, con actualizarFila().
+     */
+    static final int PISTA = 0x0F;
+    static final int MINA = 0x10;
+    static final int DESTAPADA = 0x20;
+    static final int BANDERA = 0x40;
+
+    private byte[] celdas;
+    private int[] generacionFila;   // Generación en que se escribió cada fila
+    private int generacion;
 
     // Establecer valores por default para partida tradicional en modo fácil
     private int vidas = 1;
@@ -22,12 +46,30 @@ public class Buscaminas
     private int ancho = 8;
     private int alto = 8;
     private boolean soportaBanderas = true;
+    private long semilla = ThreadLocalRandom.current().nextLong();
+    private boolean primerClicSeguro;
+    private boolean minasPendientes;   // Las minas se pondrán en el primer cavar()
+    private boolean minasPreparadas;   // Ya puestas, pero el primer cavar() puede moverlas
 
     private boolean gameOver;
     private boolean ganador;
     private int vidasRestantes = vidas;
     private int casillasTapadasRestantes;
     private int minasSinBanderaRestantes;
+    private int banderasPuestas;
+
+    // Casillas modificadas en la última jugada
+    private Cambios cambios;
+
+    // Jugadas para deshacer y rehacer, con los contadores antes y después de
+    // la jugada en curso
+    private Historial historial = new Historial();
+    private final int[] contadoresAntes = new int[Historial.CONTADORES];
+    private final int[] contadoresDespues = new int[Historial.CONTADORES];
+
+    // Pila de casillas pendientes de expandir al destapar. Se conserva entre
+    // jugadas para no reservar memoria en cada clic.
+    private int[] pendientes = new int[64];
 
     /**
      * Constructor principal. Crea una instancia de un tablero de juego con valores por defecto.
@@ -35,10 +77,9 @@ public class Buscaminas
     public Buscaminas()
     {
         // Inicializar arreglos
-        tablero_minas = new boolean[alto][ancho];
-        minas_alrededor = new int[alto][ancho];
-        destapadas = new boolean[alto][ancho];
-        banderas = new boolean[alto][ancho];
+        celdas = new byte[alto * ancho];
+        generacionFila = new int[alto];
+        cambios = new Cambios(ancho);
 
         casillasTapadasRestantes = ancho * alto - totalMinas;
         minasSinBanderaRestantes = totalMinas;
@@ -73,6 +114,75 @@ public class Buscaminas
      *             minas.
      */
     public Buscaminas(int ancho, int alto, int minas, int vidas) throws DemasiadasMinasException, NumeroDeVidasFueraDeRangoException
+    {
+        this(ancho, alto, minas, vidas, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Crea una instancia de un tablero de juego cuya posición de minas se
+     * obtiene a partir de una semilla.
+     *
+     * @param ancho
+     *            Ancho del tablero (Número de columnas).
+     * @param alto
+     *            Alto del tablero (Número de filas).
+     * @param minas
+     *            Número de minas
+     * @param vidas
+     *            Número de errores permitidos.
+     * @param semilla
+     *            Semilla para colocar las minas. Con los mismos ancho, alto,
+     *            minas y semilla se obtiene siempre el mismo tablero.
+     * @throws DemasiadasMinasException
+     *             Esta excepción debe ser capturada para saber si ha sido
+     *             posible construir el tablero dado su tamaño y número de
+     *             minas. No se puede crear un tablero con más minas que
+     *             casillas disponibles. En caso de intentar crearlo, el objeto
+     *             no se creará, y lanzará esta excepción.
+     * @throws NumeroDeVidasFueraDeRangoException
+     *             Esta excepción se lanza cuando trates de crear un nuevo juego
+     *             con un número de vidas superior o inferior al número de
+     *             minas.
+     */
+    public Buscaminas(int ancho, int alto, int minas, int vidas, long semilla) throws DemasiadasMinasException, NumeroDeVidasFueraDeRangoException
+    {
+        this(ancho, alto, minas, vidas, semilla, false);
+    }
+
+    /**
+     * Crea una instancia de un tablero de juego cuya posición de minas se
+     * obtiene a partir de una semilla, con la opción de generar el tablero
+     * hasta el primer clic.
+     *
+     * @param ancho
+     *            Ancho del tablero (Número de columnas).
+     * @param alto
+     *            Alto del tablero (Número de filas).
+     * @param minas
+     *            Número de minas
+     * @param vidas
+     *            Número de errores permitidos.
+     * @param semilla
+     *            Semilla para colocar las minas. Con los mismos ancho, alto,
+     *            minas y semilla se obtiene siempre el mismo tablero.
+     * @param primerClicSeguro
+     *            Si es true, las minas no se colocan al crear la partida sino
+     *            en el primer cavar(), sin minas en la casilla elegida ni en
+     *            sus vecinas (si caben todas las minas en el resto). Crear la
+     *            partida es entonces casi inmediato. El tablero depende de la
+     *            semilla y de la casilla del primer clic.
+     * @throws DemasiadasMinasException
+     *             Esta excepción debe ser capturada para saber si ha sido
+     *             posible construir el tablero dado su tamaño y número de
+     *             minas. No se puede crear un tablero con más minas que
+     *             casillas disponibles. En caso de intentar crearlo, el objeto
+     *             no se creará, y lanzará esta excepción.
+     * @throws NumeroDeVidasFueraDeRangoException
+     *             Esta excepción se lanza cuando trates de crear un nuevo juego
+     *             con un número de vidas superior o inferior al número de
+     *             minas.
+     */
+    public Buscaminas(int ancho, int alto, int minas, int vidas, long semilla, boolean primerClicSeguro) throws DemasiadasMinasException, NumeroDeVidasFueraDeRangoException
     {
         if (minas > ancho * alto)
             throw new DemasiadasMinasException();
@@ -80,10 +190,9 @@ public class Buscaminas
             throw new NumeroDeVidasFueraDeRangoException();
 
         // Inicializar arreglos
-        tablero_minas = new boolean[alto][ancho];
-        minas_alrededor = new int[alto][ancho];
-        destapadas = new boolean[alto][ancho];
-        banderas = new boolean[alto][ancho];
+        celdas = new byte[alto * ancho];
+        generacionFila = new int[alto];
+        cambios = new Cambios(ancho);
 
         // Asignar valores
         this.vidas = vidas;
@@ -91,15 +200,23 @@ public class Buscaminas
         totalMinas = minas;
         this.ancho = ancho;
         this.alto = alto;
+        this.semilla = semilla;
 
         casillasTapadasRestantes = ancho * alto - totalMinas;
         minasSinBanderaRestantes = minas;
 
-        // Ponemos minas alrededor.
-        ponerMinas(minas);
+        this.primerClicSeguro = primerClicSeguro;
 
-        // Generamos la matriz de pistas.
-        minasAlrededor();
+        if (primerClicSeguro)
+            minasPendientes = true;
+        else
+        {
+            // Ponemos minas alrededor.
+            ponerMinas(minas);
+
+            // Generamos la matriz de pistas.
+            minasAlrededor();
+        }
     }
 
     /**
@@ -136,12 +253,24 @@ public class Buscaminas
      *
      * @param x Coordenada en X.
      * @param y Coordenada en Y.
+     * @throws IndexOutOfBoundsException Si la casilla está fuera del tablero.
      */
     public void marcarBandera(int x, int y)
     {
-        if (soportaBanderas && !gameOver)
+        comprobarCasilla(x, y);
+        cambios.limpiar();
+
+        if (soportaBanderas && !gameOver && !estaDestapada(x, y))
         {
-            banderas[y][x] = !banderas[y][x];
+            leerContadores(contadoresAntes);
+            actualizarFila(y);
+            celdas[y * ancho + x] ^= BANDERA;
+            cambios.agregar(y * ancho + x);
+
+            if (tieneBandera(x, y))
+                banderasPuestas++;
+            else
+                banderasPuestas--;
 
             // Al poner una bandera, calculo si es correcta o no para saber si
             // el juego ha terminado.
@@ -160,6 +289,8 @@ public class Buscaminas
                 gameOver = true;
                 ganador = true;
             }
+
+            registrar(BANDERA);
         }
     }
 
@@ -173,10 +304,34 @@ public class Buscaminas
      * @param y
      *            Fila
      * @return true = tiene bandera, false = no tiene bandera.
+     * @throws IndexOutOfBoundsException Si la casilla está fuera del tablero.
      */
     public boolean tieneBandera(int x, int y)
     {
-        return banderas[y][x];
+        comprobarCasilla(x, y);
+        return generacionFila[y] == generacion && (celdas[y * ancho + x] & BANDERA) != 0;
+    }
+
+    /**
+     * Número de banderas colocadas actualmente en el tablero.
+     *
+     * @return Total de banderas.
+     */
+    public int getBanderasPuestas()
+    {
+        return banderasPuestas;
+    }
+
+    /**
+     * Casillas que cambiaron con la última llamada a cavar() o
+     * marcarBandera(). La interfaz solo necesita volver a pintar estas
+     * casillas. Tras reset() la lista queda vacía y hay que redibujar todo.
+     *
+     * @return Lista de cambios, válida hasta la siguiente jugada.
+     */
+    public Cambios getCambios()
+    {
+        return cambios;
     }
 
     /**
@@ -201,16 +356,26 @@ public class Buscaminas
      *
      * @param x Columna
      * @param y Fila
+     * @throws IndexOutOfBoundsException Si la casilla está fuera del tablero.
      */
     public void cavar(int x, int y)
     {
+        comprobarCasilla(x, y);
+
         // Si el juego ha terminado, o si la casilla está protegida por una
         // bandera, no ejecutaremos ninguna acción. Si la casilla tiene bandera
         // y el usuario quiere cavar en ella, tendrá que retirar la bandera
         // previamente.
+        cambios.limpiar();
+
         if (gameOver || tieneBandera(x, y))
             return;
 
+        if (minasPendientes)
+            generarTablero(x, y);
+
+        leerContadores(contadoresAntes);
+
         // Si hay mina
         if (hayMina(x, y))
         {
@@ -232,6 +397,126 @@ public class Buscaminas
 
         if (vidasRestantes == 0)
             gameOver = true;
+
+        registrar(DESTAPADA);
+    }
+
+    /**
+     * Deshace la última jugada de cavar() o marcarBandera(). Las casillas
+     * que cambiaron quedan en {@link #getCambios()}, así que el costo depende
+     * solo de ellas y no del tamaño del tablero.
+     *
+     * No se pueden deshacer las jugadas anteriores a un reset() ni las
+     * anteriores a la colocación de las minas en una partida con primer clic
+     * seguro: deshacer el primer clic vuelve a tapar las casillas, pero las
+     * minas ya quedan en su lugar.
+     *
+     * @return false si no había nada que deshacer.
+     */
+    public boolean deshacer()
+    {
+        cambios.limpiar();
+
+        if (!historial.puedeDeshacer())
+            return false;
+
+        aplicar(historial.retroceder(), false);
+        return true;
+    }
+
+    /**
+     * Vuelve a hacer la última jugada deshecha. Una jugada nueva descarta las
+     * jugadas deshechas.
+     *
+     * @return false si no había nada que rehacer.
+     */
+    public boolean rehacer()
+    {
+        cambios.limpiar();
+
+        if (!historial.puedeRehacer())
+            return false;
+
+        aplicar(historial.avanzar(), true);
+        return true;
+    }
+
+    /**
+     * Indica si hay una jugada que deshacer.
+     *
+     * @return true si deshacer() tendría efecto.
+     */
+    public boolean puedeDeshacer()
+    {
+        return historial.puedeDeshacer();
+    }
+
+    /**
+     * Indica si hay una jugada deshecha que rehacer.
+     *
+     * @return true si rehacer() tendría efecto.
+     */
+    public boolean puedeRehacer()
+    {
+        return historial.puedeRehacer();
+    }
+
+    /**
+     * Guarda en el historial la jugada que acaba de terminar, si cambió
+     * alguna casilla o algún contador (cavar otra vez una mina destapada
+     * cuesta una vida sin cambiar casillas).
+     *
+     * @param bit Bit que cambió la jugada (DESTAPADA o BANDERA).
+     */
+    private void registrar(int bit)
+    {
+        leerContadores(contadoresDespues);
+
+        if (cambios.tamano() > 0 || !Arrays.equals(contadoresAntes, contadoresDespues))
+            historial.agregar(bit, cambios, contadoresAntes, contadoresDespues);
+    }
+
+    /**
+     * Invierte las casillas de una jugada del historial y pone los
+     * contadores de antes o de después de ella.
+     *
+     * @param jugada Jugada del historial.
+     * @param despues true al rehacer, false al deshacer.
+     */
+    private void aplicar(int jugada, boolean despues)
+    {
+        int bit = historial.tipo(jugada);
+
+        for (int n = 0; n < historial.tamano(jugada); n++)
+        {
+            int i = historial.casilla(jugada, n);
+
+            actualizarFila(i / ancho);
+            celdas[i] ^= bit;
+            cambios.agregar(i);
+        }
+
+        historial.contadores(jugada, despues, contadoresDespues);
+        vidasRestantes = contadoresDespues[0];
+        casillasTapadasRestantes = contadoresDespues[1];
+        minasSinBanderaRestantes = contadoresDespues[2];
+        banderasPuestas = contadoresDespues[3];
+        gameOver = (contadoresDespues[4] & 1) != 0;
+        ganador = (contadoresDespues[4] & 2) != 0;
+    }
+
+    /**
+     * Copia los contadores de la partida en el formato del historial.
+     *
+     * @param destino Arreglo de {@link Historial#CONTADORES} elementos.
+     */
+    private void leerContadores(int[] destino)
+    {
+        destino[0] = vidasRestantes;
+        destino[1] = casillasTapadasRestantes;
+        destino[2] = minasSinBanderaRestantes;
+        destino[3] = banderasPuestas;
+        destino[4] = (gameOver ? 1 : 0) | (ganador ? 2 : 0);
     }
 
     /**
@@ -239,37 +524,308 @@ public class Buscaminas
      * qué conocerlo ni utilizarlo. Sirve de forma interna para situar las minas
      * al azar por el tablero una vez que se ha creado.
      *
+     * Las minas se eligen con el algoritmo de Floyd: cada número aleatorio
+     * coloca exactamente una mina, sin reintentos, así que el tiempo depende
+     * solo del número de minas y no de la densidad. Si más de la mitad del
+     * tablero son minas se llenan todas las casillas y se eligen las libres.
+     *
      * @param totalMinas Minas a poner
      */
     private void ponerMinas(int totalMinas)
     {
-        int x, y;
+        SplittableRandom aleatorio = new SplittableRandom(semilla);
+        int casillas = celdas.length;
+
+        if (totalMinas <= casillas / 2)
+            elegirCasillas(aleatorio, casillas, totalMinas, 0);
+        else
+        {
+            for (int i = 0; i < casillas; i++)
+                celdas[i] |= MINA;
+
+            elegirCasillas(aleatorio, casillas, casillas - totalMinas, MINA);
+        }
+    }
 
-        while (totalMinas > 0)
+    /**
+     * Elige k casillas distintas al azar con el algoritmo de Floyd y cambia su
+     * bit de mina. Al empezar todas las casillas tienen el bit con el valor
+     * "libre", y las elegidas quedan con el valor contrario.
+     *
+     * @param aleatorio Generador de números aleatorios.
+     * @param casillas Las casillas sorteadas van de 0 a casillas - 1.
+     * @param k Casillas a elegir.
+     * @param libre Valor del bit de mina en las casillas aún no elegidas (0 o MINA).
+     */
+    private void elegirCasillas(SplittableRandom aleatorio, int casillas, int k, int libre)
+    {
+        for (int j = casillas - k; j < casillas; j++)
         {
-            x = (int) (Math.random() * ancho);
-            y = (int) (Math.random() * alto);
+            int t = aleatorio.nextInt(j + 1);
+
+            // Si ya se había elegido, se elige j, que nunca ha salido
+            if ((celdas[t] & MINA) != libre)
+                t = j;
 
-            if (!tablero_minas[y][x])
+            celdas[t] ^= MINA;
+        }
+    }
+
+    /**
+     * Coloca las minas y calcula las pistas de una partida con primer clic
+     * seguro antes de que se cave. Pensado para crear partidas en otro hilo
+     * (ver {@link ReservaTableros}): así el primer cavar() solo tiene que
+     * mover las minas que caigan junto a la casilla elegida.
+     *
+     * El tablero final es el mismo que si no se llamara, porque el primer
+     * cavar() siempre parte de esta colocación. No hace nada si el tablero ya
+     * está generado o preparado.
+     */
+    void prepararTablero()
+    {
+        if (!minasPendientes || minasPreparadas)
+            return;
+
+        ponerMinas(totalMinas);
+        minasAlrededor();
+        minasPreparadas = true;
+    }
+
+    /**
+     * Indica si las minas de una partida con primer clic seguro ya están
+     * colocadas a falta del primer cavar().
+     *
+     * @return true si se llamó a prepararTablero() y aún no se ha cavado.
+     */
+    boolean isTableroPreparado()
+    {
+        return minasPreparadas;
+    }
+
+    /**
+     * Genera el tablero de una partida creada con primer clic seguro. Se llama
+     * en el primer cavar(): coloca las minas a partir de la semilla, si no se
+     * hizo ya con prepararTablero(), y aparta las que hayan caído en la
+     * casilla elegida o sus vecinas.
+     *
+     * @param x Columna del primer clic.
+     * @param y Fila del primer clic.
+     */
+    private void generarTablero(int x, int y)
+    {
+        minasPendientes = false;
+
+        // Las banderas anteriores se contaron sin saber dónde estaban las
+        // minas; deshacerlas dejaría los contadores mal.
+        historial.limpiar();
+
+        if (!minasPreparadas)
+        {
+            ponerMinas(totalMinas);
+            minasAlrededor();
+        }
+
+        minasPreparadas = false;
+        apartarMinas(x, y);
+
+        // Las banderas puestas antes de generar el tablero se contaron sin
+        // saber dónde estaban las minas.
+        if (banderasPuestas > 0)
+        {
+            minasSinBanderaRestantes = totalMinas;
+            actualizarFilas();
+
+            for (byte celda : celdas)
+                if ((celda & BANDERA) != 0)
+                    minasSinBanderaRestantes += (celda & MINA) != 0 ? -1 : 1;
+        }
+    }
+
+    /**
+     * Mueve las minas de la casilla (x, y) y, si caben las minas, también de
+     * sus ocho vecinas, a casillas libres fuera de esa zona. Solo se
+     * actualizan las pistas alrededor de las minas movidas.
+     *
+     * Cada mina va a una casilla libre elegida al azar entre todas las de
+     * fuera, así que el tablero sigue siendo uniforme entre todos los que
+     * dejan la zona libre. El generador sale de la semilla, de modo que la
+     * misma semilla y el mismo clic dan siempre el mismo tablero.
+     *
+     * @param x Columna del primer clic.
+     * @param y Fila del primer clic.
+     */
+    private void apartarMinas(int x, int y)
+    {
+        int casillas = celdas.length;
+        int x0 = Math.max(0, x - 1), x1 = Math.min(ancho - 1, x + 1);
+        int y0 = Math.max(0, y - 1), y1 = Math.min(alto - 1, y + 1);
+
+        if (totalMinas > casillas - (x1 - x0 + 1) * (y1 - y0 + 1))
+        {
+            if (totalMinas == casillas)
+                return;
+
+            x0 = x1 = x;
+            y0 = y1 = y;
+        }
+
+        SplittableRandom aleatorio = null;
+
+        for (int vy = y0; vy <= y1; vy++)
+            for (int vx = x0; vx <= x1; vx++)
             {
-                tablero_minas[y][x] = true;
-                totalMinas--;
+                int origen = vy * ancho + vx;
+                if ((celdas[origen] & MINA) == 0)
+                    continue;
+
+                // Un flujo distinto del de ponerMinas(), que ya se consumió
+                if (aleatorio == null)
+                    aleatorio = new SplittableRandom(semilla).split();
+
+                int destino = casillaLibre(aleatorio, x0, x1, y0, y1);
+
+                celdas[origen] &= ~MINA;
+                sumarPista(vx, vy, -1);
+                celdas[destino] |= MINA;
+                sumarPista(destino % ancho, destino / ancho, 1);
             }
+    }
+
+    /**
+     * Elige al azar una casilla sin mina fuera del rectángulo dado. Primero
+     * prueba casillas al azar; si el tablero está casi lleno y no acierta,
+     * cuenta las libres y elige una de ellas.
+     *
+     * @return Posición de la casilla en celdas.
+     */
+    private int casillaLibre(SplittableRandom aleatorio, int x0, int x1, int y0, int y1)
+    {
+        int casillas = celdas.length;
+
+        for (int intento = 0; intento < 64; intento++)
+        {
+            int i = aleatorio.nextInt(casillas);
+            if (esLibreFuera(i, x0, x1, y0, y1))
+                return i;
         }
+
+        int libres = 0;
+        for (int i = 0; i < casillas; i++)
+            if (esLibreFuera(i, x0, x1, y0, y1))
+                libres++;
+
+        int elegida = aleatorio.nextInt(libres);
+        for (int i = 0; ; i++)
+            if (esLibreFuera(i, x0, x1, y0, y1) && elegida-- == 0)
+                return i;
     }
 
     /**
-     * Este método es privado. Sirve para destapar una casilla y sus adyacentes
-     * de modo recursivo. El usuario o jugador debe destapar las casillas
-     * utilizando el método cavar()
+     * Indica si la casilla no tiene mina y está fuera del rectángulo dado.
+     */
+    private boolean esLibreFuera(int i, int x0, int x1, int y0, int y1)
+    {
+        int x = i % ancho, y = i / ancho;
+        boolean dentro = x >= x0 && x <= x1 && y >= y0 && y <= y1;
+
+        return !dentro && (celdas[i] & MINA) == 0;
+    }
+
+    /**
+     * Suma un valor a la pista de la casilla y de sus vecinas.
+     */
+    private void sumarPista(int x, int y, int valor)
+    {
+        for (int vy = Math.max(0, y - 1); vy <= Math.min(alto - 1, y + 1); vy++)
+            for (int vx = Math.max(0, x - 1); vx <= Math.min(ancho - 1, x + 1); vx++)
+                celdas[vy * ancho + vx] += valor;
+    }
+
+    /**
+     * Este método es privado. Sirve para destapar una casilla y, si no tiene
+     * minas alrededor, todas las adyacentes hasta llegar a casillas con
+     * número. El usuario o jugador debe destapar las casillas utilizando el
+     * método cavar()
+     *
+     * La expansión se hace con una pila explícita en lugar de recursión, por
+     * lo que aperturas de millones de casillas no desbordan la pila del hilo.
+     * Si una apertura pasa de {@link AperturaParalela#UMBRAL} casillas, el
+     * resto se reparte entre varios hilos.
      *
      * @param x Columna
      * @param y Fila
      */
     private void destapar(int x, int y)
     {
-        // En este punto, a parte de destapar la casilla, decidimos si el juego
-        // ha finalizado.
+        int i = y * ancho + x;
+
+        actualizarFila(y);
+        if ((celdas[i] & (DESTAPADA | BANDERA)) != 0)
+            return;
+
+        revelar(i);
+
+        if ((celdas[i] & PISTA) == 0)
+        {
+            // Cada casilla se marca como destapada al meterla en la pila, así
+            // que nunca entra dos veces y la pila no supera el tamaño del
+            // tablero.
+            int tope = 0;
+            pendientes[tope++] = i;
+
+            // Una apertura que ya destapó muchas casillas se termina en
+            // paralelo si hay más de un hilo
+            int revision = AperturaParalela.UMBRAL;
+
+            while (tope > 0)
+            {
+                if (cambios.tamano() >= revision)
+                {
+                    if (AperturaParalela.disponible())
+                    {
+                        casillasTapadasRestantes -= AperturaParalela.abrir(celdas, generacionFila, generacion, ancho, alto,
+                                pendientes, tope, cambios);
+                        break;
+                    }
+
+                    revision = Integer.MAX_VALUE;
+                }
+
+                int actual = pendientes[--tope];
+                int cx = actual % ancho;
+                int cy = actual / ancho;
+
+                int x0 = cx > 0 ? cx - 1 : cx;
+                int x1 = cx < ancho - 1 ? cx + 1 : cx;
+                int y0 = cy > 0 ? cy - 1 : cy;
+                int y1 = cy < alto - 1 ? cy + 1 : cy;
+
+                for (int vy = y0; vy <= y1; vy++)
+                {
+                    actualizarFila(vy);
+
+                    for (int vx = x0; vx <= x1; vx++)
+                    {
+                        int j = vy * ancho + vx;
+
+                        if ((celdas[j] & (DESTAPADA | BANDERA)) != 0)
+                            continue;
+
+                        revelar(j);
+
+                        if ((celdas[j] & PISTA) == 0)
+                        {
+                            if (tope == pendientes.length)
+                                pendientes = Arrays.copyOf(pendientes, (int) Math.min(2L * tope, celdas.length));
+
+                            pendientes[tope++] = j;
+                        }
+                    }
+                }
+            }
+        }
+
+        // En este punto decidimos si el juego ha finalizado.
 
         // El juego finaliza si el jugador ha destapado todas las casillas en
         // las que NO hay minas sin haber consumido el número de intentos
@@ -279,60 +835,34 @@ public class Buscaminas
         // cuenta que además hayan banderas en todas las casillas tapadas que
         // tengan mina para que finalice el juego.
 
-        if (!destapadas[y][x] && !banderas[y][x])
+        if (soportaBanderas)
         {
-            destapadas[y][x] = true;
-
-            if (!hayMina(x, y))
-                casillasTapadasRestantes--;
+            if (casillasTapadasRestantes == 0 && minasSinBanderaRestantes == 0)
+                gameOver = true;
+        }
+        else
+        {
+            if (casillasTapadasRestantes == 0)
+                gameOver = true;
+        }
 
-            if (soportaBanderas)
-            {
-                if (casillasTapadasRestantes == 0 && minasSinBanderaRestantes == 0)
-                    gameOver = true;
-            }
-            else
-            {
-                if (casillasTapadasRestantes == 0)
-                    gameOver = true;
-            }
+        if (gameOver && vidasRestantes > 0)
+            ganador = true;
+    }
 
-            if (gameOver && vidasRestantes > 0)
-                ganador = true;
+    /**
+     * Marca una casilla como destapada y actualiza el contador de casillas
+     * tapadas. Su fila ya debe estar en la generación actual.
+     *
+     * @param i Posición de la casilla en el tablero.
+     */
+    private void revelar(int i)
+    {
+        celdas[i] |= DESTAPADA;
+        cambios.agregar(i);
 
-            if (!hayMinasAlrededor(x, y))
-            {
-                // Compruebo los lados
-                // Compruebo arriba y abajo
-                if (y > 0 && !estaDestapada(x, y - 1))
-                    destapar(x, y - 1);
-                if (y < alto && !estaDestapada(x, y + 1))
-                    destapar(x, y + 1);
-
-                // Compruebo a la derecha e izquierda
-                if (x > 0 && !estaDestapada(x - 1, y))
-                    destapar(x - 1, y);
-                if (x < ancho && !estaDestapada(x + 1, y))
-                    destapar(x + 1, y);
-
-                // Compruebo en las diagonales
-                // Diagonal superior izquierda
-                if (x > 0 && y > 0 && !estaDestapada(x - 1, y - 1))
-                    destapar(x - 1, y - 1);
-
-                // Diagonal superior derecha
-                if (x < ancho && y > 0 && !estaDestapada(x + 1, y - 1))
-                    destapar(x + 1, y - 1);
-
-                // Diagonal inferior izquierda
-                if (x > 0 && y < alto && !estaDestapada(x - 1, y + 1))
-                    destapar(x - 1, y + 1);
-
-                // Diagonal inferior derecha
-                if (x < ancho && y < alto && !estaDestapada(x + 1, y + 1))
-                    destapar(x + 1, y + 1);
-            }
-        }
+        if ((celdas[i] & MINA) == 0)
+            casillasTapadasRestantes--;
     }
 
     /**
@@ -344,29 +874,60 @@ public class Buscaminas
      * Este método se ejecuta al inicializar una instancia del juego, y nos
      * ahorramos tener que volver a calcularlo cada vez que el jugador haga clic
      * en una casilla.
+     *
+     * Si el módulo jdk.incubator.vector está disponible se usa
+     * {@link PistasVectoriales}; si no, se recorre cada fila con sumas
+     * deslizantes. Ninguno de los dos caminos reserva memoria ni lanza
+     * excepciones en los bordes.
      */
     private void minasAlrededor()
     {
-        int[] lasI = { -1, -1, 0, 1, 0, 1, 1, -1, 0 };
-        int[] lasJ = { -1, 0, -1, 1, 1, 0, -1, 1, 0 };
+        if (PistasVectoriales.DISPONIBLE)
+        {
+            PistasVectoriales.calcular(celdas, ancho, alto);
+            return;
+        }
 
-        for (int i = 0; i < alto; i++)
-            for (int j = 0; j < ancho; j++)
-                for (int k = 0; k < 9; k++)
-                {
-                    // Este try-catch evita que cuente las minas alrededor en
-                    // aquellas casillas fuera del rango.
-                    try
-                    {
-                        if (tablero_minas[i + lasI[k]][j + lasJ[k]])
-                            minas_alrededor[i][j]++;
-                    }
-                    catch (ArrayIndexOutOfBoundsException e)
-                    {
-                        // Si da error, no necesito hacer nada, simplemente que
-                        // continúe el bucle.
-                    }
-                }
+        for (int y = 0; y < alto; y++)
+        {
+            // Las filas de arriba y abajo que no existen se sustituyen por la
+            // propia fila con máscara 0, así no hace falta comprobar bordes.
+            int fila = y * ancho;
+            int arriba = y > 0 ? fila - ancho : fila;
+            int abajo = y < alto - 1 ? fila + ancho : fila;
+            int mascaraArriba = y > 0 ? 1 : 0;
+            int mascaraAbajo = y < alto - 1 ? 1 : 0;
+
+            // Minas de la columna anterior, actual y siguiente (3 filas)
+            int anterior = 0;
+            int actual = minasColumna(arriba, fila, abajo, mascaraArriba, mascaraAbajo);
+
+            for (int x = 0; x < ancho - 1; x++)
+            {
+                int siguiente = minasColumna(arriba + x + 1, fila + x + 1, abajo + x + 1, mascaraArriba, mascaraAbajo);
+
+                celdas[fila + x] = (byte) ((celdas[fila + x] & ~PISTA) | (anterior + actual + siguiente));
+                anterior = actual;
+                actual = siguiente;
+            }
+
+            celdas[fila + ancho - 1] = (byte) ((celdas[fila + ancho - 1] & ~PISTA) | (anterior + actual));
+        }
+    }
+
+    /**
+     * Cuenta las minas de una columna de tres casillas.
+     *
+     * @param arriba Posición de la casilla de arriba.
+     * @param centro Posición de la casilla central.
+     * @param abajo Posición de la casilla de abajo.
+     * @param mascaraArriba 1 si existe la fila de arriba, 0 si no.
+     * @param mascaraAbajo 1 si existe la fila de abajo, 0 si no.
+     * @return Minas en la columna, de 0 a 3.
+     */
+    private int minasColumna(int arriba, int centro, int abajo, int mascaraArriba, int mascaraAbajo)
+    {
+        return ((celdas[arriba] >> 4) & mascaraArriba) + ((celdas[centro] >> 4) & 1) + ((celdas[abajo] >> 4) & mascaraAbajo);
     }
 
     /**
@@ -376,10 +937,12 @@ public class Buscaminas
      * @param x La casilla X (horizontal, columna).
      * @param y La casilla Y (vertical, fila).
      * @return true si hay al menos una mina, false si está despejado.
+     * @throws IndexOutOfBoundsException Si la casilla está fuera del tablero.
      */
     public boolean hayMinasAlrededor(int x, int y)
     {
-        return minas_alrededor[y][x] > 0;
+        comprobarCasilla(x, y);
+        return !minasPendientes && (celdas[y * ancho + x] & PISTA) > 0;
     }
 
     /**
@@ -392,10 +955,12 @@ public class Buscaminas
      * @param x La casilla X (horizontal, columna).
      * @param y La casilla Y (vertical, fila).
      * @return El número de minas alrededor.
+     * @throws IndexOutOfBoundsException Si la casilla está fuera del tablero.
      */
     public int contarMinasAlrededor(int x, int y)
     {
-        return minas_alrededor[y][x];
+        comprobarCasilla(x, y);
+        return minasPendientes ? 0 : celdas[y * ancho + x] & PISTA;
     }
 
     /**
@@ -410,12 +975,12 @@ public class Buscaminas
      */
     public boolean estaDestapada(int x, int y)
     {
-        if (x < 0 || x >= destapadas[0].length)
+        if (x < 0 || x >= ancho)
             return true;
-        if (y < 0 || y >= destapadas.length)
+        if (y < 0 || y >= alto)
             return true;
 
-        return destapadas[y][x];
+        return generacionFila[y] == generacion && (celdas[y * ancho + x] & DESTAPADA) != 0;
     }
 
     /**
@@ -424,41 +989,215 @@ public class Buscaminas
      * @param x La casilla X (horizontal, columna).
      * @param y La casilla Y (vertical, fila).
      * @return true si hay una mina, false si la casilla está libre de mina.
+     *         Antes del primer cavar() de una partida con primer clic seguro
+     *         siempre es false, porque las minas aún pueden moverse.
      */
     public boolean hayMina(int x, int y)
     {
-        if (x < 0 || x >= tablero_minas[0].length)
+        if (x < 0 || x >= ancho)
             return true;
-        if (y < 0 || y >= tablero_minas.length)
+        if (y < 0 || y >= alto)
             return true;
 
-        return tablero_minas[y][x];
+        return !minasPendientes && (celdas[y * ancho + x] & MINA) != 0;
+    }
+
+    /**
+     * Revisa que una casilla esté dentro del tablero. Como las casillas van
+     * en un solo arreglo, una columna fuera de rango caería en otra fila en
+     * lugar de fallar.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     * @throws IndexOutOfBoundsException Si la casilla está fuera del tablero.
+     */
+    private void comprobarCasilla(int x, int y)
+    {
+        if (x < 0 || x >= ancho || y < 0 || y >= alto)
+            throw new IndexOutOfBoundsException("Casilla fuera del tablero: (" + x + ", " + y + ")");
     }
 
     /**
      * Devuelve una matriz que representa el mapa de minas. Las celdas con valor
      * 1 tienen mina, y las que tienen valor 0 están vacías.
      *
-     * @return Referencia la mapa de minas.
+     * La matriz se construye en cada llamada a partir del tablero compacto,
+     * por lo que modificarla no altera la partida.
+     *
+     * @return Copia del mapa de minas. Vacío antes del primer cavar() de una
+     *         partida con primer clic seguro.
      */
     public boolean[][] mapaDeMinas()
     {
-        return tablero_minas;
+        boolean[][] mapa = new boolean[alto][ancho];
+        if (minasPendientes)
+            return mapa;
+
+        for (int y = 0; y < alto; y++)
+            for (int x = 0; x < ancho; x++)
+                mapa[y][x] = (celdas[y * ancho + x] & MINA) != 0;
+
+        return mapa;
     }
 
     /**
      * Devuelve una matriz que representa las minas al alrededor.
      *
-     * @return Referencia de mapa de minas alrededor.
+     * La matriz se construye en cada llamada a partir del tablero compacto,
+     * por lo que modificarla no altera la partida.
+     *
+     * @return Copia del mapa de minas alrededor. Todo en 0 antes del primer
+     *         cavar() de una partida con primer clic seguro.
      */
     public int[][] mapaMinasAlrededor()
     {
-        return minas_alrededor;
+        int[][] mapa = new int[alto][ancho];
+        if (minasPendientes)
+            return mapa;
+
+        for (int y = 0; y < alto; y++)
+            for (int x = 0; x < ancho; x++)
+                mapa[y][x] = celdas[y * ancho + x] & PISTA;
+
+        return mapa;
+    }
+
+    /**
+     * Memoria que ocupa el estado de las casillas del tablero, sin contar la
+     * cabecera del propio objeto.
+     *
+     * @return Bytes reservados para las casillas.
+     */
+    public long bytesTablero()
+    {
+        return celdas.length + 4L * generacionFila.length;
+    }
+
+    /**
+     * Arreglo interno de casillas, con el formato descrito al inicio de la
+     * clase. Solo para las clases del paquete que guardan y restauran
+     * partidas; no debe modificarse fuera de {@link #restaurar}.
+     *
+     * Antes de devolverlo se limpian las filas de generaciones anteriores,
+     * así que todos sus bits son válidos.
+     *
+     * @return El arreglo de casillas, sin copiar.
+     */
+    byte[] celdas()
+    {
+        actualizarFilas();
+        return celdas;
+    }
+
+    /**
+     * Contador interno usado para decidir si se ganó con banderas: minas sin
+     * bandera más banderas mal puestas, menos las minas cavadas.
+     *
+     * @return Minas sin bandera restantes.
+     */
+    int getMinasSinBanderaRestantes()
+    {
+        return minasSinBanderaRestantes;
+    }
+
+    /**
+     * Copia del historial de jugadas, para guardarlo junto con
+     * {@link #celdas()}.
+     *
+     * @return Copia independiente del historial.
+     */
+    Historial copiarHistorial()
+    {
+        return new Historial(historial);
+    }
+
+    /**
+     * Reemplaza el historial de jugadas. Se llama después de
+     * {@link #restaurar}, que lo vacía.
+     *
+     * @param historial Historial guardado con copiarHistorial(); se copia.
+     */
+    void restaurarHistorial(Historial historial)
+    {
+        this.historial = new Historial(historial);
+    }
+
+    /**
+     * Restaura el estado de una partida guardada. Antes de llamarlo se deben
+     * haber escrito en {@link #celdas()} los bits de mina, destapada y
+     * bandera; aquí se recalculan las pistas. El historial de jugadas queda
+     * vacío.
+     *
+     * @param vidasRestantes Vidas que le quedaban al jugador.
+     * @param casillasTapadasRestantes Casillas sin mina aún tapadas.
+     * @param minasSinBanderaRestantes Valor de getMinasSinBanderaRestantes().
+     * @param banderasPuestas Banderas en el tablero.
+     * @param gameOver Si la partida había terminado.
+     * @param ganador Si la partida se había ganado.
+     * @param soportaBanderas Si la partida usa banderas.
+     * @param primerClicSeguro Si la partida se creó con primer clic seguro.
+     * @param minasPendientes Si aún no se habían colocado las minas.
+     */
+    void restaurar(int vidasRestantes, int casillasTapadasRestantes, int minasSinBanderaRestantes, int banderasPuestas,
+            boolean gameOver, boolean ganador, boolean soportaBanderas, boolean primerClicSeguro, boolean minasPendientes)
+    {
+        this.vidasRestantes = vidasRestantes;
+        this.casillasTapadasRestantes = casillasTapadasRestantes;
+        this.minasSinBanderaRestantes = minasSinBanderaRestantes;
+        this.banderasPuestas = banderasPuestas;
+        this.gameOver = gameOver;
+        this.ganador = ganador;
+        this.soportaBanderas = soportaBanderas;
+        this.primerClicSeguro = primerClicSeguro;
+        this.minasPendientes = minasPendientes;
+        minasPreparadas = false;
+
+        // Con minas pendientes el tablero se vuelve a generar desde la semilla
+        // en el primer cavar(); no debe quedar nada de una colocación previa.
+        if (minasPendientes)
+            for (int i = 0; i < celdas.length; i++)
+                celdas[i] &= ~(MINA | PISTA);
+        else
+            minasAlrededor();
+
+        historial.limpiar();
+        cambios.limpiar();
+    }
+
+    /**
+     * Borra las marcas de destapada y bandera de una fila escrita antes del
+     * último reset y la pasa a la generación actual. Se llama antes de
+     * escribir en la fila o de leerla directamente de celdas.
+     *
+     * @param y Fila.
+     */
+    private void actualizarFila(int y)
+    {
+        if (generacionFila[y] == generacion)
+            return;
+
+        int inicio = y * ancho;
+        for (int i = inicio; i < inicio + ancho; i++)
+            celdas[i] &= ~(DESTAPADA | BANDERA);
+
+        generacionFila[y] = generacion;
+    }
+
+    /**
+     * Pasa todas las filas a la generación actual.
+     */
+    private void actualizarFilas()
+    {
+        for (int y = 0; y < alto; y++)
+            actualizarFila(y);
     }
 
     /**
      * Resetea el juego actual sin cambiar la posición de las minas ni el tamaño
      * del tablero. Es decir, como volver a empezar la misma partida.
+     *
+     * Toma tiempo constante y no reserva memoria: solo cambia de generación,
+     * sin recorrer el tablero.
      */
     public void reset()
     {
@@ -467,11 +1206,80 @@ public class Buscaminas
         gameOver = false;
         ganador = false;
 
-        destapadas = new boolean[alto][ancho];
-        banderas = new boolean[alto][ancho];
+        // Las marcas de destapada y bandera escritas hasta ahora dejan de
+        // contar; las minas y las pistas se conservan. Si el contador da la
+        // vuelta se limpia todo el tablero para que ninguna fila vieja vuelva
+        // a parecer actual.
+        if (++generacion == 0)
+        {
+            for (int i = 0; i < celdas.length; i++)
+                celdas[i] &= ~(DESTAPADA | BANDERA);
+
+            Arrays.fill(generacionFila, 0);
+        }
 
         casillasTapadasRestantes = ancho * alto - totalMinas;
         minasSinBanderaRestantes = totalMinas;
+        banderasPuestas = 0;
+        historial.limpiar();
+        cambios.limpiar();
+    }
+
+    /**
+     * Empieza una partida nueva con otra posición de minas reutilizando la
+     * memoria del tablero actual. Conserva el tamaño, las minas, las vidas y
+     * la opción de primer clic seguro. Útil para simulaciones que juegan
+     * muchas partidas seguidas.
+     *
+     * @param semilla Semilla del nuevo tablero.
+     */
+    public void regenerar(long semilla)
+    {
+        this.semilla = semilla;
+
+        Arrays.fill(celdas, (byte) 0);
+        reset();
+        minasPreparadas = false;
+
+        if (primerClicSeguro)
+            minasPendientes = true;
+        else
+        {
+            ponerMinas(totalMinas);
+            minasAlrededor();
+        }
+    }
+
+    /**
+     * Semilla con la que se colocaron las minas. Junto con el ancho, el alto y
+     * el número de minas permite volver a generar el mismo tablero.
+     *
+     * @return Semilla del tablero.
+     */
+    public long getSemilla()
+    {
+        return semilla;
+    }
+
+    /**
+     * Indica si la partida se creó con primer clic seguro.
+     *
+     * @return true si las minas se colocan en el primer cavar().
+     */
+    public boolean isPrimerClicSeguro()
+    {
+        return primerClicSeguro;
+    }
+
+    /**
+     * Indica si las minas ya están colocadas. Solo es false en una partida con
+     * primer clic seguro en la que aún no se ha cavado.
+     *
+     * @return true si el tablero ya está generado.
+     */
+    public boolean isTableroGenerado()
+    {
+        return !minasPendientes;
     }
 
     /**
@@ -494,6 +1302,16 @@ public class Buscaminas
         return vidasRestantes;
     }
 
+    /**
+     * Devuelve el número de casillas sin mina que aún quedan por destapar.
+     *
+     * @return Casillas libres tapadas.
+     */
+    public int getCasillasTapadasRestantes()
+    {
+        return casillasTapadasRestantes;
+    }
+
     /**
      * Determina si el juego está ganado o perdido.
      *
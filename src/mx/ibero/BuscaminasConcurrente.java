@@ -0,0 +1,482 @@
+package mx.ibero;
+
+import mx.ibero.exception.DemasiadasMinasException;
+import mx.ibero.exception.NumeroDeVidasFueraDeRangoException;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tablero de buscaminas que pueden jugar varios hilos a la vez, por ejemplo
+ * varios jugadores o bots cavando en equipo sobre el mismo tablero. No usa
+ * candados: cada jugada cambia las casillas con compareAndSet.
+ *
+ * Con la misma semilla el tablero es igual al de {@link Buscaminas}, y las
+ * reglas son las mismas salvo en un caso: una mina solo cuesta una vida la
+ * primera vez que se cava. Si dos jugadores cavan la misma mina a la vez,
+ * solo uno la destapa y pierde la vida.
+ *
+ * Cuando la partida termina, las jugadas nuevas ya no tienen efecto; una
+ * apertura que estaba en curso sí termina de destapar sus casillas.
+ *
+ * @author agent
+ */
+public class BuscaminasConcurrente
+{
+    /*
+     * Cada casilla es un byte con el mismo formato que en Buscaminas, y van
+     * ocho casillas en cada long: la casilla i está en la palabra i / 8,
+     * bits 8 * (i % 8) a 8 * (i % 8) + 7. La mina y la pista no cambian
+     * después del constructor, así que se leen sin sincronizar; los bits de
+     * destapada y bandera se cambian con compareAndExchange sobre la palabra
+     * completa. Una casilla solo se destapa si no tiene bandera y solo se le
+     * pone bandera si no está destapada, y el hilo cuyo intercambio tiene
+     * éxito es el único que la cuenta.
+     */
+    private static final int PISTA = Buscaminas.PISTA;
+    private static final int MINA = Buscaminas.MINA;
+    private static final int DESTAPADA = Buscaminas.DESTAPADA;
+    private static final int BANDERA = Buscaminas.BANDERA;
+
+    private static final VarHandle PALABRAS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int EN_JUEGO = 0;
+    private static final int PERDIDO = 1;
+    private static final int GANADO = 2;
+
+    private final long[] celdas;
+    private final int ancho;
+    private final int alto;
+    private final int totalMinas;
+    private final int vidas;
+    private final boolean soportaBanderas;
+    private final int casillasSinMina;
+
+    // Las casillas destapadas y las minas sin bandera deciden cuándo se
+    // gana, así que necesitan un valor exacto: son atómicos normales, igual
+    // que las vidas y el estado. El total de banderas solo se consulta, y
+    // va repartido en varias celdas (LongAdder) para que los hilos no
+    // compitan por la misma línea de caché.
+    private final AtomicInteger destapadas = new AtomicInteger();
+    private final AtomicInteger minasSinBandera;
+    private final LongAdder banderas = new LongAdder();
+    private final AtomicInteger vidasRestantes;
+    private final AtomicInteger estado = new AtomicInteger(EN_JUEGO);
+
+    /**
+     * Crea un tablero con una semilla al azar y banderas activadas.
+     *
+     * @param ancho Número de columnas.
+     * @param alto Número de filas.
+     * @param minas Número de minas.
+     * @param vidas Número de errores permitidos.
+     * @throws DemasiadasMinasException Si hay más minas que casillas.
+     * @throws NumeroDeVidasFueraDeRangoException Si las vidas son menos de
+     *                                            una o más que las minas.
+     */
+    public BuscaminasConcurrente(int ancho, int alto, int minas, int vidas) throws DemasiadasMinasException, NumeroDeVidasFueraDeRangoException
+    {
+        this(ancho, alto, minas, vidas, ThreadLocalRandom.current().nextLong(), true);
+    }
+
+    /**
+     * Crea un tablero cuyas minas se obtienen a partir de una semilla, igual
+     * que en {@link Buscaminas#Buscaminas(int, int, int, int, long)}.
+     *
+     * @param ancho Número de columnas.
+     * @param alto Número de filas.
+     * @param minas Número de minas.
+     * @param vidas Número de errores permitidos.
+     * @param semilla Semilla para colocar las minas.
+     * @param soportaBanderas Si es true, para ganar también hay que poner
+     *                        bandera a todas las minas no cavadas.
+     * @throws DemasiadasMinasException Si hay más minas que casillas.
+     * @throws NumeroDeVidasFueraDeRangoException Si las vidas son menos de
+     *                                            una o más que las minas.
+     */
+    public BuscaminasConcurrente(int ancho, int alto, int minas, int vidas, long semilla, boolean soportaBanderas)
+            throws DemasiadasMinasException, NumeroDeVidasFueraDeRangoException
+    {
+        byte[] bytes = new Buscaminas(ancho, alto, minas, vidas, semilla).celdas();
+
+        celdas = new long[(bytes.length + 7) >>> 3];
+        for (int i = 0; i < bytes.length; i++)
+            celdas[i >>> 3] |= (long) (bytes[i] & 0xFF) << ((i & 7) << 3);
+
+        this.ancho = ancho;
+        this.alto = alto;
+        this.totalMinas = minas;
+        this.vidas = vidas;
+        this.soportaBanderas = soportaBanderas;
+        casillasSinMina = ancho * alto - minas;
+
+        vidasRestantes = new AtomicInteger(vidas);
+        minasSinBandera = new AtomicInteger(minas);
+    }
+
+    /**
+     * Cava en una casilla. Si tiene mina se pierde una vida; si no tiene
+     * minas alrededor se destapan también las vecinas, hasta llegar a
+     * casillas con número. Se puede llamar desde varios hilos a la vez.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     * @return Casillas que destapó esta llamada; 0 si la partida terminó, si
+     *         la casilla tiene bandera o si otro hilo ya la había destapado.
+     */
+    public int cavar(int x, int y)
+    {
+        if (estado.get() != EN_JUEGO)
+            return 0;
+
+        int i = y * ancho + x;
+
+        if (!revelar(i))
+            return 0;
+
+        if ((celda(i) & MINA) != 0)
+        {
+            if (soportaBanderas)
+                minasSinBandera.decrementAndGet();
+
+            if (vidasRestantes.decrementAndGet() <= 0)
+                terminar(PERDIDO);
+            else
+                comprobarVictoria();
+
+            return 1;
+        }
+
+        int reveladas = 1;
+
+        if ((celda(i) & PISTA) == 0)
+            reveladas += expandir(i);
+
+        destapadas.addAndGet(reveladas);
+        comprobarVictoria();
+
+        return reveladas;
+    }
+
+    /**
+     * Pone o quita la bandera de una casilla tapada. Se puede llamar desde
+     * varios hilos a la vez.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     * @return true si cambió la bandera; false si la partida terminó, si no
+     *         hay banderas o si la casilla ya estaba destapada.
+     */
+    public boolean marcarBandera(int x, int y)
+    {
+        if (!soportaBanderas || estado.get() != EN_JUEGO)
+            return false;
+
+        int i = y * ancho + x;
+        int desplazamiento = (i & 7) << 3;
+        long bandera = (long) BANDERA << desplazamiento;
+        long actual = (long) PALABRAS.getVolatile(celdas, i >>> 3);
+
+        while (true)
+        {
+            if ((actual & ((long) DESTAPADA << desplazamiento)) != 0)
+                return false;
+
+            long visto = (long) PALABRAS.compareAndExchange(celdas, i >>> 3, actual, actual ^ bandera);
+            if (visto == actual)
+                break;
+
+            actual = visto;
+        }
+
+        boolean puesta = (actual & bandera) == 0;
+        boolean mina = (celda(i) & MINA) != 0;
+
+        banderas.add(puesta ? 1 : -1);
+
+        // Una bandera bien puesta o quitada de una casilla sin mina acerca a
+        // la victoria; las demás la alejan
+        minasSinBandera.addAndGet(puesta == mina ? -1 : 1);
+
+        comprobarVictoria();
+        return true;
+    }
+
+    /**
+     * Destapa las vecinas de una casilla sin minas alrededor y, a su vez,
+     * las de cada vecina vacía. Cada casilla la destapa un solo hilo, que es
+     * el único que la cuenta y la expande.
+     *
+     * @param inicio Casilla vacía ya destapada.
+     * @return Casillas destapadas, sin contar la inicial.
+     */
+    private int expandir(int inicio)
+    {
+        int[] pendientes = new int[64];
+        int tope = 0;
+        int reveladas = 0;
+
+        pendientes[tope++] = inicio;
+
+        while (tope > 0)
+        {
+            int actual = pendientes[--tope];
+            int cx = actual % ancho;
+            int cy = actual / ancho;
+
+            int x0 = cx > 0 ? cx - 1 : cx;
+            int x1 = cx < ancho - 1 ? cx + 1 : cx;
+            int y0 = cy > 0 ? cy - 1 : cy;
+            int y1 = cy < alto - 1 ? cy + 1 : cy;
+
+            for (int vy = y0; vy <= y1; vy++)
+            {
+                for (int vx = x0; vx <= x1; vx++)
+                {
+                    int j = vy * ancho + vx;
+
+                    if (!revelar(j))
+                        continue;
+
+                    reveladas++;
+
+                    if ((celda(j) & PISTA) == 0)
+                    {
+                        if (tope == pendientes.length)
+                            pendientes = Arrays.copyOf(pendientes, 2 * tope);
+
+                        pendientes[tope++] = j;
+                    }
+                }
+            }
+        }
+
+        return reveladas;
+    }
+
+    /**
+     * Marca una casilla como destapada si no lo está y no tiene bandera.
+     *
+     * @param i Posición de la casilla.
+     * @return true si este hilo la destapó.
+     */
+    private boolean revelar(int i)
+    {
+        int desplazamiento = (i & 7) << 3;
+        long bloqueo = (long) (DESTAPADA | BANDERA) << desplazamiento;
+        long actual = (long) PALABRAS.getVolatile(celdas, i >>> 3);
+
+        while ((actual & bloqueo) == 0)
+        {
+            long visto = (long) PALABRAS.compareAndExchange(celdas, i >>> 3, actual, actual | ((long) DESTAPADA << desplazamiento));
+            if (visto == actual)
+                return true;
+
+            actual = visto;
+        }
+
+        return false;
+    }
+
+    /**
+     * Termina la partida si ya no quedan casillas por destapar (ni minas
+     * sin bandera, si hay banderas).
+     *
+     * Cada jugada cambia sus contadores antes de leerlos, así que si dos
+     * jugadas completan la victoria a la vez, la última en cambiar su
+     * contador ve también el cambio de la otra.
+     *
+     * Los dos contadores se leen por separado, pero el de casillas
+     * destapadas solo crece: si ya llegó al total cuando se lee, sigue ahí
+     * cuando se lee el de minas, así que la victoria solo se declara si los
+     * dos valores se cumplieron a la vez en algún momento.
+     */
+    private void comprobarVictoria()
+    {
+        if (destapadas.get() != casillasSinMina)
+            return;
+
+        if (!soportaBanderas || minasSinBandera.get() == 0)
+            terminar(GANADO);
+    }
+
+    /**
+     * Pasa la partida a su estado final. Solo la primera llamada tiene
+     * efecto, así que no se puede ganar y perder a la vez.
+     */
+    private void terminar(int resultado)
+    {
+        estado.compareAndSet(EN_JUEGO, resultado);
+    }
+
+    /**
+     * Byte de una casilla. Los bits de mina y pista siempre son válidos; los
+     * de destapada y bandera pueden estar cambiando en otro hilo.
+     */
+    private int celda(int i)
+    {
+        return (int) (celdas[i >>> 3] >>> ((i & 7) << 3)) & 0xFF;
+    }
+
+    /**
+     * Byte de una casilla con los cambios más recientes de otros hilos.
+     */
+    private int celdaActual(int i)
+    {
+        return (int) ((long) PALABRAS.getVolatile(celdas, i >>> 3) >>> ((i & 7) << 3)) & 0xFF;
+    }
+
+    /**
+     * Indica si la casilla está destapada.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     * @return true si está destapada.
+     */
+    public boolean estaDestapada(int x, int y)
+    {
+        return (celdaActual(y * ancho + x) & DESTAPADA) != 0;
+    }
+
+    /**
+     * Indica si la casilla tiene bandera.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     * @return true si tiene bandera.
+     */
+    public boolean tieneBandera(int x, int y)
+    {
+        return (celdaActual(y * ancho + x) & BANDERA) != 0;
+    }
+
+    /**
+     * Indica si la casilla tiene mina.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     * @return true si hay una mina.
+     */
+    public boolean hayMina(int x, int y)
+    {
+        return (celda(y * ancho + x) & MINA) != 0;
+    }
+
+    /**
+     * Minas en la casilla y sus ocho vecinas.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     * @return Número de minas alrededor.
+     */
+    public int contarMinasAlrededor(int x, int y)
+    {
+        return celda(y * ancho + x) & PISTA;
+    }
+
+    /**
+     * Indica si la partida terminó.
+     *
+     * @return true si se ganó o se perdió.
+     */
+    public boolean isGameOver()
+    {
+        return estado.get() != EN_JUEGO;
+    }
+
+    /**
+     * Indica si la partida se ganó.
+     *
+     * @return true si se ganó.
+     */
+    public boolean isGanador()
+    {
+        return estado.get() == GANADO;
+    }
+
+    /**
+     * Vidas que quedan. Mientras otros hilos juegan es solo una aproximación.
+     *
+     * @return Vidas restantes, nunca negativas.
+     */
+    public int getVidasRestantes()
+    {
+        return Math.max(0, vidasRestantes.get());
+    }
+
+    /**
+     * Casillas sin mina que siguen tapadas. Mientras otros hilos juegan es
+     * solo una aproximación.
+     *
+     * @return Casillas tapadas restantes.
+     */
+    public int getCasillasTapadasRestantes()
+    {
+        return casillasSinMina - destapadas.get();
+    }
+
+    /**
+     * Banderas en el tablero. Mientras otros hilos juegan es solo una
+     * aproximación.
+     *
+     * @return Banderas puestas.
+     */
+    public int getBanderasPuestas()
+    {
+        return (int) banderas.sum();
+    }
+
+    /**
+     * Indica si la partida usa banderas.
+     *
+     * @return true si hay banderas.
+     */
+    public boolean hayBanderas()
+    {
+        return soportaBanderas;
+    }
+
+    /**
+     * Vidas con las que empezó la partida.
+     *
+     * @return Vidas iniciales.
+     */
+    public int getVidas()
+    {
+        return vidas;
+    }
+
+    /**
+     * Número de columnas.
+     *
+     * @return Ancho del tablero.
+     */
+    public int getAncho()
+    {
+        return ancho;
+    }
+
+    /**
+     * Número de filas.
+     *
+     * @return Alto del tablero.
+     */
+    public int getAlto()
+    {
+        return alto;
+    }
+
+    /**
+     * Número de minas del tablero.
+     *
+     * @return Total de minas.
+     */
+    public int getTotalMinas()
+    {
+        return totalMinas;
+    }
+}
@@ -0,0 +1,95 @@
+package mx.ibero;
+
+import java.util.Arrays;
+
+/**
+ * Lista de casillas que cambiaron en la última jugada. La llena
+ * {@link Buscaminas} en cada llamada a cavar() o marcarBandera() para que la
+ * interfaz vuelva a pintar solo esas casillas en lugar de recorrer todo el
+ * tablero.
+ *
+ * La lista se reutiliza entre jugadas, por lo que su contenido solo es válido
+ * hasta la siguiente jugada.
+ *
+ * @author agent
+ */
+public class Cambios
+{
+    private int[] posiciones = new int[16];
+    private int tamano;
+    private int ancho;
+
+    /**
+     * Crea una lista vacía para un tablero del ancho dado.
+     *
+     * @param ancho Número de columnas del tablero.
+     */
+    Cambios(int ancho)
+    {
+        this.ancho = ancho;
+    }
+
+    /**
+     * Número de casillas que cambiaron.
+     *
+     * @return Total de cambios.
+     */
+    public int tamano()
+    {
+        return tamano;
+    }
+
+    /**
+     * Columna de la casilla que cambió.
+     *
+     * @param n Índice del cambio, entre 0 y tamano() - 1.
+     * @return Coordenada X.
+     */
+    public int getX(int n)
+    {
+        return posiciones[n] % ancho;
+    }
+
+    /**
+     * Fila de la casilla que cambió.
+     *
+     * @param n Índice del cambio, entre 0 y tamano() - 1.
+     * @return Coordenada Y.
+     */
+    public int getY(int n)
+    {
+        return posiciones[n] / ancho;
+    }
+
+    /**
+     * Posición de la casilla en el tablero plano (y * ancho + x).
+     *
+     * @param n Índice del cambio, entre 0 y tamano() - 1.
+     * @return Posición de la casilla.
+     */
+    public int getPosicion(int n)
+    {
+        return posiciones[n];
+    }
+
+    /**
+     * Vacía la lista sin liberar memoria.
+     */
+    void limpiar()
+    {
+        tamano = 0;
+    }
+
+    /**
+     * Agrega una casilla a la lista.
+     *
+     * @param posicion Posición de la casilla en el tablero plano.
+     */
+    void agregar(int posicion)
+    {
+        if (tamano == posiciones.length)
+            posiciones = Arrays.copyOf(posiciones, 2 * tamano);
+
+        posiciones[tamano++] = posicion;
+    }
+}
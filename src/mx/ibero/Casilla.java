@@ -1,6 +1,9 @@
 package mx.ibero;
 
+import javafx.css.PseudoClass;
 import javafx.scene.control.Button;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
 
 /**
  * Esta clase representa un lugar donde puede haber debajo de él una mina o no.
@@ -9,6 +12,24 @@ import javafx.scene.control.Button;
  */
 class Casilla extends Button
 {
+    // Estados de la casilla; de 0 a 9 es destapada con ese número
+    static final int TAPADA = -1;
+    static final int BANDERA = -2;
+    static final int MINA = -3;
+
+    // El estado se expresa con pseudoclases, que no se acumulan como las
+    // clases de estilo: .casilla:destapada, :mina, :bandera y :numero-N
+    private static final PseudoClass DESTAPADA = PseudoClass.getPseudoClass("destapada");
+    private static final PseudoClass CON_MINA = PseudoClass.getPseudoClass("mina");
+    private static final PseudoClass CON_BANDERA = PseudoClass.getPseudoClass("bandera");
+    private static final PseudoClass[] NUMEROS = new PseudoClass[10];
+
+    static
+    {
+        for (int n = 0; n < NUMEROS.length; n++)
+            NUMEROS[n] = PseudoClass.getPseudoClass("numero-" + n);
+    }
+
     /*
      * Es un tipo de boton propio para ponerle
      * un texto y las coordenadas.
@@ -19,6 +40,8 @@ class Casilla extends Button
      */
     private int x;
     private int y;
+    private int estado = TAPADA;   // Último estado pintado
+    private ImageView grafico;     // Se reutiliza, solo cambia su imagen
 
     /**
      * Constructor que posiciona la casilla en una coordenada.
@@ -62,4 +85,74 @@ class Casilla extends Button
     {
         return y;
     }
+
+    /**
+     * Último estado con el que se pintó la casilla.
+     *
+     * @return TAPADA, BANDERA, MINA o el número de minas alrededor.
+     */
+    int getEstado()
+    {
+        return estado;
+    }
+
+    /**
+     * Cambia el estado de la casilla y sus pseudoclases de CSS. Solo se
+     * quita la pseudoclase del estado anterior y se pone la del nuevo.
+     *
+     * @param estado TAPADA, BANDERA, MINA o el número de minas alrededor.
+     */
+    void setEstado(int estado)
+    {
+        PseudoClass anterior = pseudoClase(this.estado);
+        PseudoClass nueva = pseudoClase(estado);
+
+        if (anterior != null)
+            pseudoClassStateChanged(anterior, false);
+        if (nueva != null)
+            pseudoClassStateChanged(nueva, true);
+
+        pseudoClassStateChanged(DESTAPADA, estado == MINA || estado >= 0);
+
+        this.estado = estado;
+    }
+
+    /**
+     * Pseudoclase propia de un estado.
+     *
+     * @param estado TAPADA, BANDERA, MINA o el número de minas alrededor.
+     * @return La pseudoclase, o null si el estado no tiene (tapada).
+     */
+    private static PseudoClass pseudoClase(int estado)
+    {
+        if (estado == MINA)
+            return CON_MINA;
+        if (estado == BANDERA)
+            return CON_BANDERA;
+        if (estado >= 0)
+            return NUMEROS[estado];
+
+        return null;
+    }
+
+    /**
+     * Muestra una imagen en la casilla. Siempre se usa el mismo
+     * {@link ImageView}, así que cambiar de imagen no crea nodos nuevos.
+     *
+     * @param imagen Imagen ya escalada, o null para no mostrar ninguna.
+     */
+    void setImagen(Image imagen)
+    {
+        if (imagen == null)
+        {
+            setGraphic(null);
+            return;
+        }
+
+        if (grafico == null)
+            grafico = new ImageView();
+
+        grafico.setImage(imagen);
+        setGraphic(grafico);
+    }
 }
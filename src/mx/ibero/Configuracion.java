@@ -1,98 +1,95 @@
 package mx.ibero;
 
-import javafx.application.Platform;
-import javafx.scene.control.Alert;
-
-import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Esta clase se encarga de leer cualquier archivo de configuración del juego.
+ * Esta clase se encarga de leer los textos del juego (manual, acerca de)
+ * desde los recursos del módulo.
+ *
+ * Cada archivo se lee completo de una vez y se guarda en un caché compartido,
+ * así que todas las ventanas del juego usan el mismo texto. Los errores no
+ * muestran nada en pantalla: se devuelven en {@link #getError()} para que
+ * quien use el texto decida cómo avisar. Por eso la carga puede hacerse fuera
+ * del hilo de JavaFX.
  *
  * @author Josue Mosiah Contreras Rocha
  */
 public class Configuracion
 {
-    private String text = "";
-    private List<String> listText = new ArrayList<>();
-    private List<Long> tiempo = new ArrayList<>();
+    private static final Map<String, Configuracion> CACHE = new ConcurrentHashMap<>();
+
+    private final String text;
+    private final String error;
 
     /**
-     * Cargar archivo en paralelo.
+     * Crea el resultado de una carga.
      *
-     * @param pathname Path del archivo de configuración a cargar.
+     * @param text Texto leído, vacío si hubo error.
+     * @param error Mensaje de error, o null si se leyó bien.
      */
-    public Configuracion(String pathname)
+    private Configuracion(String text, String error)
     {
-        File file = new File(pathname);
-
-        try(BufferedReader br = new BufferedReader(new FileReader(file)))
-        {
-            String line;
-            while((line = br.readLine()) != null)
-                text = text +"\n"+ line;
-        }
-        catch (FileNotFoundException e)
-        {
-            alertaUsuario("No se pudo cargar un archivo de configuración.");
-        }
-        catch (IOException e)
-        {
-            alertaUsuario("Error inesperado de ejecución, terminando aplicación.");
-            Platform.exit();
-        }
+        this.text = text;
+        this.error = error;
     }
 
     /**
-     * Cargar archivos de puntuaciones.
+     * Devuelve el texto de un recurso, leyéndolo solo la primera vez. Los
+     * errores no se guardan en el caché para poder reintentar.
      *
-     * @param pathname Path del archivo de configuración a cargar.
+     * @param recurso Ruta del recurso dentro del módulo, por ejemplo
+     *                {@code /resources/manual.txt}.
+     * @return Texto cargado o el error encontrado.
      */
-    public Configuracion(File pathname)
+    public static Configuracion cargar(String recurso)
     {
-        try(BufferedReader br = new BufferedReader(new FileReader(pathname)))
+        Configuracion configuracion = CACHE.get(recurso);
+
+        if (configuracion == null)
         {
-            String line;
-            int pos = 0;
-            while((line = br.readLine()) != null)
-            {
-                String[] words = line.split(",");
-                if(pos > 10 || words[0].equals("null"))
-                    break;
+            configuracion = leer(recurso);
 
-                tiempo.add(pos, Long.valueOf(words[2]));
-                listText.add(pos++, line);
+            if (configuracion.error == null)
+            {
+                // Si otro hilo lo cargó al mismo tiempo se usa el suyo
+                Configuracion previa = CACHE.putIfAbsent(recurso, configuracion);
+                if (previa != null)
+                    configuracion = previa;
             }
         }
-        catch (FileNotFoundException e)
-        {
-            alertaUsuario("No se pudo cargar un archivo de configuración.");
-        }
-        catch (IOException e)
-        {
-            alertaUsuario("Error inesperado de ejecución, terminando aplicación.");
-            Platform.exit();
-        }
+
+        return configuracion;
     }
 
     /**
-     * Mensaje de alerta en la lectura del manual de usuario.
+     * Lee un recurso completo en UTF-8 sin usar el caché.
      *
-     * @param mensaje Texto del mensaje.
+     * @param recurso Ruta del recurso dentro del módulo.
+     * @return Texto cargado o el error encontrado.
      */
-    private void alertaUsuario(String mensaje)
+    public static Configuracion leer(String recurso)
     {
-        Alert temp = new Alert(Alert.AlertType.ERROR);
-        temp.setTitle("Error encontrado");
-        temp.setContentText(mensaje);
-        temp.showAndWait();
+        try (InputStream entrada = Configuracion.class.getResourceAsStream(recurso))
+        {
+            if (entrada == null)
+                return new Configuracion("", "No se pudo cargar un archivo de configuración.");
+
+            return new Configuracion(new String(entrada.readAllBytes(), StandardCharsets.UTF_8), null);
+        }
+        catch (IOException e)
+        {
+            return new Configuracion("", "Error inesperado al leer un archivo de configuración.");
+        }
     }
 
     /**
      * Getter del texto.
      *
-     * @return Texto del manual.
+     * @return Texto del manual, vacío si no se pudo cargar.
      */
     public String getText()
     {
@@ -100,22 +97,22 @@ public class Configuracion
     }
 
     /**
-     * Tiempos de rankings leídos de archivos de configuración.
+     * Indica si el texto se pudo cargar.
      *
-     * @return Arreglo con tiempos de cada dificultad.
+     * @return true si hubo un error.
      */
-    public Long[] getTiempo()
+    public boolean hayError()
     {
-        return tiempo.toArray(new Long[10]);
+        return error != null;
     }
 
     /**
-     * Jugadores de rankings leídos de archivos de configuración.
+     * Mensaje del error encontrado al cargar.
      *
-     * @return Arreglo con tiempos de cada dificultad.
+     * @return Descripción del error, o null si no hubo.
      */
-    public String[] getListText()
+    public String getError()
     {
-        return listText.toArray(new String[10]);
+        return error;
     }
 }
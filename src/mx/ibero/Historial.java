@@ -0,0 +1,263 @@
+package mx.ibero;
+
+/**
+ * Jugadas que se pueden deshacer y rehacer en {@link Buscaminas}. De cada
+ * jugada solo se guardan las casillas que cambiaron (una sola en una bandera,
+ * toda la zona en una apertura) y los contadores de la partida antes y
+ * después, nunca una copia del tablero.
+ *
+ * Como cavar solo cambia el bit de destapada y marcarBandera solo el de
+ * bandera, basta con guardar qué bit cambió en la jugada: deshacerla y
+ * rehacerla es el mismo XOR sobre sus casillas.
+ *
+ * Las casillas y las jugadas se guardan en dos búferes circulares de tamaño
+ * máximo fijo; cuando se llenan se descartan las jugadas más antiguas. Una
+ * jugada que no cabe sola en el búfer de casillas vacía el historial. Los
+ * búferes crecen según se usan, así que una partida sin jugadas no reserva
+ * casi nada.
+ *
+ * @author agent
+ */
+final class Historial
+{
+    /** Máximo de jugadas que se recuerdan. */
+    static final int MAXIMO_JUGADAS = 1 << 12;
+
+    /** Máximo de casillas guardadas entre todas las jugadas (4 MiB). */
+    static final int MAXIMO_CASILLAS = 1 << 20;
+
+    /** Contadores guardados de cada jugada, antes y después. */
+    static final int CONTADORES = 5;
+
+    private int[] casillas = new int[64];   // Búfer circular de posiciones
+    private long inicioCasillas;            // Posición absoluta de la casilla más antigua
+    private long finCasillas;               // Posición absoluta tras la última casilla
+
+    private long[] inicio = new long[16];   // Posición absoluta de la primera casilla de cada jugada
+    private int[] tamano = new int[16];
+    private byte[] tipo = new byte[16];     // Bit que cambió la jugada
+    private int[] contadores = new int[16 * 2 * CONTADORES];
+
+    private long primera;                   // Jugada más antigua guardada
+    private long actual;                    // Siguiente jugada a rehacer
+    private long ultima;                    // Jugada tras la última guardada
+
+    /**
+     * Crea un historial vacío.
+     */
+    Historial()
+    {
+    }
+
+    /**
+     * Copia independiente de otro historial.
+     *
+     * @param otro Historial a copiar.
+     */
+    Historial(Historial otro)
+    {
+        casillas = otro.casillas.clone();
+        inicioCasillas = otro.inicioCasillas;
+        finCasillas = otro.finCasillas;
+        inicio = otro.inicio.clone();
+        tamano = otro.tamano.clone();
+        tipo = otro.tipo.clone();
+        contadores = otro.contadores.clone();
+        primera = otro.primera;
+        actual = otro.actual;
+        ultima = otro.ultima;
+    }
+
+    /**
+     * Olvida todas las jugadas sin liberar memoria.
+     */
+    void limpiar()
+    {
+        primera = actual = ultima;
+        inicioCasillas = finCasillas;
+    }
+
+    /**
+     * Indica si hay una jugada que deshacer.
+     *
+     * @return true si se puede deshacer.
+     */
+    boolean puedeDeshacer()
+    {
+        return actual > primera;
+    }
+
+    /**
+     * Indica si hay una jugada deshecha que rehacer.
+     *
+     * @return true si se puede rehacer.
+     */
+    boolean puedeRehacer()
+    {
+        return actual < ultima;
+    }
+
+    /**
+     * Guarda una jugada. Descarta las jugadas deshechas que quedaban por
+     * rehacer.
+     *
+     * @param bit Bit que cambió en las casillas.
+     * @param cambios Casillas que cambiaron.
+     * @param antes Contadores antes de la jugada.
+     * @param despues Contadores después de la jugada.
+     */
+    void agregar(int bit, Cambios cambios, int[] antes, int[] despues)
+    {
+        int n = cambios.tamano();
+
+        // Lo que estaba por rehacer deja de ser válido
+        ultima = actual;
+        finCasillas = actual > primera ? inicio[indice(actual - 1)] + tamano[indice(actual - 1)] : inicioCasillas;
+
+        if (n > MAXIMO_CASILLAS)
+        {
+            limpiar();
+            return;
+        }
+
+        while (finCasillas + n - inicioCasillas > casillas.length && casillas.length < MAXIMO_CASILLAS)
+            crecerCasillas();
+
+        if (ultima - primera == inicio.length && inicio.length < MAXIMO_JUGADAS)
+            crecerJugadas();
+
+        // Se descartan las jugadas más antiguas hasta que haya lugar
+        while (ultima - primera == inicio.length || finCasillas + n - inicioCasillas > casillas.length)
+        {
+            primera++;
+            inicioCasillas = primera < ultima ? inicio[indice(primera)] : finCasillas;
+        }
+
+        int j = indice(ultima);
+        inicio[j] = finCasillas;
+        tamano[j] = n;
+        tipo[j] = (byte) bit;
+        System.arraycopy(antes, 0, contadores, j * 2 * CONTADORES, CONTADORES);
+        System.arraycopy(despues, 0, contadores, j * 2 * CONTADORES + CONTADORES, CONTADORES);
+
+        int mascara = casillas.length - 1;
+        for (int k = 0; k < n; k++)
+            casillas[(int) ((finCasillas + k) & mascara)] = cambios.getPosicion(k);
+
+        finCasillas += n;
+        actual = ++ultima;
+    }
+
+    /**
+     * Retrocede una jugada.
+     *
+     * @return Jugada a deshacer, para las consultas de abajo.
+     */
+    int retroceder()
+    {
+        return indice(--actual);
+    }
+
+    /**
+     * Avanza una jugada.
+     *
+     * @return Jugada a rehacer, para las consultas de abajo.
+     */
+    int avanzar()
+    {
+        return indice(actual++);
+    }
+
+    /**
+     * Bit que cambió una jugada.
+     *
+     * @param jugada Jugada devuelta por retroceder() o avanzar().
+     * @return DESTAPADA o BANDERA.
+     */
+    int tipo(int jugada)
+    {
+        return tipo[jugada];
+    }
+
+    /**
+     * Número de casillas que cambió una jugada.
+     *
+     * @param jugada Jugada devuelta por retroceder() o avanzar().
+     * @return Total de casillas.
+     */
+    int tamano(int jugada)
+    {
+        return tamano[jugada];
+    }
+
+    /**
+     * Casilla que cambió una jugada.
+     *
+     * @param jugada Jugada devuelta por retroceder() o avanzar().
+     * @param n Índice entre 0 y tamano(jugada) - 1.
+     * @return Posición de la casilla (y * ancho + x).
+     */
+    int casilla(int jugada, int n)
+    {
+        return casillas[(int) ((inicio[jugada] + n) & (casillas.length - 1))];
+    }
+
+    /**
+     * Copia los contadores de una jugada.
+     *
+     * @param jugada Jugada devuelta por retroceder() o avanzar().
+     * @param despues false para los de antes de la jugada, true para los de
+     *                después.
+     * @param destino Arreglo de {@link #CONTADORES} elementos.
+     */
+    void contadores(int jugada, boolean despues, int[] destino)
+    {
+        System.arraycopy(contadores, jugada * 2 * CONTADORES + (despues ? CONTADORES : 0), destino, 0, CONTADORES);
+    }
+
+    private int indice(long jugada)
+    {
+        return (int) (jugada & (inicio.length - 1));
+    }
+
+    /**
+     * Duplica el búfer de casillas conservando su contenido.
+     */
+    private void crecerCasillas()
+    {
+        int[] nuevo = new int[2 * casillas.length];
+
+        for (long k = inicioCasillas; k < finCasillas; k++)
+            nuevo[(int) (k & (nuevo.length - 1))] = casillas[(int) (k & (casillas.length - 1))];
+
+        casillas = nuevo;
+    }
+
+    /**
+     * Duplica el búfer de jugadas conservando su contenido.
+     */
+    private void crecerJugadas()
+    {
+        int capacidad = 2 * inicio.length;
+        long[] inicio = new long[capacidad];
+        int[] tamano = new int[capacidad];
+        byte[] tipo = new byte[capacidad];
+        int[] contadores = new int[capacidad * 2 * CONTADORES];
+
+        for (long k = primera; k < ultima; k++)
+        {
+            int de = indice(k);
+            int a = (int) (k & (capacidad - 1));
+
+            inicio[a] = this.inicio[de];
+            tamano[a] = this.tamano[de];
+            tipo[a] = this.tipo[de];
+            System.arraycopy(this.contadores, de * 2 * CONTADORES, contadores, a * 2 * CONTADORES, 2 * CONTADORES);
+        }
+
+        this.inicio = inicio;
+        this.tamano = tamano;
+        this.tipo = tipo;
+        this.contadores = contadores;
+    }
+}
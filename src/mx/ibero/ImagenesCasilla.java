@@ -0,0 +1,64 @@
+package mx.ibero;
+
+import javafx.scene.image.Image;
+
+import java.util.Arrays;
+
+/**
+ * Caché de una imagen de casilla (mina o bandera) ya escalada a cada tamaño
+ * en que se dibuja. Todas las vistas comparten la misma {@link Image} para un
+ * mismo tamaño, así que redibujar el tablero no vuelve a cargar ni a escalar
+ * nada. Las imágenes se cargan en segundo plano la primera vez que se piden.
+ *
+ * Solo debe usarse desde el hilo de JavaFX.
+ *
+ * @author agent
+ */
+final class ImagenesCasilla
+{
+    /** Bandera; en una casilla de 35 px mide 20 x 30. */
+    static final ImagenesCasilla BANDERA = new ImagenesCasilla("/resources/bandera.png", 1.5);
+
+    /** Mina; en una casilla de 35 px mide 25 x 25. */
+    static final ImagenesCasilla MINA = new ImagenesCasilla("/resources/mina1.jpg", 1.0);
+
+    private final String recurso;
+    private final double proporcion;   // Alto entre ancho
+    private Image[] escaladas = new Image[64];   // Índice = ancho en píxeles
+
+    /**
+     * Crea el caché de una imagen.
+     *
+     * @param recurso Ruta de la imagen.
+     * @param proporcion Alto de la imagen entre su ancho.
+     */
+    private ImagenesCasilla(String recurso, double proporcion)
+    {
+        this.recurso = recurso;
+        this.proporcion = proporcion;
+    }
+
+    /**
+     * Devuelve la imagen escalada al ancho dado, creándola solo la primera
+     * vez.
+     *
+     * @param ancho Ancho en píxeles.
+     * @return Imagen escalada, posiblemente aún cargándose.
+     */
+    Image escalada(int ancho)
+    {
+        ancho = Math.max(1, ancho);
+
+        if (ancho >= escaladas.length)
+            escaladas = Arrays.copyOf(escaladas, Math.max(ancho + 1, 2 * escaladas.length));
+
+        Image imagen = escaladas[ancho];
+        if (imagen == null)
+        {
+            imagen = new Image(recurso, ancho, Math.round(ancho * proporcion), false, true, true);
+            escaladas[ancho] = imagen;
+        }
+
+        return imagen;
+    }
+}
@@ -16,6 +16,8 @@ import javafx.stage.Stage;
  */
 public class IniciarJuego extends Application
 {
+    private static final long inicio = System.nanoTime();   // Para medir el arranque
+
     /**
      * Método que carga JVM.
      *
@@ -35,6 +37,7 @@ public class IniciarJuego extends Application
         // Inicializar Root Node desde FXML
         Parent root = FXMLLoader.load(getClass().getResource("ScreenGame.fxml"));
         Scene scene = new Scene(root);
+        MedidorPulsos.medirArranque(scene, inicio);
         scene.getStylesheets().add(getClass().getResource("/resources/estilos.css").toExternalForm());
 
         // Propiedades de primaryStage
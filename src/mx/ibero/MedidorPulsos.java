@@ -0,0 +1,103 @@
+package mx.ibero;
+
+import javafx.scene.Node;
+import javafx.scene.Scene;
+
+/**
+ * Mide cuánto tarda cada pulso de la escena en aplicar CSS y layout, además
+ * de la memoria usada. Sirve para comparar las formas de dibujar el tablero
+ * sobre una misma partida.
+ *
+ * @author agent
+ */
+class MedidorPulsos
+{
+    private static long arranqueNanos = -1;   // Desde main() hasta el primer pulso
+
+    private long inicioPulso;
+    private long pulsos;
+    private long totalNanos;
+    private long maximoNanos;
+
+    /**
+     * Empieza a medir en cuanto el nodo dado forme parte de una escena.
+     *
+     * @param raiz Nodo de la escena a medir.
+     */
+    MedidorPulsos(Node raiz)
+    {
+        if (raiz.getScene() != null)
+            registrar(raiz.getScene());
+        else
+            raiz.sceneProperty().addListener((observable, anterior, nueva) ->
+            {
+                if (anterior == null && nueva != null)
+                    registrar(nueva);
+            });
+    }
+
+    /**
+     * Mide el tiempo de arranque: desde el inicio del programa hasta el
+     * primer pulso de la escena, que es cuando se dibuja el primer cuadro.
+     * El resultado aparece en {@link #resumen()}.
+     *
+     * @param escena Escena principal.
+     * @param inicio Valor de {@link System#nanoTime()} al cargar la clase
+     *               principal.
+     */
+    static void medirArranque(Scene escena, long inicio)
+    {
+        // El listener no se quita dentro del propio pulso porque la escena
+        // está recorriendo su lista de listeners
+        escena.addPostLayoutPulseListener(() ->
+        {
+            if (arranqueNanos >= 0)
+                return;
+
+            arranqueNanos = System.nanoTime() - inicio;
+        });
+    }
+
+    /**
+     * Agrega los listeners de pulso a la escena.
+     *
+     * @param escena Escena a medir.
+     */
+    private void registrar(Scene escena)
+    {
+        escena.addPreLayoutPulseListener(() -> inicioPulso = System.nanoTime());
+        escena.addPostLayoutPulseListener(() ->
+        {
+            long duracion = System.nanoTime() - inicioPulso;
+
+            pulsos++;
+            totalNanos += duracion;
+            maximoNanos = Math.max(maximoNanos, duracion);
+        });
+    }
+
+    /**
+     * Borra las mediciones acumuladas.
+     */
+    void reiniciar()
+    {
+        pulsos = 0;
+        totalNanos = 0;
+        maximoNanos = 0;
+    }
+
+    /**
+     * Texto con el resumen de las mediciones.
+     *
+     * @return Tiempo de arranque, pulsos medidos, tiempo promedio y máximo,
+     *         y memoria usada.
+     */
+    String resumen()
+    {
+        Runtime rt = Runtime.getRuntime();
+        long heap = rt.totalMemory() - rt.freeMemory();
+
+        return String.format("Arranque hasta el primer pulso: %.1f ms%nPulsos medidos: %d%nCSS + layout promedio: %.3f ms%nCSS + layout máximo: %.3f ms%nHeap usado: %.1f MB",
+                arranqueNanos / 1e6, pulsos, pulsos == 0 ? 0 : totalNanos / 1e6 / pulsos, maximoNanos / 1e6, heap / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,112 @@
+package mx.ibero;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Cálculo de las pistas con la API de vectores de Java (SIMD). Suma en cada
+ * pasada las minas de tres filas para tantas casillas como quepan en un
+ * registro del procesador.
+ *
+ * El módulo jdk.incubator.vector es opcional: solo se usa si la JVM se
+ * arrancó con {@code --add-modules jdk.incubator.vector}. Se puede desactivar
+ * con {@code -Dbuscaminas.vectorial=false}.
+ *
+ * @author agent
+ */
+final class PistasVectoriales
+{
+    /**
+     * Indica si se puede usar este cálculo en la JVM actual.
+     */
+    static final boolean DISPONIBLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && !"false".equals(System.getProperty("buscaminas.vectorial"));
+
+    private PistasVectoriales()
+    {
+    }
+
+    /**
+     * Calcula la pista de todas las casillas del tablero. Las casillas de los
+     * bordes izquierdo y derecho se calculan sin vectores.
+     *
+     * @param celdas Tablero compacto de {@link Buscaminas}.
+     * @param ancho Número de columnas.
+     * @param alto Número de filas.
+     */
+    static void calcular(byte[] celdas, int ancho, int alto)
+    {
+        Calculo.calcular(celdas, ancho, alto);
+    }
+
+    /**
+     * Contiene las referencias a las clases del módulo de vectores para que
+     * solo se carguen si el cálculo está disponible.
+     */
+    private static final class Calculo
+    {
+        private static final VectorSpecies<Byte> ESPECIE = ByteVector.SPECIES_PREFERRED;
+
+        static void calcular(byte[] celdas, int ancho, int alto)
+        {
+            int carriles = ESPECIE.length();
+
+            for (int y = 0; y < alto; y++)
+            {
+                int fila = y * ancho;
+                int arriba = y > 0 ? fila - ancho : fila;
+                int abajo = y < alto - 1 ? fila + ancho : fila;
+                byte mascaraArriba = y > 0 ? (byte) Buscaminas.MINA : 0;
+                byte mascaraAbajo = y < alto - 1 ? (byte) Buscaminas.MINA : 0;
+
+                // Bloques de casillas con vecinas a ambos lados: x en [1, ancho - 1)
+                int x = 1;
+                for (; x + carriles < ancho; x += carriles)
+                {
+                    ByteVector suma = minas(celdas, arriba + x, mascaraArriba)
+                            .add(minas(celdas, fila + x, (byte) Buscaminas.MINA))
+                            .add(minas(celdas, abajo + x, mascaraAbajo));
+
+                    ByteVector centro = ByteVector.fromArray(ESPECIE, celdas, fila + x);
+                    centro.and((byte) ~Buscaminas.PISTA)
+                            .or(suma.lanewise(VectorOperators.LSHR, 4))
+                            .intoArray(celdas, fila + x);
+                }
+
+                // Bordes y resto de la fila
+                pistaEscalar(celdas, ancho, fila, arriba, abajo, mascaraArriba, mascaraAbajo, 0);
+                for (; x < ancho; x++)
+                    pistaEscalar(celdas, ancho, fila, arriba, abajo, mascaraArriba, mascaraAbajo, x);
+            }
+        }
+
+        /**
+         * Suma las minas de tres casillas consecutivas (x - 1, x, x + 1) de
+         * una fila. Cada mina aporta 0x10, así que el total cabe en un byte
+         * sin signo.
+         */
+        private static ByteVector minas(byte[] celdas, int posicion, byte mascara)
+        {
+            return ByteVector.fromArray(ESPECIE, celdas, posicion - 1).and(mascara)
+                    .add(ByteVector.fromArray(ESPECIE, celdas, posicion).and(mascara))
+                    .add(ByteVector.fromArray(ESPECIE, celdas, posicion + 1).and(mascara));
+        }
+
+        /**
+         * Calcula una pista sin vectores comprobando los bordes de la fila.
+         */
+        private static void pistaEscalar(byte[] celdas, int ancho, int fila, int arriba, int abajo,
+                                         byte mascaraArriba, byte mascaraAbajo, int x)
+        {
+            int desde = x > 0 ? x - 1 : x;
+            int hasta = x < ancho - 1 ? x + 1 : x;
+            int suma = 0;
+
+            for (int vx = desde; vx <= hasta; vx++)
+                suma += (celdas[arriba + vx] & mascaraArriba) + (celdas[fila + vx] & Buscaminas.MINA) + (celdas[abajo + vx] & mascaraAbajo);
+
+            celdas[fila + x] = (byte) ((celdas[fila + x] & ~Buscaminas.PISTA) | (suma >> 4));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package mx.ibero;
+
+import java.time.LocalDate;
+
+/**
+ * Una partida ganada guardada en el {@link RegistroPuntuaciones}.
+ *
+ * @author agent
+ */
+public class Puntuacion
+{
+    private final long secuencia;   // Orden en que se registró
+    private final long tiempo;
+    private final LocalDate fecha;
+    private final String nombre;
+
+    /**
+     * Crea una puntuación.
+     *
+     * @param secuencia Número de registro, único y creciente.
+     * @param tiempo Duración de la partida en segundos.
+     * @param fecha Fecha del record.
+     * @param nombre Nombre del jugador.
+     */
+    Puntuacion(long secuencia, long tiempo, LocalDate fecha, String nombre)
+    {
+        this.secuencia = secuencia;
+        this.tiempo = tiempo;
+        this.fecha = fecha;
+        this.nombre = nombre;
+    }
+
+    /**
+     * Número de registro. Las puntuaciones con el mismo tiempo se ordenan por
+     * este número.
+     *
+     * @return Secuencia del registro.
+     */
+    public long getSecuencia()
+    {
+        return secuencia;
+    }
+
+    /**
+     * Duración de la partida.
+     *
+     * @return Tiempo en segundos.
+     */
+    public long getTiempo()
+    {
+        return tiempo;
+    }
+
+    /**
+     * Fecha en que se ganó la partida.
+     *
+     * @return Fecha del record.
+     */
+    public LocalDate getFecha()
+    {
+        return fecha;
+    }
+
+    /**
+     * Nombre que escribió el jugador.
+     *
+     * @return Nombre del jugador.
+     */
+    public String getNombre()
+    {
+        return nombre;
+    }
+}
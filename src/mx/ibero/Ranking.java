@@ -9,16 +9,14 @@ import javafx.scene.control.TextField;
 import javafx.scene.layout.GridPane;
 import javafx.scene.text.Text;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static java.time.temporal.ChronoUnit.SECONDS;
 
@@ -29,56 +27,83 @@ import static java.time.temporal.ChronoUnit.SECONDS;
  */
 public class Ranking
 {
+    private static final Path DIRECTORIO = Paths.get("src/resources");
+    private static final String[] DIFICULTADES = { "principante", "intermedio", "dificil", "personalizada" };
+
     // Variables de instancia
     private LocalDateTime ldt1;   // Medir tiempo entre cada partida
     private LocalDateTime ldt2;
-    private File[] ranks = new File[4];                     // Archivos de rankings
-    private List<String[]> contenido = new ArrayList<>();   // Texto de puntuaciones
-    private List<Long[]> tiempo = new ArrayList<>();        // Tiempos registrados en cada dificultad
+    private RegistroPuntuaciones[] registros = new RegistroPuntuaciones[4];   // Historial de cada dificultad
+    private TablaPuntuaciones[] tablas = new TablaPuntuaciones[4];            // Top N de cada dificultad
+    private final CompletableFuture<Void> carga;                              // Lectura de los archivos
     private int dificultad;
     private Long duracion;   // Duración de la partida ganada
     private boolean timerActivado;
 
     /**
      * Al instanciar el objeto se deben cargar los archivos de cada dificultad.
+     * Se muestra el top 10.
      */
     public Ranking()
     {
-        validarArchivos();
-
-        // Leer archivos de rankings
-        for(int i=0; i<ranks.length; i++)
-        {
-            Configuracion rank = new Configuracion(ranks[i]);
-
-            contenido.add(rank.getListText());
-            tiempo.add(rank.getTiempo());
-        }
+        this(10);
     }
 
     /**
-     * Si no existe el archivo de alguna dificultad lo crea.
+     * Empieza a cargar los archivos de cada dificultad en segundo plano,
+     * conservando las mejores puntuaciones indicadas. El constructor no
+     * espera; los métodos que usan las tablas sí esperan a que termine.
+     *
+     * @param lugares Número de puntuaciones de cada tabla.
      */
-    private void validarArchivos()
+    public Ranking(int lugares)
     {
-        ranks[0] = new File("src/resources/principante.txt");
-        ranks[1] = new File("src/resources/intermedio.txt");
-        ranks[2] = new File("src/resources/dificil.txt");
-        ranks[3] = new File("src/resources/personalizada.txt");
+        carga = CompletableFuture.runAsync(() -> cargar(lugares));
+    }
 
+    /**
+     * Lee el historial de cada dificultad y llena las tablas.
+     *
+     * @param lugares Número de puntuaciones de cada tabla.
+     */
+    private void cargar(int lugares)
+    {
         try
         {
-            for(File file: ranks)
-                if(!file.exists())
-                    file.createNewFile();
+            for(int i=0; i<registros.length; i++)
+            {
+                registros[i] = new RegistroPuntuaciones(DIRECTORIO, DIFICULTADES[i]);
+                tablas[i] = new TablaPuntuaciones(lugares);
+
+                // El historial viene ordenado por tiempo
+                List<Puntuacion> historial = registros[i].cargar();
+                for(int n=0; n<lugares && n<historial.size(); n++)
+                {
+                    Puntuacion p = historial.get(n);
+                    tablas[i].agregar(p.getTiempo(), p.getFecha(), p.getNombre());
+                }
+            }
         }
         catch (IOException e)
         {
-            alertaArchivo(Alert.AlertType.ERROR, "No se pudieron encontrar los rankings de jugadores.");
-            Platform.exit();
+            // La carga no corre en el hilo de JavaFX
+            Platform.runLater(() ->
+            {
+                alertaArchivo(Alert.AlertType.ERROR, "No se pudieron encontrar los rankings de jugadores.");
+                Platform.exit();
+            });
         }
     }
 
+    /**
+     * Espera a que terminen de cargarse los archivos. Normalmente ya
+     * terminaron cuando el jugador gana su primera partida o abre un menú.
+     */
+    private void esperarCarga()
+    {
+        carga.join();
+    }
+
     /**
      * Inicia el timer para la partida.
      */
@@ -123,24 +148,14 @@ public class Ranking
     }
 
     /**
-     * Verifica si el tiempo registrado entra en el top 10.
+     * Verifica si el tiempo registrado entra en el top.
      *
      * @return True si hay nuevo record.
      */
     public boolean consultaRecord()
     {
-        boolean nuevoRecord = false;
-
-        for(Long t: tiempo.get(dificultad))
-        {
-            if (t == null || duracion < t)
-            {
-                nuevoRecord = true;
-                break;
-            }
-        }
-
-        return nuevoRecord;
+        esperarCarga();
+        return tablas[dificultad].entra(duracion);
     }
 
     /**
@@ -148,9 +163,11 @@ public class Ranking
      */
     public void nuevoRecord()
     {
+        esperarCarga();
+
         // Crear Dialog
         Dialog<ButtonType> newPlayer = new Dialog<>();
-        newPlayer.setHeaderText("Haz ingresado en el top 10.");
+        newPlayer.setHeaderText("Haz ingresado en el top "+ tablas[dificultad].capacidad() +".");
         newPlayer.setTitle("¡Nuevo record!");
 
         // Crear contenido del form
@@ -176,7 +193,7 @@ public class Ranking
             actualizarRank(textField.getText());
 
             // Guardarlo en archivo
-            guardarRank();
+            guardarRank(textField.getText());
         }
     }
 
@@ -187,53 +204,21 @@ public class Ranking
      */
     private void actualizarRank(String name)
     {
-        // Agregar en la lista de tiempos
-        tiempo.get(dificultad)[9] = duracion;
-        Arrays.sort(tiempo.get(dificultad), (o1, o2) ->
-        {
-            if (o1 == null && o2 == null)
-                return 0;
-
-            if (o1 == null)
-                return 1;
-
-            if (o2 == null)
-                return -1;
-
-            return o1.compareTo(o2);
-        });
-
-        // Corregir lista de contenidos
-        contenido.get(dificultad)[9] = name +","+ fecha() +","+ duracion;
-        Arrays.sort(contenido.get(dificultad), (o1, o2) ->
-        {
-            if (o1 == null && o2 == null)
-                return 0;
-
-            if (o1 == null)
-                return 1;
-
-            if (o2 == null)
-                return -1;
-
-            String[] val1 = o1.split(",");
-            String[] val2 = o2.split(",");
-            int v1 = Integer.valueOf(val1[2]);
-            int v2 = Integer.valueOf(val2[2]);
-
-            return v1 - v2;
-        });
+        tablas[dificultad].agregar(duracion, fecha(), name);
     }
 
     /**
-     * Si hay nuevo record en el ranking este debe actualizar el archivo de salida.
+     * Agrega el nuevo record al historial de la dificultad. Solo se escribe
+     * una línea al final de la bitácora; el archivo completo se compacta en
+     * segundo plano.
+     *
+     * @param name Nombre del jugador
      */
-    private void guardarRank()
+    private void guardarRank(String name)
     {
-        try(BufferedWriter bw = new BufferedWriter(new FileWriter(ranks[dificultad])))
+        try
         {
-            for(String w: contenido.get(dificultad))
-                bw.write(w +"\n");
+            registros[dificultad].agregar(name, fecha(), duracion);
         }
         catch (IOException e)
         {
@@ -266,10 +251,11 @@ public class Ranking
      * Devuelve las puntuaciones en base a la dificultad pedida.
      *
      * @param dificultad 0=Fácil 1=Normal 2=Dificil 3=Personalizada
-     * @return Arreglo con las puntuaciones
+     * @return Tabla con las mejores puntuaciones
      */
-    public String[] puntuaciones(int dificultad)
+    public TablaPuntuaciones puntuaciones(int dificultad)
     {
-        return contenido.get(dificultad);
+        esperarCarga();
+        return tablas[dificultad];
     }
 }
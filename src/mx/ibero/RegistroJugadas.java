@@ -0,0 +1,205 @@
+package mx.ibero;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Bitácora de las jugadas de una partida: la semilla y las opciones del
+ * tablero seguidas de cada llamada a cavar, marcarBandera, reset, deshacer o
+ * rehacer con el tiempo transcurrido desde la anterior. Con ella
+ * {@link Reproductor} reconstruye la partida sin la interfaz, por ejemplo
+ * para revisar el reporte de un jugador o volver a medir el tiempo de un
+ * record.
+ *
+ * Formato (los enteros marcados como varint usan 7 bits por byte, el bit
+ * más alto indica que sigue otro byte):
+ * <pre>
+ * byte    Versión (1)
+ * byte    Opciones: 1 = banderas, 2 = primer clic seguro
+ * varint  Ancho
+ * varint  Alto
+ * varint  Total de minas
+ * varint  Vidas
+ * long    Semilla (8 bytes, big endian)
+ * long    Inicio en milisegundos desde 1970 (8 bytes, big endian)
+ * ...     Jugadas hasta el final del arreglo
+ * </pre>
+ * Cada jugada son dos varints: los milisegundos desde la jugada anterior (o
+ * desde el inicio) y {@code (y * ancho + x) * 4 + tipo}, con tipo 0 para
+ * cavar, 1 para bandera, 2 para reset (posición 0) y 3 para deshacer
+ * (posición 0) o rehacer (posición 1). Una jugada típica ocupa de 3 a 5
+ * bytes.
+ *
+ * @author agent
+ */
+public final class RegistroJugadas
+{
+    static final int VERSION = 1;
+
+    static final int OPCION_BANDERAS = 1;
+    static final int OPCION_PRIMER_CLIC = 2;
+
+    static final int CAVAR = 0;
+    static final int BANDERA = 1;
+    static final int RESET = 2;
+    static final int HISTORIAL = 3;   // Posición 0 = deshacer, 1 = rehacer
+
+    private final int ancho;
+    private byte[] datos = new byte[256];
+    private int tamano;
+    private int jugadas;
+    private long ultimo;   // Instante de la última jugada
+
+    /**
+     * Empieza la bitácora de una partida recién creada, antes de su primera
+     * jugada.
+     *
+     * @param juego Partida a registrar.
+     * @param inicio Instante de inicio en milisegundos desde 1970.
+     */
+    public RegistroJugadas(Buscaminas juego, long inicio)
+    {
+        ancho = juego.getAncho();
+        ultimo = inicio;
+
+        int opciones = (juego.hayBanderas() ? OPCION_BANDERAS : 0)
+                | (juego.isPrimerClicSeguro() ? OPCION_PRIMER_CLIC : 0);
+
+        escribirByte(VERSION);
+        escribirByte(opciones);
+        escribirVarint(ancho);
+        escribirVarint(juego.getAlto());
+        escribirVarint(juego.getTotalMinas());
+        escribirVarint(juego.getVidas());
+        escribirLong(juego.getSemilla());
+        escribirLong(inicio);
+    }
+
+    /**
+     * Registra un llamado a {@link Buscaminas#cavar(int, int)}.
+     *
+     * @param x Columna de la casilla.
+     * @param y Fila de la casilla.
+     * @param instante Milisegundos desde 1970.
+     */
+    public void cavar(int x, int y, long instante)
+    {
+        agregar(y * ancho + x, CAVAR, instante);
+    }
+
+    /**
+     * Registra un llamado a {@link Buscaminas#marcarBandera(int, int)}.
+     *
+     * @param x Columna de la casilla.
+     * @param y Fila de la casilla.
+     * @param instante Milisegundos desde 1970.
+     */
+    public void marcarBandera(int x, int y, long instante)
+    {
+        agregar(y * ancho + x, BANDERA, instante);
+    }
+
+    /**
+     * Registra un llamado a {@link Buscaminas#reset()}.
+     *
+     * @param instante Milisegundos desde 1970.
+     */
+    public void reset(long instante)
+    {
+        agregar(0, RESET, instante);
+    }
+
+    /**
+     * Registra un llamado a {@link Buscaminas#deshacer()}.
+     *
+     * @param instante Milisegundos desde 1970.
+     */
+    public void deshacer(long instante)
+    {
+        agregar(0, HISTORIAL, instante);
+    }
+
+    /**
+     * Registra un llamado a {@link Buscaminas#rehacer()}.
+     *
+     * @param instante Milisegundos desde 1970.
+     */
+    public void rehacer(long instante)
+    {
+        agregar(1, HISTORIAL, instante);
+    }
+
+    /**
+     * Número de jugadas registradas.
+     *
+     * @return Jugadas desde el inicio de la partida.
+     */
+    public int getJugadas()
+    {
+        return jugadas;
+    }
+
+    /**
+     * Copia de la bitácora en el formato descrito en la clase.
+     *
+     * @return Bytes de la bitácora.
+     */
+    public byte[] toByteArray()
+    {
+        return Arrays.copyOf(datos, tamano);
+    }
+
+    /**
+     * Guarda la bitácora en un archivo. Se escribe en un archivo temporal que
+     * después reemplaza al destino.
+     *
+     * @param archivo Archivo destino.
+     * @throws IOException Si no se puede escribir.
+     */
+    public void guardar(Path archivo) throws IOException
+    {
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        Files.write(temporal, toByteArray());
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Agrega una jugada. Un reloj que retrocede se registra como 0 ms.
+     */
+    private void agregar(int posicion, int tipo, long instante)
+    {
+        escribirVarint(Math.max(0, instante - ultimo));
+        escribirVarint(((long) posicion << 2) | tipo);
+
+        ultimo = Math.max(ultimo, instante);
+        jugadas++;
+    }
+
+    private void escribirByte(int valor)
+    {
+        if (tamano == datos.length)
+            datos = Arrays.copyOf(datos, 2 * datos.length);
+
+        datos[tamano++] = (byte) valor;
+    }
+
+    private void escribirLong(long valor)
+    {
+        for (int desplazamiento = 56; desplazamiento >= 0; desplazamiento -= 8)
+            escribirByte((int) (valor >>> desplazamiento));
+    }
+
+    private void escribirVarint(long valor)
+    {
+        while ((valor & ~0x7FL) != 0)
+        {
+            escribirByte((int) (valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+
+        escribirByte((int) valor);
+    }
+}
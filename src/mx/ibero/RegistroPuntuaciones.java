@@ -0,0 +1,363 @@
+package mx.ibero;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * Historial completo de puntuaciones de una dificultad guardado como
+ * bitácora de solo escritura al final. Cada record nuevo es una línea que se
+ * agrega al archivo, en lugar de reescribir todo el ranking.
+ *
+ * Archivos, con el nombre de la dificultad como prefijo:
+ * <ul>
+ *     <li>{@code .log}: bitácora donde se agregan los records nuevos.</li>
+ *     <li>{@code .log.1}: bitácora que se está compactando.</li>
+ *     <li>{@code .snapshot}: todas las puntuaciones compactadas, ordenadas
+ *     por tiempo.</li>
+ * </ul>
+ *
+ * Cada línea tiene la forma {@code crc secuencia,tiempo,fecha,nombre}, donde
+ * crc es el CRC32 en hexadecimal del resto de la línea. Al cargar se leen la
+ * instantánea y después las bitácoras, ignorando los registros con una
+ * secuencia ya incluida en la instantánea y las líneas dañadas (por ejemplo,
+ * la última si el programa se cerró mientras escribía).
+ *
+ * La compactación corre en un hilo aparte: renombra la bitácora, abre una
+ * nueva para los records que lleguen mientras tanto y une la vieja con la
+ * instantánea en un archivo temporal que reemplaza a la instantánea con un
+ * movimiento atómico. Si el programa se cierra a la mitad, los archivos
+ * siguen siendo válidos y la compactación se repite al volver a cargar.
+ *
+ * @author agent
+ */
+public class RegistroPuntuaciones implements Closeable
+{
+    private static final int REGISTROS_POR_COMPACTACION = 64;
+
+    private static final Comparator<Puntuacion> POR_TIEMPO = Comparator.comparingLong(Puntuacion::getTiempo)
+            .thenComparingLong(Puntuacion::getSecuencia);
+
+    // Un solo hilo compacta los archivos de todas las dificultades
+    private static final ExecutorService COMPACTADOR = Executors.newSingleThreadExecutor(r ->
+    {
+        Thread hilo = new Thread(r, "compactador-puntuaciones");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    private final Path bitacora;
+    private final Path rotada;
+    private final Path instantanea;
+    private final Path temporal;
+    private final Path legado;   // Ranking de versiones anteriores (top 10 en texto)
+
+    private FileChannel canal;
+    private long siguienteSecuencia;
+    private int registrosEnBitacora;
+    private Future<?> compactacion;
+
+    /**
+     * Prepara el registro de una dificultad. No lee nada hasta llamar a
+     * {@link #cargar()}.
+     *
+     * @param directorio Carpeta de los archivos.
+     * @param nombre Nombre de la dificultad, usado como prefijo de los
+     *               archivos.
+     */
+    public RegistroPuntuaciones(Path directorio, String nombre)
+    {
+        bitacora = directorio.resolve(nombre + ".log");
+        rotada = directorio.resolve(nombre + ".log.1");
+        instantanea = directorio.resolve(nombre + ".snapshot");
+        temporal = directorio.resolve(nombre + ".snapshot.tmp");
+        legado = directorio.resolve(nombre + ".txt");
+    }
+
+    /**
+     * Lee la instantánea y las bitácoras y deja el registro listo para
+     * agregar records. Si la bitácora ya es grande, o quedó una compactación
+     * a medias, se compacta en segundo plano.
+     *
+     * @return Todas las puntuaciones, ordenadas por tiempo.
+     * @throws IOException Si no se pueden leer o crear los archivos.
+     */
+    public synchronized List<Puntuacion> cargar() throws IOException
+    {
+        List<Puntuacion> puntuaciones = new ArrayList<>();
+
+        if (!Files.exists(instantanea) && !Files.exists(bitacora) && !Files.exists(rotada) && Files.exists(legado))
+            importarLegado(puntuaciones);
+        else
+            leer(instantanea, puntuaciones, -1);
+
+        long hasta = ultimaSecuencia(puntuaciones);
+        leer(rotada, puntuaciones, hasta);
+        long valido = Math.max(0, leer(bitacora, puntuaciones, hasta));
+
+        registrosEnBitacora = 0;
+        for (Puntuacion p : puntuaciones)
+            if (p.getSecuencia() > hasta)
+                registrosEnBitacora++;
+
+        siguienteSecuencia = ultimaSecuencia(puntuaciones) + 1;
+
+        // Se descarta lo que haya quedado de una escritura incompleta
+        Files.createDirectories(bitacora.getParent());
+        canal = FileChannel.open(bitacora, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        canal.truncate(valido);
+        canal.position(valido);
+
+        if (Files.exists(rotada) || registrosEnBitacora >= REGISTROS_POR_COMPACTACION)
+            compactarEnSegundoPlano();
+
+        puntuaciones.sort(POR_TIEMPO);
+        return puntuaciones;
+    }
+
+    /**
+     * Agrega un record al final de la bitácora y lo fuerza a disco.
+     *
+     * @param nombre Nombre del jugador.
+     * @param fecha Fecha del record.
+     * @param tiempo Duración de la partida en segundos.
+     * @return La puntuación registrada.
+     * @throws IOException Si no se puede escribir la bitácora.
+     */
+    public synchronized Puntuacion agregar(String nombre, LocalDate fecha, long tiempo) throws IOException
+    {
+        // Los saltos de línea romperían el formato del archivo
+        Puntuacion puntuacion = new Puntuacion(siguienteSecuencia++, tiempo, fecha,
+                nombre.replace('\n', ' ').replace('\r', ' '));
+
+        ByteBuffer linea = StandardCharsets.UTF_8.encode(linea(puntuacion));
+        while (linea.hasRemaining())
+            canal.write(linea);
+        canal.force(false);
+
+        if (++registrosEnBitacora >= REGISTROS_POR_COMPACTACION)
+            compactarEnSegundoPlano();
+
+        return puntuacion;
+    }
+
+    /**
+     * Programa una compactación si no hay una en curso.
+     *
+     * @return La compactación en curso o programada.
+     */
+    public synchronized Future<?> compactarEnSegundoPlano()
+    {
+        if (compactacion == null || compactacion.isDone())
+            compactacion = COMPACTADOR.submit(() ->
+            {
+                compactar();
+                return null;
+            });
+
+        return compactacion;
+    }
+
+    /**
+     * Cierra la bitácora. Una compactación en curso termina por su cuenta.
+     *
+     * @throws IOException Si no se puede cerrar el archivo.
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (canal != null)
+            canal.close();
+    }
+
+    /**
+     * Une la instantánea con la bitácora rotada. Solo corre en el hilo
+     * compactador.
+     */
+    private void compactar() throws IOException
+    {
+        synchronized (this)
+        {
+            // Si quedó una bitácora rotada de una compactación interrumpida se
+            // compacta esa primero; la actual espera a la siguiente vuelta.
+            if (!Files.exists(rotada))
+            {
+                canal.close();
+                Files.move(bitacora, rotada);
+                canal = FileChannel.open(bitacora, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                registrosEnBitacora = 0;
+            }
+        }
+
+        List<Puntuacion> puntuaciones = new ArrayList<>();
+        leer(instantanea, puntuaciones, -1);
+        long hasta = ultimaSecuencia(puntuaciones);
+        leer(rotada, puntuaciones, hasta);
+        puntuaciones.sort(POR_TIEMPO);
+
+        escribirInstantanea(puntuaciones);
+        Files.delete(rotada);
+    }
+
+    /**
+     * Escribe la instantánea completa en el archivo temporal y la pone en su
+     * lugar con un movimiento atómico.
+     */
+    private void escribirInstantanea(List<Puntuacion> puntuaciones) throws IOException
+    {
+        StringBuilder texto = new StringBuilder(puntuaciones.size() * 48);
+        for (Puntuacion p : puntuaciones)
+            texto.append(linea(p));
+
+        try (FileChannel salida = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(texto.toString());
+            while (bytes.hasRemaining())
+                salida.write(bytes);
+            salida.force(true);
+        }
+
+        Files.move(temporal, instantanea, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Lee las líneas válidas de un archivo.
+     *
+     * @param archivo Archivo a leer; si no existe no se lee nada.
+     * @param destino Lista donde se agregan las puntuaciones.
+     * @param hasta Las secuencias menores o iguales se ignoran.
+     * @return Bytes hasta el final de la última línea válida, o -1 si el
+     *         archivo no existe.
+     */
+    private long leer(Path archivo, List<Puntuacion> destino, long hasta) throws IOException
+    {
+        if (!Files.exists(archivo))
+            return -1;
+
+        byte[] bytes = Files.readAllBytes(archivo);
+        long valido = 0;
+        int inicio = 0;
+
+        for (int i = 0; i < bytes.length; i++)
+        {
+            if (bytes[i] != '\n')
+                continue;
+
+            Puntuacion p = interpretar(new String(bytes, inicio, i - inicio, StandardCharsets.UTF_8));
+            inicio = i + 1;
+
+            if (p == null)
+                continue;
+
+            valido = inicio;
+
+            if (p.getSecuencia() > hasta)
+                destino.add(p);
+        }
+
+        return valido;
+    }
+
+    /**
+     * Copia el ranking de versiones anteriores ({@code nombre,fecha,tiempo}
+     * por línea) a una instantánea nueva.
+     */
+    private void importarLegado(List<Puntuacion> destino) throws IOException
+    {
+        long secuencia = 0;
+
+        for (String texto : Files.readAllLines(legado, StandardCharsets.UTF_8))
+        {
+            String[] campos = texto.split(",");
+            if (campos.length != 3)
+                continue;
+
+            try
+            {
+                destino.add(new Puntuacion(secuencia, Long.parseLong(campos[2]),
+                        LocalDate.parse(campos[1]), campos[0]));
+                secuencia++;
+            }
+            catch (RuntimeException e)
+            {
+                // Línea que no es un record ("null" o texto dañado)
+            }
+        }
+
+        destino.sort(POR_TIEMPO);
+        escribirInstantanea(destino);
+    }
+
+    /**
+     * Mayor secuencia de una lista.
+     */
+    private static long ultimaSecuencia(List<Puntuacion> puntuaciones)
+    {
+        long ultima = -1;
+        for (Puntuacion p : puntuaciones)
+            ultima = Math.max(ultima, p.getSecuencia());
+
+        return ultima;
+    }
+
+    /**
+     * Convierte una puntuación en una línea con su CRC.
+     */
+    private static String linea(Puntuacion p)
+    {
+        String datos = p.getSecuencia() + "," + p.getTiempo() + "," + p.getFecha() + "," + p.getNombre();
+        return String.format("%08x %s", crc(datos), datos) + "\n";
+    }
+
+    /**
+     * Interpreta una línea del archivo.
+     *
+     * @return La puntuación, o null si la línea está dañada.
+     */
+    private static Puntuacion interpretar(String texto)
+    {
+        if (texto.length() < 10 || texto.charAt(8) != ' ')
+            return null;
+
+        String datos = texto.substring(9);
+
+        try
+        {
+            if (Long.parseLong(texto.substring(0, 8), 16) != crc(datos))
+                return null;
+
+            String[] campos = datos.split(",", 4);
+            return new Puntuacion(Long.parseLong(campos[0]), Long.parseLong(campos[1]),
+                    LocalDate.parse(campos[2]), campos[3]);
+        }
+        catch (RuntimeException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * CRC32 del texto en UTF-8.
+     */
+    private static long crc(String datos)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(datos.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
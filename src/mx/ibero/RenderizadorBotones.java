@@ -0,0 +1,130 @@
+package mx.ibero;
+
+import javafx.scene.Node;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.GridPane;
+import javafx.util.Duration;
+
+/**
+ * Dibuja el tablero con un {@link Casilla} por cada casilla dentro de un
+ * {@link GridPane}. Es la vista original del juego; funciona bien en los
+ * tableros de las dificultades predefinidas.
+ *
+ * @author Hector Jair Hernandez Cortes
+ * @author Josue Mosiah Contreras Rocha
+ * @author agent
+ */
+class RenderizadorBotones implements RenderizadorTablero
+{
+    private GridPane terrenoMinas;
+    private Node[][] casillas;   // Referencias a los botones del tablero, con sus coordenadas (x,y)
+    private Buscaminas juego;
+
+    /**
+     * Crea el renderizador sobre el GridPane definido en el FXML.
+     *
+     * @param terrenoMinas Contenedor de las casillas.
+     */
+    RenderizadorBotones(GridPane terrenoMinas)
+    {
+        this.terrenoMinas = terrenoMinas;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Node getVista()
+    {
+        return terrenoMinas;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void construir(Buscaminas juego, AccionCasilla accion)
+    {
+        this.juego = juego;
+
+        // Primero limpiamos lo que hay dentro
+        casillas = new Node[juego.getAlto()][juego.getAncho()];
+        terrenoMinas.getChildren().clear();
+
+        // Tamaño dado por la imagen en cada casilla
+        terrenoMinas.setPrefHeight(35*juego.getAlto());
+        terrenoMinas.setPrefWidth(35*juego.getAncho());
+
+        /*
+         * Generamos las casillas en función de la configuración que haya en el
+         * objeto "juego" (de tipo Buscaminas).
+         */
+        for (int y = 0; y < juego.getAlto(); y++)
+            for (int x = 0; x < juego.getAncho(); x++)
+            {
+                // Creo una casilla personalizada con las coordenadas y las imágenes
+                Casilla casilla = new Casilla(x, y, " ");
+
+                // Le doy una acción al ser presionado.
+                casilla.setOnMouseClicked(p -> accion.ejecutar(casilla.getX(), casilla.getY(), p.getButton()));
+
+                // Añadir casilla al Grid
+                terrenoMinas.add(casilla, x, y);
+
+                /*
+                 * Cada casilla se mete en un array de tipo Nodo que
+                 * contiene los elementos a los que deseo no perder referencia.
+                 * De esta forma, tengo en una matriz del tamaño del tablero las
+                 * referencias a los objetos Casilla cuando necesite recorrerlas
+                 * en base a su posición (coordenadas x y).
+                 */
+               casillas[y][x] = casilla;
+
+               // Agregar su respectivo tooltip
+               Tooltip tooltip = new Tooltip();
+               tooltip.setText("Bandera = Clic derecho\nCavar = Clic izquierdo");
+               tooltip.setShowDuration(new Duration(5D*1000));
+               tooltip.setShowDelay(new Duration(4D*1000));
+               casilla.setTooltip(tooltip);
+
+               // Si la partida ya estaba empezada se pinta su estado
+               if (juego.estaDestapada(x, y) || juego.tieneBandera(x, y))
+                   actualizarCasilla(x, y);
+            }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void actualizarCasilla(int x, int y)
+    {
+        Casilla cuadro = (Casilla) casillas[y][x];
+        int estado;
+
+        if (juego.estaDestapada(x, y))
+            estado = juego.hayMina(x, y) ? Casilla.MINA : juego.contarMinasAlrededor(x, y);
+        else
+            estado = juego.tieneBandera(x, y) ? Casilla.BANDERA : Casilla.TAPADA;
+
+        // Solo se toca la casilla si su estado cambió
+        if (estado == cuadro.getEstado())
+            return;
+
+        cuadro.setEstado(estado);
+
+        // Los colores los pone estilos.css según las pseudoclases de la casilla
+        if (juego.estaDestapada(x, y))
+        {
+            cuadro.setDisable(true);
+            cuadro.setText(estado > 0 ? Integer.toString(estado) : " ");
+            cuadro.setImagen(estado == Casilla.MINA ? ImagenesCasilla.MINA.escalada(25) : null);
+        }
+        else
+        {
+            cuadro.setDisable(false);
+            cuadro.setText(" ");
+            cuadro.setImagen(estado == Casilla.BANDERA ? ImagenesCasilla.BANDERA.escalada(20) : null);
+        }
+    }
+}
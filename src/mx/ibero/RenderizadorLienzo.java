@@ -0,0 +1,282 @@
+package mx.ibero;
+
+import javafx.geometry.Orientation;
+import javafx.geometry.VPos;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.Tooltip;
+import javafx.scene.image.Image;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+import javafx.util.Duration;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Dibuja el tablero sobre un único {@link Canvas} del tamaño de la ventana.
+ * Solo se pintan las casillas visibles, por lo que el número de nodos de la
+ * escena no depende del tamaño del tablero. Los clics se traducen de píxeles
+ * a coordenadas de casilla.
+ *
+ * Controles: la rueda del ratón desplaza el tablero (con Shift en
+ * horizontal) y con Ctrl cambia el zoom.
+ *
+ * @author agent
+ */
+class RenderizadorLienzo implements RenderizadorTablero
+{
+    private static final double TAMANO_CASILLA = 35;
+    private static final double ZOOM_MINIMO = 8;
+    private static final double ZOOM_MAXIMO = 96;
+    private static final double VISTA_MAXIMA_ANCHO = 1000;
+    private static final double VISTA_MAXIMA_ALTO = 700;
+
+    private static final Color COLOR_TAPADA = Color.web("#f7a926");
+    private static final Color COLOR_DESTAPADA = Color.WHITE;
+    private static final Color COLOR_BORDE = Color.web("#101010");
+    private static final Color COLOR_FONDO = Color.web("#56888d");
+
+    private BorderPane contenedor = new BorderPane();
+    private Pane zonaLienzo = new Pane();
+    private Canvas lienzo = new Canvas();
+    private ScrollBar barraHorizontal = new ScrollBar();
+    private ScrollBar barraVertical = new ScrollBar();
+
+    private Buscaminas juego;
+    private AccionCasilla accion;
+    private Set<Image> cargando = new HashSet<>();   // Imágenes que se repintarán al terminar de cargar
+    private double tamano = TAMANO_CASILLA;   // Lado de una casilla en píxeles
+
+    /**
+     * Crea el lienzo y sus barras de desplazamiento.
+     */
+    RenderizadorLienzo()
+    {
+        barraVertical.setOrientation(Orientation.VERTICAL);
+        zonaLienzo.getChildren().add(lienzo);
+        zonaLienzo.setMinSize(0, 0);
+        contenedor.setCenter(zonaLienzo);
+        contenedor.setBottom(barraHorizontal);
+        contenedor.setRight(barraVertical);
+        contenedor.getStyleClass().add("tablero");
+
+        // El lienzo siempre mide lo mismo que la zona visible
+        lienzo.widthProperty().bind(zonaLienzo.widthProperty());
+        lienzo.heightProperty().bind(zonaLienzo.heightProperty());
+        lienzo.widthProperty().addListener(o -> ajustarBarras());
+        lienzo.heightProperty().addListener(o -> ajustarBarras());
+        barraHorizontal.valueProperty().addListener(o -> pintar());
+        barraVertical.valueProperty().addListener(o -> pintar());
+
+        lienzo.setOnMouseClicked(e ->
+        {
+            int x = (int) ((e.getX() + barraHorizontal.getValue()) / tamano);
+            int y = (int) ((e.getY() + barraVertical.getValue()) / tamano);
+
+            if (juego != null && x >= 0 && y >= 0 && x < juego.getAncho() && y < juego.getAlto())
+                accion.ejecutar(x, y, e.getButton());
+        });
+        lienzo.setOnScroll(this::desplazar);
+
+        Tooltip tooltip = new Tooltip();
+        tooltip.setText("Bandera = Clic derecho\nCavar = Clic izquierdo\nZoom = Ctrl + rueda");
+        tooltip.setShowDuration(new Duration(5D*1000));
+        tooltip.setShowDelay(new Duration(4D*1000));
+        Tooltip.install(lienzo, tooltip);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Node getVista()
+    {
+        return contenedor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void construir(Buscaminas juego, AccionCasilla accion)
+    {
+        this.juego = juego;
+        this.accion = accion;
+
+        zonaLienzo.setPrefSize(Math.min(tamano * juego.getAncho(), VISTA_MAXIMA_ANCHO),
+                Math.min(tamano * juego.getAlto(), VISTA_MAXIMA_ALTO));
+        barraHorizontal.setValue(0);
+        barraVertical.setValue(0);
+
+        ajustarBarras();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void actualizarCasilla(int x, int y)
+    {
+        double px = x * tamano - barraHorizontal.getValue();
+        double py = y * tamano - barraVertical.getValue();
+
+        // Las casillas fuera de la vista se pintarán al desplazarse
+        if (px + tamano < 0 || py + tamano < 0 || px > lienzo.getWidth() || py > lienzo.getHeight())
+            return;
+
+        pintarCasilla(lienzo.getGraphicsContext2D(), x, y, px, py);
+    }
+
+    /**
+     * Atiende la rueda del ratón: desplaza el tablero o, con Ctrl, cambia el
+     * zoom manteniendo fija la casilla que está bajo el cursor.
+     *
+     * @param e Evento de la rueda.
+     */
+    private void desplazar(ScrollEvent e)
+    {
+        if (e.isControlDown())
+        {
+            double nuevo = Math.max(ZOOM_MINIMO, Math.min(ZOOM_MAXIMO, tamano * (e.getDeltaY() > 0 ? 1.25 : 0.8)));
+            double factor = nuevo / tamano;
+            double h = (barraHorizontal.getValue() + e.getX()) * factor - e.getX();
+            double v = (barraVertical.getValue() + e.getY()) * factor - e.getY();
+
+            tamano = nuevo;
+            ajustarBarras();
+            barraHorizontal.setValue(Math.max(0, Math.min(barraHorizontal.getMax(), h)));
+            barraVertical.setValue(Math.max(0, Math.min(barraVertical.getMax(), v)));
+            pintar();
+        }
+        else if (e.isShiftDown())
+            barraHorizontal.setValue(Math.max(0, Math.min(barraHorizontal.getMax(), barraHorizontal.getValue() - e.getDeltaY() - e.getDeltaX())));
+        else
+            barraVertical.setValue(Math.max(0, Math.min(barraVertical.getMax(), barraVertical.getValue() - e.getDeltaY())));
+
+        e.consume();
+    }
+
+    /**
+     * Ajusta el rango de las barras al tamaño del tablero y de la vista.
+     */
+    private void ajustarBarras()
+    {
+        if (juego == null)
+            return;
+
+        double sobranteX = Math.max(0, tamano * juego.getAncho() - lienzo.getWidth());
+        double sobranteY = Math.max(0, tamano * juego.getAlto() - lienzo.getHeight());
+
+        barraHorizontal.setMax(sobranteX);
+        barraHorizontal.setVisibleAmount(lienzo.getWidth());
+        barraHorizontal.setUnitIncrement(tamano);
+        barraHorizontal.setVisible(sobranteX > 0);
+        barraHorizontal.setValue(Math.min(barraHorizontal.getValue(), sobranteX));
+
+        barraVertical.setMax(sobranteY);
+        barraVertical.setVisibleAmount(lienzo.getHeight());
+        barraVertical.setUnitIncrement(tamano);
+        barraVertical.setVisible(sobranteY > 0);
+        barraVertical.setValue(Math.min(barraVertical.getValue(), sobranteY));
+
+        pintar();
+    }
+
+    /**
+     * Pinta todas las casillas visibles.
+     */
+    private void pintar()
+    {
+        GraphicsContext gc = lienzo.getGraphicsContext2D();
+        gc.setFill(COLOR_FONDO);
+        gc.fillRect(0, 0, lienzo.getWidth(), lienzo.getHeight());
+
+        if (juego == null)
+            return;
+
+        double desplazamientoX = barraHorizontal.getValue();
+        double desplazamientoY = barraVertical.getValue();
+
+        int x0 = (int) (desplazamientoX / tamano);
+        int y0 = (int) (desplazamientoY / tamano);
+        int x1 = Math.min(juego.getAncho(), (int) Math.ceil((desplazamientoX + lienzo.getWidth()) / tamano));
+        int y1 = Math.min(juego.getAlto(), (int) Math.ceil((desplazamientoY + lienzo.getHeight()) / tamano));
+
+        for (int y = y0; y < y1; y++)
+            for (int x = x0; x < x1; x++)
+                pintarCasilla(gc, x, y, x * tamano - desplazamientoX, y * tamano - desplazamientoY);
+    }
+
+    /**
+     * Pinta una casilla en la posición de pantalla dada.
+     *
+     * @param gc Contexto gráfico del lienzo.
+     * @param x Columna de la casilla.
+     * @param y Fila de la casilla.
+     * @param px Posición horizontal en píxeles.
+     * @param py Posición vertical en píxeles.
+     */
+    private void pintarCasilla(GraphicsContext gc, int x, int y, double px, double py)
+    {
+        double escala = tamano / TAMANO_CASILLA;
+
+        gc.setFill(COLOR_FONDO);
+        gc.fillRect(px, py, tamano, tamano);
+
+        gc.setFill(juego.estaDestapada(x, y) ? COLOR_DESTAPADA : COLOR_TAPADA);
+        gc.fillRoundRect(px + 1, py + 1, tamano - 2, tamano - 2, 3, 3);
+        gc.setStroke(COLOR_BORDE);
+        gc.setLineWidth(1);
+        gc.strokeRoundRect(px + 1.5, py + 1.5, tamano - 3, tamano - 3, 3, 3);
+
+        if (juego.estaDestapada(x, y))
+        {
+            if (juego.hayMina(x, y))
+                dibujar(gc, ImagenesCasilla.MINA.escalada((int) Math.round(25 * escala)), px, py);
+            else if (juego.hayMinasAlrededor(x, y))
+            {
+                gc.setFill(Color.BLACK);
+                gc.setFont(Font.font(null, FontWeight.BOLD, 14 * escala));
+                gc.setTextAlign(TextAlignment.CENTER);
+                gc.setTextBaseline(VPos.CENTER);
+                gc.fillText(Integer.toString(juego.contarMinasAlrededor(x, y)), px + tamano / 2, py + tamano / 2);
+            }
+        }
+        else if (juego.tieneBandera(x, y))
+            dibujar(gc, ImagenesCasilla.BANDERA.escalada((int) Math.round(20 * escala)), px, py);
+    }
+
+    /**
+     * Dibuja una imagen ya escalada centrada en la casilla, sin volver a
+     * escalarla. Si todavía se está cargando, se repinta el lienzo cuando
+     * termine.
+     *
+     * @param gc Contexto gráfico del lienzo.
+     * @param imagen Imagen del tamaño final.
+     * @param px Posición horizontal de la casilla en píxeles.
+     * @param py Posición vertical de la casilla en píxeles.
+     */
+    private void dibujar(GraphicsContext gc, Image imagen, double px, double py)
+    {
+        if (imagen.getProgress() < 1)
+        {
+            if (cargando.add(imagen))
+                imagen.progressProperty().addListener((observable, anterior, nuevo) ->
+                {
+                    if (nuevo.doubleValue() >= 1)
+                        pintar();
+                });
+            return;
+        }
+
+        gc.drawImage(imagen, px + (tamano - imagen.getWidth()) / 2, py + (tamano - imagen.getHeight()) / 2);
+    }
+}
@@ -0,0 +1,54 @@
+package mx.ibero;
+
+import javafx.scene.Node;
+import javafx.scene.input.MouseButton;
+
+/**
+ * Forma de dibujar el tablero del {@link Buscaminas} en pantalla. El
+ * controlador solo habla con esta interfaz, así que se puede cambiar entre un
+ * botón por casilla y un lienzo virtualizado sobre la misma partida.
+ *
+ * @author agent
+ */
+interface RenderizadorTablero
+{
+    /**
+     * Acción que se ejecuta cuando el jugador hace clic sobre una casilla.
+     */
+    @FunctionalInterface
+    interface AccionCasilla
+    {
+        /**
+         * Procesa el clic sobre una casilla.
+         *
+         * @param x Columna de la casilla.
+         * @param y Fila de la casilla.
+         * @param boton Botón del ratón que se pulsó.
+         */
+        void ejecutar(int x, int y, MouseButton boton);
+    }
+
+    /**
+     * Nodo que se coloca en la escena para mostrar el tablero.
+     *
+     * @return Vista del tablero.
+     */
+    Node getVista();
+
+    /**
+     * Prepara la vista para la partida dada y pinta el estado actual de todas
+     * sus casillas.
+     *
+     * @param juego Partida a dibujar.
+     * @param accion Acción a ejecutar al hacer clic en una casilla.
+     */
+    void construir(Buscaminas juego, AccionCasilla accion);
+
+    /**
+     * Vuelve a pintar una casilla según su estado en la partida.
+     *
+     * @param x Columna de la casilla.
+     * @param y Fila de la casilla.
+     */
+    void actualizarCasilla(int x, int y);
+}
@@ -0,0 +1,339 @@
+package mx.ibero;
+
+import mx.ibero.exception.DemasiadasMinasException;
+import mx.ibero.exception.NumeroDeVidasFueraDeRangoException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reconstruye una partida a partir de su {@link RegistroJugadas}, sin
+ * interfaz. Crea un {@link Buscaminas} con la misma semilla y opciones y le
+ * aplica las jugadas una por una; como el tablero depende solo de la
+ * semilla y del primer clic, el resultado es idéntico a la partida original.
+ *
+ * Para saltar a cualquier jugada se guardan fotogramas (copia de las
+ * casillas, los contadores y el historial para deshacer) cada
+ * {@link #INTERVALO} jugadas mientras se avanza. Ir hacia atrás restaura el
+ * fotograma anterior más cercano y aplica las jugadas restantes, así que
+ * nunca se repiten más de INTERVALO jugadas.
+ *
+ * @author agent
+ */
+public final class Reproductor
+{
+    /** Jugadas entre fotogramas. */
+    public static final int INTERVALO = 1024;
+
+    private final Buscaminas juego;
+    private final long inicio;
+    private final long[] codigos;     // Posición * 4 + tipo de cada jugada
+    private final long[] instantes;   // Milisegundos desde el inicio al terminar cada jugada
+    private final List<Fotograma> fotogramas = new ArrayList<>();
+    private int jugada;               // Jugadas ya aplicadas
+
+    /**
+     * Lee una bitácora y deja la partida en su estado inicial.
+     *
+     * @param datos Bytes de {@link RegistroJugadas#toByteArray()}.
+     * @throws IllegalArgumentException Si la bitácora está dañada o es de
+     *                                  otra versión.
+     */
+    public Reproductor(byte[] datos)
+    {
+        Lector lector = new Lector(datos);
+
+        int version = lector.leerByte();
+        if (version != RegistroJugadas.VERSION)
+            throw new IllegalArgumentException("Versión de bitácora no soportada: " + version);
+
+        int opciones = lector.leerByte();
+        int ancho = lector.leerEntero();
+        int alto = lector.leerEntero();
+        int minas = lector.leerEntero();
+        int vidas = lector.leerEntero();
+        long semilla = lector.leerLong();
+        inicio = lector.leerLong();
+
+        if (ancho < 1 || alto < 1 || (long) ancho * alto > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Tamaño de tablero inválido: " + ancho + " x " + alto);
+
+        try
+        {
+            juego = new Buscaminas(ancho, alto, minas, vidas, semilla,
+                    (opciones & RegistroJugadas.OPCION_PRIMER_CLIC) != 0);
+        }
+        catch (DemasiadasMinasException | NumeroDeVidasFueraDeRangoException e)
+        {
+            throw new IllegalArgumentException("Tablero inválido en la bitácora.", e);
+        }
+
+        juego.setSoportaBanderas((opciones & RegistroJugadas.OPCION_BANDERAS) != 0);
+
+        // Se decodifica todo de una vez para validar la bitácora y poder
+        // saltar a cualquier jugada
+        long casillas = (long) ancho * alto;
+        long[] codigos = new long[Math.max(16, datos.length / 3)];
+        long[] instantes = new long[codigos.length];
+        int total = 0;
+        long instante = 0;
+
+        while (lector.quedan())
+        {
+            instante += lector.leerVarint();
+            long codigo = lector.leerVarint();
+
+            if ((codigo >>> 2) >= casillas || ((codigo & 3) == RegistroJugadas.HISTORIAL && (codigo >>> 2) > 1))
+                throw new IllegalArgumentException("Jugada inválida en la posición " + total + ".");
+
+            if (total == codigos.length)
+            {
+                codigos = Arrays.copyOf(codigos, 2 * total);
+                instantes = Arrays.copyOf(instantes, 2 * total);
+            }
+
+            codigos[total] = codigo;
+            instantes[total] = instante;
+            total++;
+        }
+
+        this.codigos = Arrays.copyOf(codigos, total);
+        this.instantes = Arrays.copyOf(instantes, total);
+
+        fotogramas.add(new Fotograma(juego));
+    }
+
+    /**
+     * Aplica la siguiente jugada.
+     *
+     * @return false si ya no quedan jugadas.
+     */
+    public boolean avanzar()
+    {
+        if (jugada == codigos.length)
+            return false;
+
+        long codigo = codigos[jugada];
+        int posicion = (int) (codigo >>> 2);
+        int x = posicion % juego.getAncho();
+        int y = posicion / juego.getAncho();
+
+        switch ((int) (codigo & 3))
+        {
+            case RegistroJugadas.CAVAR:
+                juego.cavar(x, y);
+                break;
+            case RegistroJugadas.BANDERA:
+                juego.marcarBandera(x, y);
+                break;
+            case RegistroJugadas.RESET:
+                juego.reset();
+                break;
+            default:
+                if (posicion == 0)
+                    juego.deshacer();
+                else
+                    juego.rehacer();
+                break;
+        }
+
+        jugada++;
+
+        if (jugada % INTERVALO == 0 && jugada / INTERVALO == fotogramas.size())
+            fotogramas.add(new Fotograma(juego));
+
+        return true;
+    }
+
+    /**
+     * Deja la partida justo después de la jugada indicada.
+     *
+     * @param destino Número de jugadas aplicadas, entre 0 y
+     *                {@link #totalJugadas()}.
+     */
+    public void irA(int destino)
+    {
+        if (destino < 0 || destino > codigos.length)
+            throw new IndexOutOfBoundsException("Jugada " + destino + " de " + codigos.length);
+
+        // Fotograma más cercano antes del destino; si ya estamos entre él y
+        // el destino basta con avanzar
+        int indice = Math.min(destino / INTERVALO, fotogramas.size() - 1);
+        if (jugada > destino || jugada < indice * INTERVALO)
+        {
+            fotogramas.get(indice).restaurar(juego);
+            jugada = indice * INTERVALO;
+        }
+
+        while (jugada < destino)
+            avanzar();
+    }
+
+    /**
+     * Aplica todas las jugadas que faltan.
+     */
+    public void irAlFinal()
+    {
+        irA(codigos.length);
+    }
+
+    /**
+     * Partida en el estado de la jugada actual. No debe modificarse
+     * directamente.
+     *
+     * @return La partida reconstruida.
+     */
+    public Buscaminas getJuego()
+    {
+        return juego;
+    }
+
+    /**
+     * Número de jugadas ya aplicadas.
+     *
+     * @return Jugada actual, 0 antes de la primera.
+     */
+    public int getJugada()
+    {
+        return jugada;
+    }
+
+    /**
+     * Número de jugadas de la bitácora.
+     *
+     * @return Total de jugadas.
+     */
+    public int totalJugadas()
+    {
+        return codigos.length;
+    }
+
+    /**
+     * Tiempo de la partida hasta la jugada actual.
+     *
+     * @return Milisegundos desde el inicio hasta la última jugada aplicada.
+     */
+    public long getInstante()
+    {
+        return jugada == 0 ? 0 : instantes[jugada - 1];
+    }
+
+    /**
+     * Duración total registrada.
+     *
+     * @return Milisegundos desde el inicio hasta la última jugada.
+     */
+    public long duracion()
+    {
+        return codigos.length == 0 ? 0 : instantes[codigos.length - 1];
+    }
+
+    /**
+     * Inicio de la partida.
+     *
+     * @return Milisegundos desde 1970.
+     */
+    public long getInicio()
+    {
+        return inicio;
+    }
+
+    /**
+     * Copia del estado de la partida en una jugada.
+     */
+    private static final class Fotograma
+    {
+        private final byte[] celdas;
+        private final int vidasRestantes;
+        private final int casillasTapadasRestantes;
+        private final int minasSinBanderaRestantes;
+        private final int banderasPuestas;
+        private final boolean gameOver;
+        private final boolean ganador;
+        private final boolean minasPendientes;
+        private final Historial historial;
+
+        Fotograma(Buscaminas juego)
+        {
+            celdas = juego.celdas().clone();
+            vidasRestantes = juego.getVidasRestantes();
+            casillasTapadasRestantes = juego.getCasillasTapadasRestantes();
+            minasSinBanderaRestantes = juego.getMinasSinBanderaRestantes();
+            banderasPuestas = juego.getBanderasPuestas();
+            gameOver = juego.isGameOver();
+            ganador = juego.isGanador();
+            minasPendientes = !juego.isTableroGenerado();
+            historial = juego.copiarHistorial();
+        }
+
+        void restaurar(Buscaminas juego)
+        {
+            System.arraycopy(celdas, 0, juego.celdas(), 0, celdas.length);
+            juego.restaurar(vidasRestantes, casillasTapadasRestantes, minasSinBanderaRestantes, banderasPuestas,
+                    gameOver, ganador, juego.hayBanderas(), juego.isPrimerClicSeguro(), minasPendientes);
+            juego.restaurarHistorial(historial);
+        }
+    }
+
+    /**
+     * Lee los campos de la bitácora validando que no se acabe a la mitad.
+     */
+    private static final class Lector
+    {
+        private final byte[] datos;
+        private int posicion;
+
+        Lector(byte[] datos)
+        {
+            this.datos = datos;
+        }
+
+        boolean quedan()
+        {
+            return posicion < datos.length;
+        }
+
+        int leerByte()
+        {
+            if (posicion == datos.length)
+                throw new IllegalArgumentException("La bitácora está incompleta.");
+
+            return datos[posicion++] & 0xFF;
+        }
+
+        long leerLong()
+        {
+            long valor = 0;
+            for (int i = 0; i < 8; i++)
+                valor = (valor << 8) | leerByte();
+
+            return valor;
+        }
+
+        long leerVarint()
+        {
+            long valor = 0;
+
+            for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7)
+            {
+                int b = leerByte();
+                valor |= (long) (b & 0x7F) << desplazamiento;
+
+                if ((b & 0x80) == 0)
+                    return valor;
+            }
+
+            throw new IllegalArgumentException("Número demasiado largo en la bitácora.");
+        }
+
+        int leerEntero()
+        {
+            long valor = leerVarint();
+            if (valor > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Número fuera de rango en la bitácora.");
+
+            return (int) valor;
+        }
+    }
+}
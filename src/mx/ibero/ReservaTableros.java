@@ -0,0 +1,277 @@
+package mx.ibero;
+
+import mx.ibero.exception.DemasiadasMinasException;
+import mx.ibero.exception.NumeroDeVidasFueraDeRangoException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reserva de partidas listas para jugar con la dificultad actual. Un hilo en
+ * segundo plano las crea y mantiene la cola llena, así que empezar una
+ * partida nueva casi siempre es solo sacar una de la cola, sin crear el
+ * tablero en el hilo de JavaFX.
+ *
+ * Las partidas se crean con primer clic seguro, igual que en el
+ * controlador, y el hilo de fondo ya les pone las minas y calcula las pistas
+ * (ver {@link Buscaminas#prepararTablero()}). En el primer clic solo se
+ * mueven las minas que hayan caído junto a la casilla elegida y se
+ * actualizan las pistas de alrededor, sin recorrer el tablero.
+ *
+ * Al pedir una dificultad distinta se descartan las partidas guardadas y la
+ * cola se vuelve a llenar con la nueva.
+ *
+ * Entre todas, las partidas guardadas no pasan de {@link #MAXIMO_BYTES}:
+ * con tableros grandes se guardan menos. Siempre se guarda al menos una,
+ * salvo que el tablero ocupe más de una cuarta parte de la memoria máxima de
+ * la máquina virtual.
+ *
+ * @author agent
+ */
+class ReservaTableros
+{
+    /** Bytes que pueden ocupar como máximo las partidas guardadas (4 MiB). */
+    static final long MAXIMO_BYTES = 1 << 22;
+
+    private final BlockingQueue<Buscaminas> cola;
+    private final ExecutorService hilo = Executors.newSingleThreadExecutor(tarea ->
+    {
+        Thread t = new Thread(tarea, "reserva-tableros");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final AtomicBoolean llenando = new AtomicBoolean();
+
+    // Dificultad de las partidas de la cola. Se cambia solo desde el hilo que
+    // llama a tomar(); el hilo de fondo la lee antes de cada partida.
+    private volatile Dificultad actual;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong generadas = new AtomicLong();
+    private final AtomicLong nanosGeneracion = new AtomicLong();
+
+    /**
+     * Crea la reserva. No genera nada hasta la primera llamada a tomar().
+     *
+     * @param capacidad Partidas que se mantienen listas.
+     */
+    ReservaTableros(int capacidad)
+    {
+        cola = new ArrayBlockingQueue<>(capacidad);
+    }
+
+    /**
+     * Devuelve una partida nueva con la configuración dada. Si hay una lista
+     * en la cola se usa esa; si no, se crea en el momento. En los dos casos
+     * la cola se vuelve a llenar en segundo plano.
+     *
+     * @param ancho Ancho del tablero.
+     * @param alto Alto del tablero.
+     * @param minas Total de minas.
+     * @param vidas Total de vidas.
+     * @return Partida sin jugar, con primer clic seguro.
+     * @throws DemasiadasMinasException Si hay más minas que casillas.
+     * @throws NumeroDeVidasFueraDeRangoException Si las vidas no son válidas.
+     */
+    Buscaminas tomar(int ancho, int alto, int minas, int vidas) throws DemasiadasMinasException, NumeroDeVidasFueraDeRangoException
+    {
+        Dificultad pedida = new Dificultad(ancho, alto, minas, vidas);
+        Buscaminas juego = null;
+
+        if (pedida.equals(actual))
+            juego = cola.poll();
+
+        // Puede quedar una partida de la dificultad anterior si el hilo de
+        // fondo la estaba creando durante el cambio
+        while (juego != null && !pedida.corresponde(juego))
+            juego = cola.poll();
+
+        if (juego != null)
+            aciertos.incrementAndGet();
+        else
+        {
+            fallos.incrementAndGet();
+            juego = pedida.crear();
+        }
+
+        // Solo llega aquí si la configuración es válida; una configuración
+        // inválida no descarta las partidas de la actual
+        if (!pedida.equals(actual))
+        {
+            actual = pedida;
+            cola.clear();
+        }
+
+        if (pedida.limite > 0)
+            llenar();
+
+        return juego;
+    }
+
+    /**
+     * Pide al hilo de fondo que llene la cola, si no lo está haciendo ya.
+     */
+    private void llenar()
+    {
+        if (!llenando.compareAndSet(false, true))
+            return;
+
+        hilo.execute(() ->
+        {
+            try
+            {
+                Dificultad dificultad;
+
+                while ((dificultad = actual) != null && faltan(dificultad))
+                {
+                    long inicio = System.nanoTime();
+                    Buscaminas juego = dificultad.crear();
+                    juego.prepararTablero();
+                    nanosGeneracion.addAndGet(System.nanoTime() - inicio);
+                    generadas.incrementAndGet();
+
+                    if (dificultad.equals(actual))
+                        cola.offer(juego);
+                }
+            }
+            catch (DemasiadasMinasException | NumeroDeVidasFueraDeRangoException e)
+            {
+                // No pasa: la configuración ya se probó en tomar()
+            }
+            finally
+            {
+                llenando.set(false);
+            }
+
+            // Si se tomó una partida justo antes de apagar la bandera, nadie
+            // más pidió llenar la cola
+            Dificultad dificultad = actual;
+            if (dificultad != null && faltan(dificultad))
+                llenar();
+        });
+    }
+
+    /**
+     * Indica si caben más partidas de una dificultad en la cola.
+     */
+    private boolean faltan(Dificultad dificultad)
+    {
+        return cola.size() < dificultad.limite && cola.remainingCapacity() > 0;
+    }
+
+    /**
+     * Memoria que ocupará el tablero de una partida, calculada igual que
+     * {@link Buscaminas#bytesTablero()} pero sin crearla.
+     *
+     * @param ancho Ancho del tablero.
+     * @param alto Alto del tablero.
+     * @return Bytes aproximados.
+     */
+    static long bytesPartida(int ancho, int alto)
+    {
+        return (long) ancho * alto + (long) Integer.BYTES * alto;
+    }
+
+    /**
+     * Partidas listas en la cola.
+     *
+     * @return Número de partidas disponibles.
+     */
+    int getDisponibles()
+    {
+        return cola.size();
+    }
+
+    /**
+     * Fracción de llamadas a tomar() que encontraron una partida lista.
+     *
+     * @return Valor entre 0 y 1, o 0 si no se ha tomado ninguna.
+     */
+    double getTasaAciertos()
+    {
+        long total = aciertos.get() + fallos.get();
+        return total == 0 ? 0 : (double) aciertos.get() / total;
+    }
+
+    /**
+     * Tiempo promedio que tarda el hilo de fondo en crear una partida.
+     *
+     * @return Milisegundos por partida, o 0 si no ha creado ninguna.
+     */
+    double getMilisegundosGeneracion()
+    {
+        long n = generadas.get();
+        return n == 0 ? 0 : nanosGeneracion.get() / 1e6 / n;
+    }
+
+    /**
+     * Texto con las estadísticas de la reserva.
+     *
+     * @return Aciertos, fallos, tiempo de generación y partidas listas.
+     */
+    String resumen()
+    {
+        return String.format("Partidas listas: %d%nReserva: %d aciertos, %d fallos (%.0f %%)%nCreación en segundo plano: %.3f ms",
+                getDisponibles(), aciertos.get(), fallos.get(), 100 * getTasaAciertos(), getMilisegundosGeneracion());
+    }
+
+    /**
+     * Configuración de las partidas de la cola.
+     */
+    private static final class Dificultad
+    {
+        final int ancho;
+        final int alto;
+        final int minas;
+        final int vidas;
+        final long limite;   // Partidas que caben en MAXIMO_BYTES
+
+        Dificultad(int ancho, int alto, int minas, int vidas)
+        {
+            this.ancho = ancho;
+            this.alto = alto;
+            this.minas = minas;
+            this.vidas = vidas;
+
+            long bytes = bytesPartida(ancho, alto);
+            if (bytes <= MAXIMO_BYTES)
+                limite = MAXIMO_BYTES / bytes;
+            else
+                limite = bytes <= Runtime.getRuntime().maxMemory() / 4 ? 1 : 0;
+        }
+
+        Buscaminas crear() throws DemasiadasMinasException, NumeroDeVidasFueraDeRangoException
+        {
+            return new Buscaminas(ancho, alto, minas, vidas, ThreadLocalRandom.current().nextLong(), true);
+        }
+
+        boolean corresponde(Buscaminas juego)
+        {
+            return juego.getAncho() == ancho && juego.getAlto() == alto
+                    && juego.getTotalMinas() == minas && juego.getVidas() == vidas;
+        }
+
+        @Override
+        public boolean equals(Object otro)
+        {
+            if (!(otro instanceof Dificultad))
+                return false;
+
+            Dificultad d = (Dificultad) otro;
+            return d.ancho == ancho && d.alto == alto && d.minas == minas && d.vidas == vidas;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return ((ancho * 31 + alto) * 31 + minas) * 31 + vidas;
+        }
+    }
+}
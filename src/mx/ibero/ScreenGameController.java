@@ -3,23 +3,25 @@ package mx.ibero;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.geometry.Insets;
 import javafx.geometry.Pos;
-import javafx.scene.Node;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
-import javafx.util.Duration;
 import mx.ibero.exception.DemasiadasMinasException;
 import mx.ibero.exception.NumeroDeVidasFueraDeRangoException;
 
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controlador de elementos UI del primaryStage.
@@ -37,13 +39,24 @@ public class ScreenGameController implements Initializable
     @FXML private Text totBanderas;
 
     // Atributos de instancia
-    private Node[][] casillas;   // Referencias a los botones del tablero, con sus coordenadas (x,y)
+    private RenderizadorTablero renderizador;   // Vista del tablero (botones o lienzo)
+    private MedidorPulsos medidor;              // Tiempos de CSS y layout de la escena
     private Buscaminas juego;
-    private Image imgBandera = new Image("/resources/bandera.png");
-    private Image imgMina=new Image("/resources/mina1.jpg");
-    private Configuracion guiaUsuario = new Configuracion("src/resources/manual.txt");  // Instrucciones para jugar al buscaminas
-    private Configuracion acercaDe = new Configuracion("src/resources/about.txt");      // Información de desarrolladores
-    private Ranking ranking = new Ranking();   // Para las puntuaciones
+    private RegistroJugadas registro;           // Jugadas de la partida actual
+    private ReservaTableros reserva = new ReservaTableros(2);   // Partidas listas de la dificultad actual
+
+    // Los textos se cargan en segundo plano para mostrar el tablero cuanto
+    // antes y se esperan al abrir su menú. Las imágenes las carga
+    // ImagenesCasilla, también en segundo plano.
+    private CompletableFuture<Configuracion> guiaUsuario =   // Instrucciones para jugar al buscaminas
+            CompletableFuture.supplyAsync(() -> Configuracion.cargar("/resources/manual.txt"));
+    private CompletableFuture<Configuracion> acercaDe =      // Información de desarrolladores
+            CompletableFuture.supplyAsync(() -> Configuracion.cargar("/resources/about.txt"));
+    private Ranking ranking = new Ranking();   // Para las puntuaciones, también carga en segundo plano
+
+    // Bitácora de la última partida terminada, para revisarla con Reproductor.
+    // Va en la carpeta del usuario y no junto al código.
+    private static final Path ULTIMA_PARTIDA = Paths.get(System.getProperty("user.home"), ".buscaminas", "ultima.jugadas");
 
     /**
      * Método que preparará el juego antes de desplegarse en pantalla.
@@ -54,6 +67,9 @@ public class ScreenGameController implements Initializable
     @Override
     public void initialize(URL location, ResourceBundle resources)
     {
+        renderizador = new RenderizadorBotones(terrenoMinas);
+        medidor = new MedidorPulsos(borderPane);
+
         // Iniciar juego por default
         juegoNuevo();
     }
@@ -63,9 +79,8 @@ public class ScreenGameController implements Initializable
      */
     private void juegoNuevo()
     {
-        juego = new Buscaminas();
-        construirTablero();
-        ranking.startTimer();
+        // Misma configuración que new Buscaminas(), pero con primer clic seguro
+        juegoNuevo(8, 8, 10, 1);
     }
 
     /**
@@ -80,7 +95,9 @@ public class ScreenGameController implements Initializable
     {
         try
         {
-            juego = new Buscaminas(ancho, alto, totalMinas, vidas);
+            // Las minas se colocan en el primer clic, que nunca cae en una
+            // mina. La partida sale ya creada de la reserva si hay una lista.
+            juego = reserva.tomar(ancho, alto, totalMinas, vidas);
         }
         catch (DemasiadasMinasException e)
         {
@@ -91,6 +108,7 @@ public class ScreenGameController implements Initializable
             System.out.println("El número de vidas es incorrecto");
         }
 
+        registro = new RegistroJugadas(juego, System.currentTimeMillis());
         construirTablero();
         ranking.startTimer();
     }
@@ -100,57 +118,7 @@ public class ScreenGameController implements Initializable
      */
     private void construirTablero()
     {
-        // Primero limpiamos lo que hay dentro
-        casillas = new Node[juego.getAlto()][juego.getAncho()];
-        terrenoMinas.getChildren().clear();
-
-        // Tamaño dado por la imagen en cada casilla
-        terrenoMinas.setPrefHeight(35*juego.getAlto());
-        terrenoMinas.setPrefWidth(35*juego.getAncho());
-
-        /*
-         * Generamos las casillas en función de la configuración que haya en el
-         * objeto "juego" (de tipo Buscaminas).
-         */
-        for (int y = 0; y < juego.getAlto(); y++)
-            for (int x = 0; x < juego.getAncho(); x++)
-            {
-                // Creo una casilla personalizada con las coordenadas y las imágenes
-                Casilla casilla = new Casilla(x, y, " ");
-
-                // Le doy una acción al ser presionado.
-                casilla.setOnMouseClicked(p ->
-                {
-                    // Si el jugador pulsa el botón izquierdo del ratón, cavo la casilla,
-                    // pero si pulsa el derecho, pongo una bandera.
-
-                    if (p.getButton() == MouseButton.PRIMARY)  // CAVO
-                        juego.cavar(casilla.getX(), casilla.getY());
-                    else if (p.getButton() == MouseButton.SECONDARY)  // BANDERA
-                        juego.marcarBandera(casilla.getX(), casilla.getY());
-
-                    actualizarTablero();
-                });
-
-                // Añadir casilla al Grid
-                terrenoMinas.add(casilla, x, y);
-
-                /*
-                 * Cada casilla se mete en un array de tipo Nodo que
-                 * contiene los elementos a los que deseo no perder referencia.
-                 * De esta forma, tengo en una matriz del tamaño del tablero las
-                 * referencias a los objetos Casilla cuando necesite recorrerlas
-                 * en base a su posición (coordenadas x y).
-                 */
-               casillas[y][x] = casilla;
-
-               // Agregar su respectivo tooltip
-               Tooltip tooltip = new Tooltip();
-               tooltip.setText("Bandera = Clic derecho\nCavar = Clic izquierdo");
-               tooltip.setShowDuration(new Duration(5D*1000));
-               tooltip.setShowDelay(new Duration(4D*1000));
-               casilla.setTooltip(tooltip);
-            }
+        renderizador.construir(juego, this::jugar);
 
         totBanderas.setText("00");
 
@@ -167,53 +135,64 @@ public class ScreenGameController implements Initializable
     }
 
     /**
-     * Este método debe actualizar el estado de cada casilla en el tablero.
+     * Procesa el clic del jugador sobre una casilla.
+     *
+     * @param x Columna de la casilla.
+     * @param y Fila de la casilla.
+     * @param boton Botón del ratón pulsado.
+     */
+    private void jugar(int x, int y, MouseButton boton)
+    {
+        // Si el jugador pulsa el botón izquierdo del ratón, cavo la casilla,
+        // pero si pulsa el derecho, pongo una bandera.
+
+        if (boton == MouseButton.PRIMARY)  // CAVO
+        {
+            juego.cavar(x, y);
+            registro.cavar(x, y, System.currentTimeMillis());
+        }
+        else if (boton == MouseButton.SECONDARY)  // BANDERA
+        {
+            juego.marcarBandera(x, y);
+            registro.marcarBandera(x, y, System.currentTimeMillis());
+        }
+
+        actualizarTablero();
+    }
+
+    /**
+     * Cambia la forma de dibujar el tablero conservando la partida actual.
+     *
+     * @param nuevo Renderizador a usar.
+     */
+    private void cambiarRenderizador(RenderizadorTablero nuevo)
+    {
+        renderizador = nuevo;
+
+        BorderPane.setMargin(nuevo.getVista(), new Insets(5.0));
+        borderPane.setCenter(nuevo.getVista());
+        nuevo.construir(juego, this::jugar);
+        medidor.reiniciar();
+
+        Stage primaryStage  = (Stage) borderPane.getScene().getWindow();
+        primaryStage.sizeToScene();
+        primaryStage.centerOnScreen();
+    }
+
+    /**
+     * Este método debe actualizar el estado de las casillas en el tablero.
      * Se le debe llamar cada vez que se realice alguna opción.
+     *
+     * Solo se vuelven a pintar las casillas que cambiaron en la última
+     * jugada, así que el costo no depende del tamaño del tablero.
      */
     private void actualizarTablero()
     {
-        int banderas = 0;
-        for (int y = 0; y < juego.getAlto(); y++)
-            for (int x = 0; x < juego.getAncho(); x++)
-            {
-                Button cuadro = (Button) casillas[y][x];
-
-                // Si está destapada
-                if (juego.estaDestapada(x, y))
-                {
-                    cuadro.setDisable(true);
-                    // Si hay mina
-                    if (juego.hayMina(x, y))
-                    {
-                        cuadro.getStyleClass().add("casillaMina");
-                        ImageView imgMina2 = new ImageView(imgMina);
-                        imgMina2.setFitWidth(25);
-                        imgMina2.setFitHeight(25);
-                        cuadro.setGraphic(imgMina2);
-                    }
-                    else
-                    {
-                        // Si tiene minas alrededor, le ponemos el número.
-                        if (juego.hayMinasAlrededor(x, y) && juego.contarMinasAlrededor(x, y) > 0)
-                                cuadro.setText(Integer.toString(juego.contarMinasAlrededor(x, y)));
-                                cuadro.getStyleClass().add("casillaNum");
-                    }
-                }
-                else
-                {
-                    if (juego.tieneBandera(x, y))
-                    {
-                        ImageView imgBandera2 = new ImageView(imgBandera);
-                        imgBandera2.setFitWidth(20);
-                        imgBandera2.setFitHeight(30);
+        Cambios cambios = juego.getCambios();
+        for (int n = 0; n < cambios.tamano(); n++)
+            renderizador.actualizarCasilla(cambios.getX(n), cambios.getY(n));
 
-                        cuadro.setGraphic(imgBandera2);
-                        banderas++;
-                    }
-                    else
-                        cuadro.setGraphic(null);
-                }
-            }
+        int banderas = juego.getBanderasPuestas();
 
         // Imprimir total de banderas en el tablero
         if(banderas < 10)
@@ -224,6 +203,8 @@ public class ScreenGameController implements Initializable
         // Verificar si se ha perdido
         if (juego.isGameOver())
         {
+            guardarRegistro();
+
             if (juego.isGanador())
             {
                 alerta("¡Has ganado!");
@@ -257,6 +238,23 @@ public class ScreenGameController implements Initializable
             textoVidas.setText("Vidas restantes: " + Integer.toString(juego.getVidasRestantes()));
     }
 
+    /**
+     * Guarda las jugadas de la partida que acaba de terminar. Si no se puede
+     * escribir el archivo se avisa y el juego sigue normalmente.
+     */
+    private void guardarRegistro()
+    {
+        try
+        {
+            Files.createDirectories(ULTIMA_PARTIDA.getParent());
+            registro.guardar(ULTIMA_PARTIDA);
+        }
+        catch (IOException e)
+        {
+            alerta(Alert.AlertType.WARNING, "No se pudo guardar el registro de la partida en " + ULTIMA_PARTIDA);
+        }
+    }
+
     /**
      * Este método permite crear una partida personalizada.
      */
@@ -370,7 +368,7 @@ public class ScreenGameController implements Initializable
     }
 
     /**
-     * Construye un formulario con cada puntuación del top 10 en la dificultad solicitada.
+     * Construye un formulario con cada puntuación del top en la dificultad solicitada.
      *
      * @param dificultad Dificultad a mostrar.
      * @return Devuelve un {@link GridPane} con las puntuaciones.
@@ -390,27 +388,21 @@ public class ScreenGameController implements Initializable
         form.add(new Text("Tiempo(seg)"), 3,0);
 
         // Contenido
-        String[] tempPuntuacion = ranking.puntuaciones(dificultad);
-        int row = 1;
+        TablaPuntuaciones tabla = ranking.puntuaciones(dificultad);
 
-        for(String line: tempPuntuacion)
+        for(int lugar=0; lugar<tabla.tamano(); lugar++)
         {
-            if(line == null || line.equals("null"))
-                break;
-
-            String[] words = line.split(",");
-
-            Text t1 = new Text(words[0]);
-            Text t2 = new Text(words[1]);
-            Text t3 = new Text(words[2]);
+            Text t1 = new Text(tabla.nombre(lugar));
+            Text t2 = new Text(tabla.fecha(lugar).toString());
+            Text t3 = new Text(Long.toString(tabla.tiempo(lugar)));
             t1.getStyleClass().addAll("text-puntuacion");
             t2.getStyleClass().addAll("text-puntuacion");
             t3.getStyleClass().addAll("text-puntuacion");
 
-            form.add(new Text(""+ row), 0,row);
-            form.add(t1, 1, row);
-            form.add(t2, 2, row);
-            form.add(t3, 3, row++);
+            form.add(new Text(""+ (lugar + 1)), 0, lugar + 1);
+            form.add(t1, 1, lugar + 1);
+            form.add(t2, 2, lugar + 1);
+            form.add(t3, 3, lugar + 1);
         }
 
         return form;
@@ -516,9 +508,42 @@ public class ScreenGameController implements Initializable
     public void menuItemReiniciarPartida()
     {
         juego.reset();
+        registro.reset(System.currentTimeMillis());
         construirTablero();
     }
 
+    /**
+     * EventHandler para el MenuItem de deshacer. Solo se vuelven a pintar las
+     * casillas de la jugada deshecha. Una partida en la que se deshace una
+     * jugada ya no cuenta para el ranking.
+     */
+    @FXML
+    public void menuItemDeshacer()
+    {
+        if (!juego.deshacer())
+            return;
+
+        registro.deshacer(System.currentTimeMillis());
+
+        if (ranking.isTimerActivado())
+            ranking.stopTimer();
+
+        actualizarTablero();
+    }
+
+    /**
+     * EventHandler para el MenuItem de rehacer.
+     */
+    @FXML
+    public void menuItemRehacer()
+    {
+        if (!juego.rehacer())
+            return;
+
+        registro.rehacer(System.currentTimeMillis());
+        actualizarTablero();
+    }
+
     /**
      * EventHandler para el MenuItem de reiniciar partida.
      */
@@ -528,6 +553,34 @@ public class ScreenGameController implements Initializable
         juegoNuevo(juego.getAncho(), juego.getAlto(), juego.getTotalMinas(), juego.getVidas());
     }
 
+    /**
+     * EventHandler para el RadioMenuItem de vista con un botón por casilla.
+     */
+    @FXML
+    public void radioMenuItemBotones()
+    {
+        cambiarRenderizador(new RenderizadorBotones(terrenoMinas));
+    }
+
+    /**
+     * EventHandler para el RadioMenuItem de vista sobre lienzo.
+     */
+    @FXML
+    public void radioMenuItemLienzo()
+    {
+        cambiarRenderizador(new RenderizadorLienzo());
+    }
+
+    /**
+     * Muestra los tiempos de pulso y la memoria usada con la vista actual,
+     * y las estadísticas de la reserva de partidas.
+     */
+    @FXML
+    public void menuItemRendimiento()
+    {
+        alerta(medidor.resumen() + String.format("%n") + reserva.resumen());
+    }
+
     /**
      * EventHandler para el MenuItem de salir.
      */
@@ -543,6 +596,14 @@ public class ScreenGameController implements Initializable
     @FXML
     public void menuItemComoJugar()
     {
+        Configuracion guiaUsuario = this.guiaUsuario.join();
+
+        if (guiaUsuario.hayError())
+        {
+            alerta(Alert.AlertType.ERROR, guiaUsuario.getError());
+            return;
+        }
+
         Dialog<ButtonType> guia = new Dialog<>();
         guia.setTitle("Manual de usuario.");
         guia.setHeaderText("¿Listo para jugar al buscaminas como un experto? ¡Suerte!");
@@ -566,6 +627,14 @@ public class ScreenGameController implements Initializable
     @FXML
     public void menuItemAcercaDe()
     {
+        Configuracion acercaDe = this.acercaDe.join();
+
+        if (acercaDe.hayError())
+        {
+            alerta(Alert.AlertType.ERROR, acercaDe.getError());
+            return;
+        }
+
         Dialog<ButtonType> about = new Dialog<>();
         about.setTitle("Equipo de desarrollo");
 
@@ -0,0 +1,146 @@
+package mx.ibero;
+
+import java.time.LocalDate;
+
+/**
+ * Las mejores N puntuaciones de una dificultad, ordenadas de menor a mayor
+ * tiempo. Se guardan en arreglos paralelos (tiempo, día y nombre) que siempre
+ * se mueven juntos, así que no pueden desincronizarse.
+ *
+ * La posición de un record nuevo se busca con búsqueda binaria, O(log N), y
+ * los records peores se recorren con una sola copia de arreglo, O(N), así
+ * que agregar es O(N) en total. Con los 10 lugares del ranking la copia es de
+ * a lo más 9 elementos por arreglo, menos trabajo que mantener un árbol, y
+ * agregar no crea objetos. Con tiempos iguales queda primero el record más
+ * antiguo.
+ *
+ * @author agent
+ */
+public class TablaPuntuaciones
+{
+    private final long[] tiempos;
+    private final long[] dias;   // Fecha como días desde 1970-01-01
+    private final String[] nombres;
+    private int tamano;
+
+    /**
+     * Crea una tabla vacía.
+     *
+     * @param capacidad Número de puntuaciones que se conservan.
+     */
+    public TablaPuntuaciones(int capacidad)
+    {
+        if (capacidad < 1)
+            throw new IllegalArgumentException("La tabla debe tener al menos un lugar.");
+
+        tiempos = new long[capacidad];
+        dias = new long[capacidad];
+        nombres = new String[capacidad];
+    }
+
+    /**
+     * Indica si un tiempo entraría en la tabla.
+     *
+     * @param tiempo Duración de la partida en segundos.
+     * @return true si hay lugar o si es mejor que el último de la tabla.
+     */
+    public boolean entra(long tiempo)
+    {
+        return tamano < tiempos.length || tiempo < tiempos[tamano - 1];
+    }
+
+    /**
+     * Agrega un record en su lugar. Si la tabla está llena se descarta el
+     * peor.
+     *
+     * @param tiempo Duración de la partida en segundos.
+     * @param fecha Fecha del record.
+     * @param nombre Nombre del jugador.
+     * @return Lugar que ocupa el record (desde 0), o -1 si no entró.
+     */
+    public int agregar(long tiempo, LocalDate fecha, String nombre)
+    {
+        if (!entra(tiempo))
+            return -1;
+
+        // Primer lugar con un tiempo mayor al nuevo
+        int bajo = 0;
+        int alto = tamano;
+        while (bajo < alto)
+        {
+            int medio = (bajo + alto) >>> 1;
+
+            if (tiempos[medio] <= tiempo)
+                bajo = medio + 1;
+            else
+                alto = medio;
+        }
+
+        int recorrer = Math.min(tamano, tiempos.length - 1) - bajo;
+        System.arraycopy(tiempos, bajo, tiempos, bajo + 1, recorrer);
+        System.arraycopy(dias, bajo, dias, bajo + 1, recorrer);
+        System.arraycopy(nombres, bajo, nombres, bajo + 1, recorrer);
+
+        tiempos[bajo] = tiempo;
+        dias[bajo] = fecha.toEpochDay();
+        nombres[bajo] = nombre;
+
+        if (tamano < tiempos.length)
+            tamano++;
+
+        return bajo;
+    }
+
+    /**
+     * Número de puntuaciones en la tabla.
+     *
+     * @return Entre 0 y la capacidad.
+     */
+    public int tamano()
+    {
+        return tamano;
+    }
+
+    /**
+     * Número máximo de puntuaciones.
+     *
+     * @return Capacidad de la tabla.
+     */
+    public int capacidad()
+    {
+        return tiempos.length;
+    }
+
+    /**
+     * Tiempo de un lugar de la tabla.
+     *
+     * @param lugar Índice entre 0 y tamano() - 1.
+     * @return Duración en segundos.
+     */
+    public long tiempo(int lugar)
+    {
+        return tiempos[lugar];
+    }
+
+    /**
+     * Fecha de un lugar de la tabla.
+     *
+     * @param lugar Índice entre 0 y tamano() - 1.
+     * @return Fecha del record.
+     */
+    public LocalDate fecha(int lugar)
+    {
+        return LocalDate.ofEpochDay(dias[lugar]);
+    }
+
+    /**
+     * Nombre del jugador de un lugar de la tabla.
+     *
+     * @param lugar Índice entre 0 y tamano() - 1.
+     * @return Nombre del jugador.
+     */
+    public String nombre(int lugar)
+    {
+        return nombres[lugar];
+    }
+}
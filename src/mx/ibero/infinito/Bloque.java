@@ -0,0 +1,57 @@
+package mx.ibero.infinito;
+
+/**
+ * Bloque de 64 x 64 casillas del tablero infinito. Cada casilla ocupa un
+ * byte con el mismo formato que en {@link mx.ibero.Buscaminas}: pista en los
+ * bits 0-3, mina en el 4, destapada en el 5 y bandera en el 6.
+ *
+ * El bloque (bx, by) contiene las casillas con x entre 64 * bx y
+ * 64 * bx + 63, y lo mismo para y; la casilla (x, y) está en la posición
+ * (y mod 64) * 64 + (x mod 64).
+ *
+ * @author agent
+ */
+final class Bloque
+{
+    static final int BITS_LADO = 6;
+    static final int LADO = 1 << BITS_LADO;
+    static final int MASCARA = LADO - 1;
+    static final int CASILLAS = LADO * LADO;
+
+    static final int PISTA = 0x0F;
+    static final int MINA = 0x10;
+    static final int DESTAPADA = 0x20;
+    static final int BANDERA = 0x40;
+
+    final int bx;
+    final int by;
+    final byte[] celdas = new byte[CASILLAS];
+
+    // Si el jugador cambió algo desde que se generó o se leyó de disco; solo
+    // esos bloques se escriben al salir de memoria
+    boolean modificado;
+
+    /**
+     * Crea un bloque sin minas ni pistas.
+     *
+     * @param bx Columna del bloque.
+     * @param by Fila del bloque.
+     */
+    Bloque(int bx, int by)
+    {
+        this.bx = bx;
+        this.by = by;
+    }
+
+    /**
+     * Clave única de un bloque.
+     *
+     * @param bx Columna del bloque.
+     * @param by Fila del bloque.
+     * @return Las dos coordenadas en un long.
+     */
+    static long clave(int bx, int by)
+    {
+        return ((long) bx << 32) | (by & 0xFFFFFFFFL);
+    }
+}
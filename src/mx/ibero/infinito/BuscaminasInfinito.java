@@ -0,0 +1,461 @@
+package mx.ibero.infinito;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Buscaminas sin bordes. El tablero se divide en bloques de 64 x 64 casillas
+ * que solo se crean cuando el jugador los toca: las minas de cada bloque
+ * salen de un hash de la semilla y de la posición del bloque (ver
+ * {@link Minas}), así que no hace falta generar ni guardar el resto del
+ * tablero. Los bloques en memoria se mantienen en un caché LRU con límite de
+ * memoria y los que tienen jugadas del jugador se guardan en disco al salir
+ * (ver {@link CacheBloques}).
+ *
+ * Las coordenadas pueden ser cualquier int, positivo o negativo. La casilla
+ * (0, 0) y sus vecinas nunca tienen mina; es el lugar para empezar.
+ *
+ * Con densidades bajas una zona vacía puede no terminar nunca, así que cada
+ * llamada a {@link #cavar(int, int)} destapa como máximo
+ * {@link #getLimiteApertura()} casillas. Si la zona sigue,
+ * {@link #hayAperturaPendiente()} es true y {@link #continuarApertura()}
+ * sigue desde donde se quedó. Las casillas pendientes no se pierden entre
+ * jugadas: cada llamada a cavar() sigue también con ellas, así que ninguna
+ * casilla vacía se queda destapada con vecinas tapadas.
+ *
+ * No es segura para usarse desde varios hilos a la vez.
+ *
+ * @author agent
+ */
+public class BuscaminasInfinito implements Closeable
+{
+    /** Memoria por defecto para los bloques: 64 MiB. */
+    public static final long MEMORIA_POR_DEFECTO = 64L << 20;
+
+    /** Casillas que destapa como máximo una llamada a cavar(). */
+    public static final int LIMITE_APERTURA = 1 << 16;
+
+    private final long semilla;
+    private final double densidad;
+    private final int vidas;
+    private final Minas minas;
+    private final CacheBloques cache;
+    private final Path directorio;
+    private final boolean directorioTemporal;   // Se borra al cerrar
+
+    private int limiteApertura = LIMITE_APERTURA;
+    // Cola circular con las casillas vacías ya destapadas cuyas vecinas
+    // faltan por destapar, (x, y) en un long. Puede tener casillas de varias
+    // jugadas. Se recorre a lo ancho para que el frente de la apertura sea
+    // compacto y ocupe pocos bloques a la vez; a lo profundo, el frente se
+    // estira por todo el tablero y los bloques entran y salen de memoria.
+    private long[] pendientes = new long[64];
+    private int cabeza;
+    private int cantidad;
+
+    private int vidasRestantes;
+    private boolean gameOver;
+    private long casillasDestapadas;
+    private long minasCavadas;
+    private long banderasPuestas;
+
+    /**
+     * Crea un tablero infinito con la memoria por defecto. Los bloques que
+     * salen de memoria se guardan en una carpeta temporal que se borra al
+     * cerrar la partida.
+     *
+     * @param semilla Semilla del tablero.
+     * @param densidad Probabilidad de que una casilla tenga mina, entre 0 y 1.
+     * @param vidas Minas que se pueden cavar antes de perder.
+     * @throws IOException Si no se puede crear la carpeta temporal.
+     */
+    public BuscaminasInfinito(long semilla, double densidad, int vidas) throws IOException
+    {
+        this(semilla, densidad, vidas, MEMORIA_POR_DEFECTO, Files.createTempDirectory("buscaminas-infinito"), true);
+    }
+
+    /**
+     * Crea un tablero infinito.
+     *
+     * @param semilla Semilla del tablero.
+     * @param densidad Probabilidad de que una casilla tenga mina, entre 0 y 1.
+     * @param vidas Minas que se pueden cavar antes de perder.
+     * @param memoria Bytes máximos para los bloques en memoria.
+     * @param directorio Carpeta para los bloques que salen de memoria.
+     */
+    public BuscaminasInfinito(long semilla, double densidad, int vidas, long memoria, Path directorio)
+    {
+        this(semilla, densidad, vidas, memoria, directorio, false);
+    }
+
+    private BuscaminasInfinito(long semilla, double densidad, int vidas, long memoria, Path directorio,
+            boolean directorioTemporal)
+    {
+        if (!(densidad >= 0 && densidad < 1))
+            throw new IllegalArgumentException("La densidad debe estar entre 0 y 1: " + densidad);
+        if (vidas < 1)
+            throw new IllegalArgumentException("Se necesita al menos una vida.");
+
+        this.semilla = semilla;
+        this.densidad = densidad;
+        this.vidas = vidas;
+        this.vidasRestantes = vidas;
+        this.directorio = directorio;
+        this.directorioTemporal = directorioTemporal;
+        this.minas = new Minas(semilla, densidad);
+        this.cache = new CacheBloques(minas, memoria, directorio);
+    }
+
+    /**
+     * Cava una casilla. Si tiene mina se pierde una vida; si no tiene minas
+     * alrededor se destapa la zona vacía. Una apertura pendiente de jugadas
+     * anteriores se sigue primero; entre las dos se destapan como máximo
+     * {@link #getLimiteApertura()} casillas.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     */
+    public void cavar(int x, int y)
+    {
+        if (gameOver)
+            return;
+
+        Bloque bloque = cache.obtener(x >> Bloque.BITS_LADO, y >> Bloque.BITS_LADO);
+        int i = local(x, y);
+
+        if ((bloque.celdas[i] & (Bloque.DESTAPADA | Bloque.BANDERA)) != 0)
+            return;
+
+        revelar(bloque, i);
+
+        if ((bloque.celdas[i] & Bloque.MINA) != 0)
+        {
+            minasCavadas++;
+
+            if (--vidasRestantes == 0)
+                gameOver = true;
+        }
+        else if ((bloque.celdas[i] & Bloque.PISTA) == 0)
+            encolar(x, y);
+
+        continuarApertura();
+    }
+
+    /**
+     * Sigue destapando las zonas vacías pendientes, hasta
+     * {@link #getLimiteApertura()} casillas más.
+     *
+     * @return Casillas destapadas en esta llamada.
+     */
+    public int continuarApertura()
+    {
+        int destapadas = 0;
+
+        while (cantidad > 0 && destapadas < limiteApertura)
+        {
+            long actual = pendientes[cabeza];
+            cabeza = (cabeza + 1) & (pendientes.length - 1);
+            cantidad--;
+
+            int cx = (int) (actual >> 32);
+            int cy = (int) actual;
+
+            for (int vy = cy - 1; vy <= cy + 1; vy++)
+                for (int vx = cx - 1; vx <= cx + 1; vx++)
+                {
+                    Bloque bloque = cache.obtener(vx >> Bloque.BITS_LADO, vy >> Bloque.BITS_LADO);
+                    int j = local(vx, vy);
+
+                    if ((bloque.celdas[j] & (Bloque.DESTAPADA | Bloque.BANDERA)) != 0)
+                        continue;
+
+                    // Cada casilla se marca al meterla a la cola, así que
+                    // nunca entra dos veces
+                    revelar(bloque, j);
+                    destapadas++;
+
+                    if ((bloque.celdas[j] & Bloque.PISTA) == 0)
+                        encolar(vx, vy);
+                }
+        }
+
+        return destapadas;
+    }
+
+    /**
+     * Indica si quedó una zona vacía sin terminar de destapar.
+     *
+     * @return true si {@link #continuarApertura()} destaparía más casillas.
+     */
+    public boolean hayAperturaPendiente()
+    {
+        return cantidad > 0;
+    }
+
+    /**
+     * Pone o quita una bandera en una casilla tapada.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     */
+    public void marcarBandera(int x, int y)
+    {
+        if (gameOver)
+            return;
+
+        Bloque bloque = cache.obtener(x >> Bloque.BITS_LADO, y >> Bloque.BITS_LADO);
+        int i = local(x, y);
+
+        if ((bloque.celdas[i] & Bloque.DESTAPADA) != 0)
+            return;
+
+        bloque.celdas[i] ^= Bloque.BANDERA;
+        bloque.modificado = true;
+        banderasPuestas += (bloque.celdas[i] & Bloque.BANDERA) != 0 ? 1 : -1;
+    }
+
+    /**
+     * Indica si una casilla está destapada. No genera bloques.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     * @return true si está destapada.
+     */
+    public boolean estaDestapada(int x, int y)
+    {
+        return (estado(x, y) & Bloque.DESTAPADA) != 0;
+    }
+
+    /**
+     * Indica si una casilla tiene bandera. No genera bloques.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     * @return true si tiene bandera.
+     */
+    public boolean tieneBandera(int x, int y)
+    {
+        return (estado(x, y) & Bloque.BANDERA) != 0;
+    }
+
+    /**
+     * Número de minas alrededor de una casilla, contando la propia.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     * @return Entre 0 y 9.
+     */
+    public int contarMinasAlrededor(int x, int y)
+    {
+        return cache.obtener(x >> Bloque.BITS_LADO, y >> Bloque.BITS_LADO).celdas[local(x, y)] & Bloque.PISTA;
+    }
+
+    /**
+     * Indica si una casilla tiene mina. No genera bloques.
+     *
+     * @param x Columna.
+     * @param y Fila.
+     * @return true si hay mina.
+     */
+    public boolean hayMina(int x, int y)
+    {
+        Bloque bloque = cache.buscar(x >> Bloque.BITS_LADO, y >> Bloque.BITS_LADO);
+
+        if (bloque == null)
+            return minas.hayMina(x, y);
+
+        return (bloque.celdas[local(x, y)] & Bloque.MINA) != 0;
+    }
+
+    /**
+     * Cambia cuántas casillas destapa como máximo una llamada a cavar() o a
+     * continuarApertura().
+     *
+     * @param limiteApertura Casillas por llamada, al menos 1.
+     */
+    public void setLimiteApertura(int limiteApertura)
+    {
+        if (limiteApertura < 1)
+            throw new IllegalArgumentException("El límite debe ser al menos 1.");
+
+        this.limiteApertura = limiteApertura;
+    }
+
+    /**
+     * Casillas que destapa como máximo una llamada a cavar() o a
+     * continuarApertura().
+     *
+     * @return Límite por llamada.
+     */
+    public int getLimiteApertura()
+    {
+        return limiteApertura;
+    }
+
+    /**
+     * Semilla del tablero.
+     *
+     * @return Semilla.
+     */
+    public long getSemilla()
+    {
+        return semilla;
+    }
+
+    /**
+     * Probabilidad de mina de cada casilla.
+     *
+     * @return Densidad entre 0 y 1.
+     */
+    public double getDensidad()
+    {
+        return densidad;
+    }
+
+    /**
+     * Vidas con las que empezó la partida.
+     *
+     * @return Vidas iniciales.
+     */
+    public int getVidas()
+    {
+        return vidas;
+    }
+
+    /**
+     * Vidas que le quedan al jugador.
+     *
+     * @return Vidas restantes.
+     */
+    public int getVidasRestantes()
+    {
+        return vidasRestantes;
+    }
+
+    /**
+     * Indica si se acabaron las vidas. En el modo infinito no se puede ganar.
+     *
+     * @return true si la partida terminó.
+     */
+    public boolean isGameOver()
+    {
+        return gameOver;
+    }
+
+    /**
+     * Casillas destapadas en toda la partida, sin contar minas. Es la
+     * puntuación del modo infinito.
+     *
+     * @return Casillas sin mina destapadas.
+     */
+    public long getCasillasDestapadas()
+    {
+        return casillasDestapadas;
+    }
+
+    /**
+     * Minas cavadas en toda la partida.
+     *
+     * @return Minas cavadas.
+     */
+    public long getMinasCavadas()
+    {
+        return minasCavadas;
+    }
+
+    /**
+     * Banderas puestas en el tablero.
+     *
+     * @return Total de banderas.
+     */
+    public long getBanderasPuestas()
+    {
+        return banderasPuestas;
+    }
+
+    /**
+     * Bloques que están en memoria.
+     *
+     * @return Bloques en el caché.
+     */
+    public int bloquesEnMemoria()
+    {
+        return cache.enMemoria();
+    }
+
+    /**
+     * Bloques guardados en disco.
+     *
+     * @return Bloques que salieron de memoria con jugadas del jugador.
+     */
+    public int bloquesEnDisco()
+    {
+        return cache.enDisco();
+    }
+
+    /**
+     * Memoria estimada de los bloques en memoria.
+     *
+     * @return Bytes.
+     */
+    public long bytesEnMemoria()
+    {
+        return (long) cache.enMemoria() * CacheBloques.BYTES_POR_BLOQUE;
+    }
+
+    /**
+     * Borra los bloques guardados en disco, y la carpeta si era temporal.
+     * La partida no se puede seguir usando después.
+     *
+     * @throws IOException Si no se pueden borrar los archivos.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        cache.borrarDisco();
+
+        if (directorioTemporal)
+            Files.deleteIfExists(directorio);
+    }
+
+    /**
+     * Byte de una casilla sin generar su bloque; una casilla que nunca se ha
+     * tocado está tapada y sin bandera.
+     */
+    private int estado(int x, int y)
+    {
+        Bloque bloque = cache.buscar(x >> Bloque.BITS_LADO, y >> Bloque.BITS_LADO);
+        return bloque == null ? 0 : bloque.celdas[local(x, y)];
+    }
+
+    private void revelar(Bloque bloque, int i)
+    {
+        bloque.celdas[i] |= Bloque.DESTAPADA;
+        bloque.modificado = true;
+
+        if ((bloque.celdas[i] & Bloque.MINA) == 0)
+            casillasDestapadas++;
+    }
+
+    private void encolar(int x, int y)
+    {
+        if (cantidad == pendientes.length)
+        {
+            // Se desenrolla la cola al crecer
+            long[] nuevo = new long[2 * cantidad];
+            System.arraycopy(pendientes, cabeza, nuevo, 0, cantidad - cabeza);
+            System.arraycopy(pendientes, 0, nuevo, cantidad - cabeza, cabeza);
+            pendientes = nuevo;
+            cabeza = 0;
+        }
+
+        pendientes[(cabeza + cantidad++) & (pendientes.length - 1)] = ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private static int local(int x, int y)
+    {
+        return (y & Bloque.MASCARA) * Bloque.LADO + (x & Bloque.MASCARA);
+    }
+}
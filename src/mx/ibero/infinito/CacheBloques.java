@@ -0,0 +1,261 @@
+package mx.ibero.infinito;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bloques del tablero infinito que están en memoria, con un límite de
+ * memoria. Se usa un LinkedHashMap en orden de acceso: cuando se pasa del
+ * límite sale el bloque usado hace más tiempo.
+ *
+ * Un bloque que sale de memoria sin cambios del jugador simplemente se
+ * olvida, porque se puede volver a generar. Si el jugador lo cambió desde la
+ * última vez que se guardó, se escribe en el archivo {@code bloques.dat}
+ * como dos planos de bits (destapadas y banderas, 512 bytes cada uno); las
+ * minas y pistas se vuelven a generar al cargarlo. Cada bloque tiene un lugar
+ * fijo en el archivo, así que guardarlo de nuevo lo sobrescribe y el archivo
+ * se abre una sola vez. La memoria depende del área explorada reciente y no
+ * del tamaño del tablero.
+ *
+ * @author agent
+ */
+final class CacheBloques
+{
+    /** Memoria estimada de un bloque, contando el arreglo y la entrada del mapa. */
+    static final int BYTES_POR_BLOQUE = Bloque.CASILLAS + 128;
+
+    private static final int PLANO = Bloque.CASILLAS / 8;
+    private static final String ARCHIVO = "bloques.dat";
+
+    private final Minas minas;
+    private final int maximo;
+    private final Path directorio;
+    private final Map<Long, Bloque> bloques;
+    private final Map<Long, Long> enDisco = new HashMap<>();   // Clave del bloque -> posición en el archivo
+    private final ByteBuffer planos = ByteBuffer.allocate(2 * PLANO);
+    private FileChannel archivo;
+
+    // Último bloque devuelto, para no buscar en el mapa cuando varias
+    // casillas seguidas caen en el mismo bloque
+    private Bloque ultimo;
+
+    /**
+     * Crea el caché.
+     *
+     * @param minas Generador de minas del tablero.
+     * @param memoria Bytes máximos para los bloques en memoria.
+     * @param directorio Carpeta donde se guardan los bloques que salen de
+     *                   memoria; el archivo se crea al guardar el primero.
+     */
+    CacheBloques(Minas minas, long memoria, Path directorio)
+    {
+        this.minas = minas;
+        this.maximo = (int) Math.max(16, Math.min(Integer.MAX_VALUE, memoria / BYTES_POR_BLOQUE));
+        this.directorio = directorio;
+        this.bloques = new LinkedHashMap<Long, Bloque>(64, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Bloque> mayor)
+            {
+                if (size() <= maximo)
+                    return false;
+
+                sacar(mayor.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Devuelve un bloque para modificarlo, generándolo o leyéndolo de disco
+     * si no está en memoria. La referencia solo es válida hasta la siguiente
+     * llamada, porque puede hacer salir bloques de memoria.
+     *
+     * @param bx Columna del bloque.
+     * @param by Fila del bloque.
+     * @return El bloque.
+     */
+    Bloque obtener(int bx, int by)
+    {
+        Bloque bloque = buscar(bx, by);
+
+        if (bloque == null)
+        {
+            bloque = new Bloque(bx, by);
+            minas.llenar(bloque);
+            agregar(bloque);
+        }
+
+        return bloque;
+    }
+
+    /**
+     * Devuelve un bloque solo si el jugador ya lo modificó o si está en
+     * memoria. Sirve para consultas que no deben generar bloques nuevos.
+     *
+     * @param bx Columna del bloque.
+     * @param by Fila del bloque.
+     * @return El bloque, o null si nunca se ha tocado.
+     */
+    Bloque buscar(int bx, int by)
+    {
+        if (ultimo != null && ultimo.bx == bx && ultimo.by == by)
+            return ultimo;
+
+        Long clave = Bloque.clave(bx, by);
+        Bloque bloque = bloques.get(clave);
+
+        if (bloque == null)
+        {
+            Long posicion = enDisco.get(clave);
+
+            if (posicion != null)
+            {
+                bloque = leer(bx, by, posicion);
+                agregar(bloque);
+            }
+        }
+
+        if (bloque != null)
+            ultimo = bloque;
+
+        return bloque;
+    }
+
+    /**
+     * Número de bloques en memoria.
+     *
+     * @return Bloques en memoria.
+     */
+    int enMemoria()
+    {
+        return bloques.size();
+    }
+
+    /**
+     * Número de bloques guardados en disco.
+     *
+     * @return Bloques en disco, incluidos los que también están en memoria.
+     */
+    int enDisco()
+    {
+        return enDisco.size();
+    }
+
+    /**
+     * Cierra y borra el archivo de bloques guardados.
+     *
+     * @throws IOException Si no se puede borrar el archivo.
+     */
+    void borrarDisco() throws IOException
+    {
+        if (archivo != null)
+        {
+            archivo.close();
+            archivo = null;
+        }
+
+        Files.deleteIfExists(directorio.resolve(ARCHIVO));
+        enDisco.clear();
+    }
+
+    private void agregar(Bloque bloque)
+    {
+        bloques.put(Bloque.clave(bloque.bx, bloque.by), bloque);
+        ultimo = bloque;
+    }
+
+    /**
+     * Guarda en disco un bloque que sale de memoria, si el jugador lo
+     * modificó desde la última vez que se guardó.
+     */
+    private void sacar(Bloque bloque)
+    {
+        if (bloque == ultimo)
+            ultimo = null;
+
+        if (!bloque.modificado)
+            return;
+
+        byte[] bytes = planos.array();
+        Arrays.fill(bytes, (byte) 0);
+
+        for (int i = 0; i < Bloque.CASILLAS; i++)
+        {
+            if ((bloque.celdas[i] & Bloque.DESTAPADA) != 0)
+                bytes[i >> 3] |= 1 << (i & 7);
+            if ((bloque.celdas[i] & Bloque.BANDERA) != 0)
+                bytes[PLANO + (i >> 3)] |= 1 << (i & 7);
+        }
+
+        Long clave = Bloque.clave(bloque.bx, bloque.by);
+
+        try
+        {
+            if (archivo == null)
+            {
+                Files.createDirectories(directorio);
+                archivo = FileChannel.open(directorio.resolve(ARCHIVO), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            }
+
+            Long posicion = enDisco.get(clave);
+            if (posicion == null)
+                posicion = (long) enDisco.size() * bytes.length;
+
+            planos.clear();
+            while (planos.hasRemaining())
+                archivo.write(planos, posicion + planos.position());
+
+            enDisco.put(clave, posicion);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("No se pudo guardar el bloque " + bloque.bx + ", " + bloque.by, e);
+        }
+    }
+
+    /**
+     * Genera un bloque y le pone las casillas destapadas y banderas
+     * guardadas en disco.
+     */
+    private Bloque leer(int bx, int by, long posicion)
+    {
+        try
+        {
+            planos.clear();
+            while (planos.hasRemaining())
+                if (archivo.read(planos, posicion + planos.position()) < 0)
+                    throw new IOException("Bloque incompleto: " + bx + ", " + by);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("No se pudo leer el bloque " + bx + ", " + by, e);
+        }
+
+        Bloque bloque = new Bloque(bx, by);
+        minas.llenar(bloque);
+
+        byte[] bytes = planos.array();
+        for (int i = 0; i < Bloque.CASILLAS; i++)
+        {
+            if ((bytes[i >> 3] & (1 << (i & 7))) != 0)
+                bloque.celdas[i] |= Bloque.DESTAPADA;
+            if ((bytes[PLANO + (i >> 3)] & (1 << (i & 7))) != 0)
+                bloque.celdas[i] |= Bloque.BANDERA;
+        }
+
+        // Es igual a lo guardado; solo se vuelve a escribir si cambia
+        bloque.modificado = false;
+        return bloque;
+    }
+}
@@ -0,0 +1,139 @@
+package mx.ibero.infinito;
+
+/**
+ * Decide dónde hay minas en el tablero infinito sin guardar nada. Cada bloque
+ * tiene una semilla derivada de (semilla, bx, by) y cada casilla del bloque
+ * tiene mina si el hash de esa semilla y su posición cae bajo un umbral. Así
+ * cualquier casilla se puede consultar en tiempo constante, y dos bloques
+ * vecinos siempre coinciden en sus bordes sin necesidad de generar el otro.
+ *
+ * La casilla (0, 0) y sus ocho vecinas nunca tienen mina, para que la partida
+ * pueda empezar ahí sin perder.
+ *
+ * @author agent
+ */
+final class Minas
+{
+    private static final long DORADO = 0x9E3779B97F4A7C15L;
+
+    private final long semilla;
+    private final long umbral;   // Probabilidad de mina en 53 bits
+
+    /**
+     * Crea el generador.
+     *
+     * @param semilla Semilla del tablero.
+     * @param densidad Probabilidad de que una casilla tenga mina, entre 0 y 1.
+     */
+    Minas(long semilla, double densidad)
+    {
+        this.semilla = semilla;
+        this.umbral = (long) (densidad * (1L << 53));
+    }
+
+    /**
+     * Semilla de un bloque.
+     *
+     * @param bx Columna del bloque.
+     * @param by Fila del bloque.
+     * @return Semilla para {@link #hayMina(long, int, int, int)}.
+     */
+    long semillaBloque(int bx, int by)
+    {
+        return mezclar(semilla ^ mezclar(Bloque.clave(bx, by) + DORADO));
+    }
+
+    /**
+     * Indica si una casilla tiene mina.
+     *
+     * @param x Columna de la casilla en el tablero.
+     * @param y Fila de la casilla en el tablero.
+     * @return true si hay mina.
+     */
+    boolean hayMina(int x, int y)
+    {
+        int bx = x >> Bloque.BITS_LADO;
+        int by = y >> Bloque.BITS_LADO;
+
+        return hayMina(semillaBloque(bx, by), x, y, (y & Bloque.MASCARA) * Bloque.LADO + (x & Bloque.MASCARA));
+    }
+
+    /**
+     * Indica si una casilla tiene mina, con la semilla de su bloque ya
+     * calculada.
+     *
+     * @param semillaBloque Semilla del bloque de la casilla.
+     * @param x Columna de la casilla en el tablero.
+     * @param y Fila de la casilla en el tablero.
+     * @param local Posición de la casilla dentro del bloque.
+     * @return true si hay mina.
+     */
+    boolean hayMina(long semillaBloque, int x, int y, int local)
+    {
+        if (x >= -1 && x <= 1 && y >= -1 && y <= 1)
+            return false;
+
+        return (mezclar(semillaBloque + (local + 1) * DORADO) >>> 11) < umbral;
+    }
+
+    /**
+     * Pone las minas y las pistas de un bloque recién creado. Las minas de los
+     * bordes de los bloques vecinos se calculan aquí mismo, sin generarlos.
+     *
+     * @param bloque Bloque vacío.
+     */
+    void llenar(Bloque bloque)
+    {
+        final int lado = Bloque.LADO + 2;
+        boolean[] minas = new boolean[lado * lado];   // El bloque con un marco de una casilla
+        long[] semillas = new long[9];
+
+        for (int dy = -1; dy <= 1; dy++)
+            for (int dx = -1; dx <= 1; dx++)
+                semillas[(dy + 1) * 3 + dx + 1] = semillaBloque(bloque.bx + dx, bloque.by + dy);
+
+        int x0 = bloque.bx << Bloque.BITS_LADO;
+        int y0 = bloque.by << Bloque.BITS_LADO;
+
+        for (int j = 0; j < lado; j++)
+        {
+            int y = y0 + j - 1;
+            int fila = j == 0 ? 0 : j == lado - 1 ? 2 : 1;
+
+            for (int i = 0; i < lado; i++)
+            {
+                int x = x0 + i - 1;
+                int columna = i == 0 ? 0 : i == lado - 1 ? 2 : 1;
+
+                minas[j * lado + i] = hayMina(semillas[fila * 3 + columna], x, y,
+                        (y & Bloque.MASCARA) * Bloque.LADO + (x & Bloque.MASCARA));
+            }
+        }
+
+        byte[] celdas = bloque.celdas;
+        for (int j = 1; j < lado - 1; j++)
+            for (int i = 1; i < lado - 1; i++)
+            {
+                int pista = 0;
+                for (int k = j - 1; k <= j + 1; k++)
+                    for (int l = i - 1; l <= i + 1; l++)
+                        if (minas[k * lado + l])
+                            pista++;
+
+                int c = (j - 1) * Bloque.LADO + i - 1;
+                celdas[c] = (byte) ((celdas[c] & ~(Bloque.PISTA | Bloque.MINA))
+                        | pista | (minas[j * lado + i] ? Bloque.MINA : 0));
+            }
+    }
+
+    /**
+     * Mezclador de SplitMix64: cambia en promedio la mitad de los bits de la
+     * salida por cada bit de la entrada.
+     */
+    private static long mezclar(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
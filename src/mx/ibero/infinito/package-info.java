@@ -0,0 +1,7 @@
+/**
+ * Este paquete contiene el modo infinito: un tablero sin bordes dividido en
+ * bloques que se generan solo cuando el jugador llega a ellos.
+ *
+ * @version 1.0
+ */
+package mx.ibero.infinito;
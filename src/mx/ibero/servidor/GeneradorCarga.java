@@ -0,0 +1,263 @@
+package mx.ibero.servidor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generador de carga para {@link ServidorJuego}. Simula muchos clientes,
+ * cada uno con su propia conexión y su propio hilo, que juegan partidas de
+ * 16 x 16 con 40 minas: cavan casillas tapadas al azar y de vez en cuando
+ * ponen una bandera, y empiezan otra partida cuando la suya termina. Cada
+ * cliente espera la respuesta antes de mandar la siguiente jugada.
+ *
+ * Al final muestra las jugadas por segundo y la latencia de ida y vuelta
+ * (mediana, p99, p99.9 y máxima).
+ *
+ * Uso: {@code java mx.ibero.servidor.GeneradorCarga [clientes] [jugadas por
+ * cliente] [host puerto]}. Sin host se abre un servidor en el mismo proceso.
+ * Cada cliente usa un descriptor de archivo, y otro más del lado del
+ * servidor si está en el mismo proceso, así que para decenas de miles de
+ * clientes hay que subir el límite del sistema (ulimit -n).
+ *
+ * @author agent
+ */
+public class GeneradorCarga
+{
+    private static final int ANCHO = 16;
+    private static final int ALTO = 16;
+    private static final int MINAS = 40;
+    private static final int VIDAS = 3;
+
+    public static void main(String[] args) throws Exception
+    {
+        int clientes = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int jugadas = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        ServidorJuego local = null;
+        InetAddress host;
+        int puerto;
+
+        if (args.length > 3)
+        {
+            host = InetAddress.getByName(args[2]);
+            puerto = Integer.parseInt(args[3]);
+        }
+        else
+        {
+            local = new ServidorJuego(0);
+            host = InetAddress.getLoopbackAddress();
+            puerto = local.getPuerto();
+        }
+
+        long[][] latencias = new long[clientes][];
+        AtomicInteger fallidos = new AtomicInteger();
+        CountDownLatch conectados = new CountDownLatch(clientes);
+        CountDownLatch inicio = new CountDownLatch(1);
+        CountDownLatch terminados = new CountDownLatch(clientes);
+        ExecutorService hilos = ServidorJuego.hiloPorTarea();
+
+        System.out.printf("Conectando %d clientes...%n", clientes);
+
+        for (int i = 0; i < clientes; i++)
+        {
+            final int cliente = i;
+            hilos.execute(() ->
+            {
+                try
+                {
+                    latencias[cliente] = jugar(host, puerto, jugadas, cliente, conectados, inicio);
+                }
+                catch (IOException | InterruptedException e)
+                {
+                    fallidos.incrementAndGet();
+                }
+                finally
+                {
+                    terminados.countDown();
+                }
+            });
+        }
+
+        conectados.await();
+        long comienzo = System.nanoTime();
+        inicio.countDown();
+        terminados.await();
+        long tiempo = System.nanoTime() - comienzo;
+
+        hilos.shutdown();
+        if (local != null)
+            local.close();
+
+        int total = 0;
+        for (long[] l : latencias)
+            if (l != null)
+                total += l.length;
+
+        long[] todas = new long[total];
+        int n = 0;
+        for (long[] l : latencias)
+        {
+            if (l != null)
+            {
+                System.arraycopy(l, 0, todas, n, l.length);
+                n += l.length;
+            }
+        }
+        Arrays.sort(todas);
+
+        System.out.printf("Clientes: %d (%d fallaron)%n", clientes, fallidos.get());
+        System.out.printf("Jugadas: %d en %.2f s, %.0f jugadas/s%n", total, tiempo / 1e9, total / (tiempo / 1e9));
+
+        if (total > 0)
+        {
+            System.out.printf("Latencia: p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, máxima %.3f ms%n",
+                    percentil(todas, 0.50), percentil(todas, 0.99), percentil(todas, 0.999), todas[total - 1] / 1e6);
+        }
+    }
+
+    /**
+     * Percentil de latencias ordenadas, en milisegundos.
+     */
+    private static double percentil(long[] ordenadas, double p)
+    {
+        int i = (int) Math.min(ordenadas.length - 1, (long) Math.ceil(p * ordenadas.length) - 1);
+        return ordenadas[Math.max(0, i)] / 1e6;
+    }
+
+    /**
+     * Juega un cliente: se conecta, espera la señal de inicio y hace sus
+     * jugadas.
+     *
+     * @return Latencia de cada jugada en nanosegundos.
+     */
+    private static long[] jugar(InetAddress host, int puerto, int jugadas, int cliente,
+            CountDownLatch conectados, CountDownLatch inicio) throws IOException, InterruptedException
+    {
+        boolean listo = false;
+
+        try (Socket socket = new Socket(host, puerto))
+        {
+            socket.setTcpNoDelay(true);
+
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            Random azar = new Random(cliente);
+            byte[] tablero = new byte[ANCHO * ALTO];
+            long[] latencias = new long[jugadas];
+
+            nueva(entrada, salida, azar, tablero);
+
+            listo = true;
+            conectados.countDown();
+            inicio.await();
+
+            for (int j = 0; j < jugadas; j++)
+            {
+                int comando = azar.nextInt(10) == 0 ? Protocolo.BANDERA : Protocolo.CAVAR;
+                int posicion = elegirCasilla(tablero, azar, comando == Protocolo.BANDERA);
+
+                long antes = System.nanoTime();
+
+                salida.writeByte(comando);
+                Protocolo.escribirVarint(salida, posicion % ANCHO);
+                Protocolo.escribirVarint(salida, posicion / ANCHO);
+                salida.flush();
+                int estado = leerRespuesta(entrada, tablero);
+
+                latencias[j] = System.nanoTime() - antes;
+
+                if (estado == Protocolo.ERROR)
+                    throw new IOException("El servidor respondió con un error.");
+                if ((estado & Protocolo.TERMINADO) != 0)
+                    nueva(entrada, salida, azar, tablero);
+            }
+
+            return latencias;
+        }
+        finally
+        {
+            // Un cliente que no pudo conectarse no debe detener a los demás
+            if (!listo)
+                conectados.countDown();
+        }
+    }
+
+    /**
+     * Empieza una partida nueva en el servidor y limpia el tablero local.
+     */
+    private static void nueva(DataInputStream entrada, DataOutputStream salida, Random azar, byte[] tablero) throws IOException
+    {
+        salida.writeByte(Protocolo.NUEVA);
+        Protocolo.escribirVarint(salida, ANCHO);
+        Protocolo.escribirVarint(salida, ALTO);
+        Protocolo.escribirVarint(salida, MINAS);
+        Protocolo.escribirVarint(salida, VIDAS);
+        salida.writeByte(Protocolo.OPCION_BANDERAS | Protocolo.OPCION_PRIMER_CLIC);
+        salida.writeLong(azar.nextLong());
+        salida.flush();
+
+        Arrays.fill(tablero, (byte) Protocolo.TAPADA);
+
+        if (leerRespuesta(entrada, tablero) == Protocolo.ERROR)
+            throw new IOException("El servidor no pudo crear la partida.");
+    }
+
+    /**
+     * Elige una casilla al azar que aún esté tapada. Para cavar se evitan
+     * las casillas con bandera; para la bandera también sirven, y entonces
+     * se quita.
+     */
+    private static int elegirCasilla(byte[] tablero, Random azar, boolean bandera)
+    {
+        int inicio = azar.nextInt(tablero.length);
+
+        for (int i = 0; i < tablero.length; i++)
+        {
+            int posicion = (inicio + i) % tablero.length;
+
+            if (tablero[posicion] == Protocolo.TAPADA || (bandera && tablero[posicion] == Protocolo.BANDERA_PUESTA))
+                return posicion;
+        }
+
+        return inicio;
+    }
+
+    /**
+     * Lee una respuesta y aplica al tablero local las casillas que cambiaron.
+     *
+     * @return El byte de estado.
+     */
+    private static int leerRespuesta(DataInputStream entrada, byte[] tablero) throws IOException
+    {
+        int estado = entrada.readUnsignedByte();
+
+        if (estado == Protocolo.ERROR)
+        {
+            Protocolo.leerVarint(entrada);
+            return estado;
+        }
+
+        Protocolo.leerVarint(entrada);     // Vidas restantes
+        Protocolo.leerVarint(entrada);     // Casillas tapadas
+        Protocolo.leerVarint(entrada);     // Banderas
+
+        int cambios = Protocolo.leerVarint(entrada);
+        for (int i = 0; i < cambios; i++)
+        {
+            int posicion = Protocolo.leerVarint(entrada);
+            tablero[posicion] = entrada.readByte();
+        }
+
+        return estado;
+    }
+}
@@ -0,0 +1,179 @@
+package mx.ibero.servidor;
+
+import mx.ibero.Buscaminas;
+import mx.ibero.Cambios;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Protocolo binario entre el servidor y sus clientes. Los enteros marcados
+ * como varint usan 7 bits por byte; el bit más alto indica que sigue otro
+ * byte.
+ *
+ * Comandos del cliente (un byte con el comando y sus datos):
+ * <pre>
+ * NUEVA    varint ancho, alto, minas, vidas; byte opciones (1 = banderas,
+ *          2 = primer clic seguro); long semilla (8 bytes)
+ * CAVAR    varint x, y
+ * BANDERA  varint x, y
+ * RESET    sin datos
+ * </pre>
+ * A cada comando el servidor responde, en orden:
+ * <pre>
+ * byte     Estado: 1 = juego terminado, 2 = ganador, 128 = error
+ * varint   Si hubo error: código de error, y nada más
+ * varint   Vidas restantes
+ * varint   Casillas sin mina aún tapadas
+ * varint   Banderas puestas
+ * varint   Número de casillas que cambiaron
+ * ...      Por cada una: varint posición (y * ancho + x), byte valor
+ * </pre>
+ * El valor de una casilla es su número (0 a 8) si está destapada,
+ * {@link #MINA} si es una mina destapada, {@link #BANDERA_PUESTA} o
+ * {@link #TAPADA}.
+ * Después de NUEVA y RESET no se envían casillas: todo el tablero queda
+ * tapado.
+ *
+ * @author agent
+ */
+public final class Protocolo
+{
+    public static final int NUEVA = 1;
+    public static final int CAVAR = 2;
+    public static final int BANDERA = 3;
+    public static final int RESET = 4;
+
+    public static final int OPCION_BANDERAS = 1;
+    public static final int OPCION_PRIMER_CLIC = 2;
+
+    public static final int TERMINADO = 1;
+    public static final int GANADOR = 2;
+    public static final int ERROR = 128;
+
+    /** No se ha creado una partida con NUEVA. */
+    public static final int ERROR_SIN_PARTIDA = 1;
+    /** Coordenadas fuera del tablero. */
+    public static final int ERROR_FUERA_DEL_TABLERO = 2;
+    /** Tamaño, minas o vidas inválidos. */
+    public static final int ERROR_CONFIGURACION = 3;
+    /** Comando desconocido; el servidor cierra la conexión. */
+    public static final int ERROR_COMANDO = 4;
+
+    public static final int MINA = 9;
+    public static final int BANDERA_PUESTA = 10;
+    public static final int TAPADA = 11;
+
+    /** Casillas máximas de una partida del servidor. */
+    public static final int MAXIMO_CASILLAS = 1 << 20;
+
+    private Protocolo()
+    {
+    }
+
+    /**
+     * Escribe la respuesta a una jugada: el estado de la partida y las
+     * casillas de {@link Buscaminas#getCambios()}.
+     *
+     * @param salida Flujo de salida.
+     * @param juego Partida de la sesión.
+     * @throws IOException Si no se puede escribir.
+     */
+    public static void escribirEstado(DataOutput salida, Buscaminas juego) throws IOException
+    {
+        salida.writeByte((juego.isGameOver() ? TERMINADO : 0) | (juego.isGanador() ? GANADOR : 0));
+        escribirVarint(salida, juego.getVidasRestantes());
+        escribirVarint(salida, juego.getCasillasTapadasRestantes());
+        escribirVarint(salida, juego.getBanderasPuestas());
+
+        Cambios cambios = juego.getCambios();
+        escribirVarint(salida, cambios.tamano());
+
+        for (int n = 0; n < cambios.tamano(); n++)
+        {
+            int x = cambios.getX(n);
+            int y = cambios.getY(n);
+
+            escribirVarint(salida, cambios.getPosicion(n));
+            salida.writeByte(valor(juego, x, y));
+        }
+    }
+
+    /**
+     * Escribe una respuesta de error.
+     *
+     * @param salida Flujo de salida.
+     * @param codigo Uno de los códigos ERROR_*.
+     * @throws IOException Si no se puede escribir.
+     */
+    public static void escribirError(DataOutput salida, int codigo) throws IOException
+    {
+        salida.writeByte(ERROR);
+        escribirVarint(salida, codigo);
+    }
+
+    /**
+     * Valor de una casilla tal como lo ve el jugador.
+     *
+     * @param juego Partida.
+     * @param x Columna.
+     * @param y Fila.
+     * @return Número, MINA, BANDERA_PUESTA o TAPADA.
+     */
+    public static int valor(Buscaminas juego, int x, int y)
+    {
+        if (juego.estaDestapada(x, y))
+            return juego.hayMina(x, y) ? MINA : juego.contarMinasAlrededor(x, y);
+
+        return juego.tieneBandera(x, y) ? BANDERA_PUESTA : TAPADA;
+    }
+
+    /**
+     * Escribe un entero no negativo en formato varint.
+     *
+     * @param salida Flujo de salida.
+     * @param valor Entero a escribir.
+     * @throws IOException Si no se puede escribir.
+     */
+    public static void escribirVarint(DataOutput salida, int valor) throws IOException
+    {
+        while ((valor & ~0x7F) != 0)
+        {
+            salida.writeByte((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+
+        salida.writeByte(valor);
+    }
+
+    /**
+     * Lee un entero no negativo en formato varint.
+     *
+     * @param entrada Flujo de entrada.
+     * @return Entero leído, entre 0 y Integer.MAX_VALUE.
+     * @throws IOException Si el flujo se acaba, el número tiene más de 5
+     *                     bytes o no cabe en un int positivo.
+     */
+    public static int leerVarint(DataInput entrada) throws IOException
+    {
+        int valor = 0;
+
+        for (int desplazamiento = 0; desplazamiento < 35; desplazamiento += 7)
+        {
+            int b = entrada.readUnsignedByte();
+
+            // El quinto byte solo aporta los bits 28 a 30; uno más sería el
+            // signo y el número llegaría negativo
+            if (desplazamiento == 28 && b > 0x07)
+                break;
+
+            valor |= (b & 0x7F) << desplazamiento;
+
+            if ((b & 0x80) == 0)
+                return valor;
+        }
+
+        throw new IOException("Número demasiado largo en el protocolo.");
+    }
+}
@@ -0,0 +1,197 @@
+package mx.ibero.servidor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Servidor que hospeda muchas partidas a la vez. Escucha en la interfaz
+ * local y a cada conexión le da su propio hilo y su propia partida; los
+ * comandos y respuestas siguen el {@link Protocolo}.
+ *
+ * Cada sesión usa E/S bloqueante en un hilo virtual si la máquina virtual
+ * los tiene (Java 21 o posterior). En versiones anteriores se usan hilos
+ * normales con una pila pequeña, que alcanzan para algunos miles de
+ * conexiones.
+ *
+ * Uso: {@code java mx.ibero.servidor.ServidorJuego [puerto]}
+ *
+ * @author agent
+ */
+public class ServidorJuego implements Closeable
+{
+    /** Puerto por omisión. */
+    public static final int PUERTO = 7777;
+
+    // Conexiones que esperan ser aceptadas; alto para aguantar a muchos
+    // clientes que se conectan al mismo tiempo
+    private static final int PENDIENTES = 4096;
+
+    private final ServerSocket servidor;
+    private final ExecutorService hilos = hiloPorTarea();
+    private final Set<Sesion> sesiones = ConcurrentHashMap.newKeySet();
+    private final LongAdder jugadas = new LongAdder();
+    private final Thread aceptador;
+
+    /**
+     * Abre el servidor y empieza a aceptar conexiones.
+     *
+     * @param puerto Puerto local, o 0 para elegir uno libre.
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public ServidorJuego(int puerto) throws IOException
+    {
+        servidor = new ServerSocket(puerto, PENDIENTES, InetAddress.getLoopbackAddress());
+
+        aceptador = new Thread(this::aceptar, "servidor-buscaminas");
+        aceptador.setDaemon(true);
+        aceptador.start();
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : PUERTO;
+
+        ServidorJuego servidor = new ServidorJuego(puerto);
+        System.out.println("Escuchando en el puerto " + servidor.getPuerto());
+
+        long anteriores = 0;
+        while (true)
+        {
+            try
+            {
+                Thread.sleep(1000);
+            }
+            catch (InterruptedException e)
+            {
+                break;
+            }
+
+            long total = servidor.getJugadas();
+            System.out.printf("%d sesiones, %d jugadas/s%n", servidor.getSesionesActivas(), total - anteriores);
+            anteriores = total;
+        }
+
+        servidor.close();
+    }
+
+    private void aceptar()
+    {
+        while (!servidor.isClosed())
+        {
+            try
+            {
+                Socket socket = servidor.accept();
+                socket.setTcpNoDelay(true);
+
+                Sesion sesion = new Sesion(socket, this);
+                sesiones.add(sesion);
+                hilos.execute(sesion);
+            }
+            catch (SocketException e)
+            {
+                // Se cerró el servidor
+            }
+            catch (IOException e)
+            {
+                System.err.println("No se pudo aceptar una conexión: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Cuenta una jugada atendida.
+     */
+    void contarJugada()
+    {
+        jugadas.increment();
+    }
+
+    /**
+     * Avisa que una sesión terminó.
+     *
+     * @param sesion Sesión que terminó.
+     */
+    void terminarSesion(Sesion sesion)
+    {
+        sesiones.remove(sesion);
+    }
+
+    /**
+     * Puerto en el que escucha el servidor.
+     *
+     * @return Puerto local.
+     */
+    public int getPuerto()
+    {
+        return servidor.getLocalPort();
+    }
+
+    /**
+     * Jugadas (cavar y bandera) atendidas desde que se abrió el servidor.
+     *
+     * @return Total de jugadas.
+     */
+    public long getJugadas()
+    {
+        return jugadas.sum();
+    }
+
+    /**
+     * Número de conexiones abiertas.
+     *
+     * @return Sesiones activas.
+     */
+    public int getSesionesActivas()
+    {
+        return sesiones.size();
+    }
+
+    /**
+     * Deja de aceptar conexiones y cierra las sesiones abiertas.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        servidor.close();
+
+        for (Sesion sesion : sesiones)
+            sesion.cerrar();
+
+        hilos.shutdown();
+    }
+
+    /**
+     * Ejecutor que corre cada tarea en un hilo nuevo: virtual si la máquina
+     * virtual los tiene y, si no, un hilo normal con pila de 256 KB. Se busca
+     * por reflexión para que el código compile con versiones anteriores.
+     *
+     * @return Ejecutor de un hilo por tarea.
+     */
+    static ExecutorService hiloPorTarea()
+    {
+        try
+        {
+            Method virtuales = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtuales.invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return Executors.newCachedThreadPool(tarea ->
+            {
+                Thread hilo = new Thread(null, tarea, "sesion", 256 * 1024);
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+    }
+}
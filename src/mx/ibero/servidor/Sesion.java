@@ -0,0 +1,170 @@
+package mx.ibero.servidor;
+
+import mx.ibero.Buscaminas;
+import mx.ibero.exception.DemasiadasMinasException;
+import mx.ibero.exception.NumeroDeVidasFueraDeRangoException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * Atiende una conexión del servidor: lee comandos del {@link Protocolo},
+ * los aplica a la partida de la sesión y responde con las casillas que
+ * cambiaron. Cada sesión corre en su propio hilo con E/S bloqueante.
+ *
+ * Las respuestas se acumulan en un búfer y solo se envían cuando el cliente
+ * no tiene más comandos esperando, así un cliente que manda varias jugadas
+ * seguidas recibe todas las respuestas en una sola escritura.
+ *
+ * @author agent
+ */
+final class Sesion implements Runnable
+{
+    private final Socket socket;
+    private final ServidorJuego servidor;
+    private Buscaminas juego;
+
+    /**
+     * Crea la sesión de una conexión aceptada.
+     *
+     * @param socket Conexión con el cliente.
+     * @param servidor Servidor que lleva las estadísticas.
+     */
+    Sesion(Socket socket, ServidorJuego servidor)
+    {
+        this.socket = socket;
+        this.servidor = servidor;
+    }
+
+    @Override
+    public void run()
+    {
+        try (Socket s = socket;
+             DataInputStream entrada = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(s.getOutputStream())))
+        {
+            int comando;
+            while ((comando = entrada.read()) >= 0)
+            {
+                if (!atender(comando, entrada, salida))
+                {
+                    salida.flush();
+                    break;
+                }
+
+                if (entrada.available() == 0)
+                    salida.flush();
+            }
+        }
+        catch (IOException e)
+        {
+            // El cliente se desconectó o mandó datos incompletos; la sesión
+            // simplemente termina
+        }
+        finally
+        {
+            servidor.terminarSesion(this);
+        }
+    }
+
+    /**
+     * Cierra la conexión desde otro hilo, por ejemplo al apagar el servidor.
+     */
+    void cerrar()
+    {
+        try
+        {
+            socket.close();
+        }
+        catch (IOException e)
+        {
+            // Ya estaba cerrada
+        }
+    }
+
+    /**
+     * Aplica un comando y escribe su respuesta.
+     *
+     * @return false si la conexión debe cerrarse.
+     */
+    private boolean atender(int comando, DataInputStream entrada, DataOutputStream salida) throws IOException
+    {
+        switch (comando)
+        {
+            case Protocolo.NUEVA:
+                nueva(entrada, salida);
+                return true;
+
+            case Protocolo.CAVAR:
+            case Protocolo.BANDERA:
+            {
+                int x = Protocolo.leerVarint(entrada);
+                int y = Protocolo.leerVarint(entrada);
+
+                if (juego == null)
+                    Protocolo.escribirError(salida, Protocolo.ERROR_SIN_PARTIDA);
+                else if (x < 0 || y < 0 || x >= juego.getAncho() || y >= juego.getAlto())
+                    Protocolo.escribirError(salida, Protocolo.ERROR_FUERA_DEL_TABLERO);
+                else
+                {
+                    if (comando == Protocolo.CAVAR)
+                        juego.cavar(x, y);
+                    else
+                        juego.marcarBandera(x, y);
+
+                    servidor.contarJugada();
+                    Protocolo.escribirEstado(salida, juego);
+                }
+                return true;
+            }
+
+            case Protocolo.RESET:
+                if (juego == null)
+                    Protocolo.escribirError(salida, Protocolo.ERROR_SIN_PARTIDA);
+                else
+                {
+                    juego.reset();
+                    Protocolo.escribirEstado(salida, juego);
+                }
+                return true;
+
+            default:
+                Protocolo.escribirError(salida, Protocolo.ERROR_COMANDO);
+                return false;
+        }
+    }
+
+    /**
+     * Crea la partida de la sesión.
+     */
+    private void nueva(DataInputStream entrada, DataOutputStream salida) throws IOException
+    {
+        int ancho = Protocolo.leerVarint(entrada);
+        int alto = Protocolo.leerVarint(entrada);
+        int minas = Protocolo.leerVarint(entrada);
+        int vidas = Protocolo.leerVarint(entrada);
+        int opciones = entrada.readUnsignedByte();
+        long semilla = entrada.readLong();
+
+        if (ancho < 1 || alto < 1 || minas < 1 || vidas < 1 || (long) ancho * alto > Protocolo.MAXIMO_CASILLAS)
+        {
+            Protocolo.escribirError(salida, Protocolo.ERROR_CONFIGURACION);
+            return;
+        }
+
+        try
+        {
+            juego = new Buscaminas(ancho, alto, minas, vidas, semilla, (opciones & Protocolo.OPCION_PRIMER_CLIC) != 0);
+            juego.setSoportaBanderas((opciones & Protocolo.OPCION_BANDERAS) != 0);
+            Protocolo.escribirEstado(salida, juego);
+        }
+        catch (DemasiadasMinasException | NumeroDeVidasFueraDeRangoException e)
+        {
+            Protocolo.escribirError(salida, Protocolo.ERROR_CONFIGURACION);
+        }
+    }
+}
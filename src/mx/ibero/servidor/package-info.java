@@ -0,0 +1,8 @@
+/**
+ * Este paquete contiene un servidor que hospeda muchas partidas de buscaminas
+ * a la vez, cada una en su propia conexión, y un generador de carga para
+ * medirlo.
+ *
+ * @version 1.0
+ */
+package mx.ibero.servidor;
@@ -0,0 +1,38 @@
+package mx.ibero.simulador;
+
+import mx.ibero.Buscaminas;
+
+import java.util.SplittableRandom;
+
+/**
+ * Política que cava una casilla tapada al azar. Sirve como referencia para
+ * comparar otras políticas.
+ *
+ * @author agent
+ */
+public class PoliticaAleatoria implements PoliticaJugada
+{
+    /**
+     * {@inheritDoc}
+     *
+     * Elige una casilla al azar y, si ya está destapada, avanza hasta la
+     * siguiente casilla tapada.
+     */
+    @Override
+    public int siguienteCasilla(Buscaminas juego, SplittableRandom aleatorio)
+    {
+        int ancho = juego.getAncho();
+        int casillas = ancho * juego.getAlto();
+        int inicio = aleatorio.nextInt(casillas);
+
+        for (int n = 0; n < casillas; n++)
+        {
+            int i = inicio + n < casillas ? inicio + n : inicio + n - casillas;
+
+            if (!juego.estaDestapada(i % ancho, i / ancho) && !juego.tieneBandera(i % ancho, i / ancho))
+                return i;
+        }
+
+        throw new IllegalStateException("No quedan casillas tapadas");
+    }
+}
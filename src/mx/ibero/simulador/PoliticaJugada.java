@@ -0,0 +1,35 @@
+package mx.ibero.simulador;
+
+import mx.ibero.Buscaminas;
+
+import java.util.SplittableRandom;
+
+/**
+ * Estrategia con la que el {@link Simulador} elige dónde cavar en cada turno.
+ * Cada hilo del simulador usa su propia instancia, así que una política puede
+ * guardar estado entre jugadas sin sincronizarse.
+ *
+ * @author agent
+ */
+@FunctionalInterface
+public interface PoliticaJugada
+{
+    /**
+     * Elige la siguiente casilla a cavar. Debe ser una casilla tapada y sin
+     * bandera.
+     *
+     * @param juego Partida en curso.
+     * @param aleatorio Generador propio del hilo que ejecuta la partida.
+     * @return Posición de la casilla (y * ancho + x).
+     */
+    int siguienteCasilla(Buscaminas juego, SplittableRandom aleatorio);
+
+    /**
+     * Se llama antes de empezar cada partida. Por defecto no hace nada.
+     *
+     * @param juego Partida que va a empezar.
+     */
+    default void nuevaPartida(Buscaminas juego)
+    {
+    }
+}
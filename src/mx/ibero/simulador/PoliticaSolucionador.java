@@ -0,0 +1,76 @@
+package mx.ibero.simulador;
+
+import mx.ibero.Buscaminas;
+import mx.ibero.solver.Deducciones;
+import mx.ibero.solver.Solucionador;
+
+import java.util.SplittableRandom;
+
+/**
+ * Política que cava primero las casillas que el {@link Solucionador} demuestra
+ * seguras y solo adivina, al azar entre las casillas no marcadas como mina,
+ * cuando no queda ninguna.
+ *
+ * @author agent
+ */
+public class PoliticaSolucionador implements PoliticaJugada
+{
+    private final Solucionador solucionador = new Solucionador();
+    private final PoliticaAleatoria aleatoria = new PoliticaAleatoria();
+    private Deducciones deducciones;
+    private int siguiente;   // Próxima casilla segura por cavar
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void nuevaPartida(Buscaminas juego)
+    {
+        deducciones = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int siguienteCasilla(Buscaminas juego, SplittableRandom aleatorio)
+    {
+        int ancho = juego.getAncho();
+
+        // Las casillas seguras siguen siéndolo tras cada jugada; solo hay que
+        // saltar las que ya destapó alguna apertura.
+        if (deducciones != null)
+            while (siguiente < deducciones.totalSeguras())
+            {
+                int i = deducciones.segura(siguiente++);
+
+                if (!juego.estaDestapada(i % ancho, i / ancho))
+                    return i;
+            }
+
+        deducciones = solucionador.resolver(juego);
+        siguiente = 0;
+
+        if (deducciones.totalSeguras() > 0)
+            return deducciones.segura(siguiente++);
+
+        // No hay nada seguro: se adivina evitando las minas conocidas
+        int casilla = aleatoria.siguienteCasilla(juego, aleatorio);
+        for (int intento = 0; intento < 32 && esMina(casilla); intento++)
+            casilla = aleatoria.siguienteCasilla(juego, aleatorio);
+
+        return casilla;
+    }
+
+    /**
+     * Indica si la casilla está entre las minas deducidas.
+     */
+    private boolean esMina(int casilla)
+    {
+        for (int n = 0; n < deducciones.totalMinas(); n++)
+            if (deducciones.mina(n) == casilla)
+                return true;
+
+        return false;
+    }
+}
@@ -0,0 +1,142 @@
+package mx.ibero.simulador;
+
+/**
+ * Estadísticas de una ejecución del {@link Simulador}.
+ *
+ * @author agent
+ */
+public class ResultadoSimulacion
+{
+    private final long partidas;
+    private final long ganadas;
+    private final long jugadas;
+    private final long casillasDestapadas;
+    private final long nanosPartidas;
+    private final long nanosTotales;
+    private final int hilos;
+
+    /**
+     * Crea el resultado con los totales acumulados.
+     *
+     * @param partidas Partidas jugadas.
+     * @param ganadas Partidas ganadas.
+     * @param jugadas Veces que se cavó en total.
+     * @param casillasDestapadas Casillas destapadas en total.
+     * @param nanosPartidas Suma del tiempo de cada partida.
+     * @param nanosTotales Tiempo de reloj de toda la simulación.
+     * @param hilos Hilos usados.
+     */
+    ResultadoSimulacion(long partidas, long ganadas, long jugadas, long casillasDestapadas,
+                        long nanosPartidas, long nanosTotales, int hilos)
+    {
+        this.partidas = partidas;
+        this.ganadas = ganadas;
+        this.jugadas = jugadas;
+        this.casillasDestapadas = casillasDestapadas;
+        this.nanosPartidas = nanosPartidas;
+        this.nanosTotales = nanosTotales;
+        this.hilos = hilos;
+    }
+
+    /**
+     * Número de partidas jugadas.
+     *
+     * @return Partidas jugadas.
+     */
+    public long getPartidas()
+    {
+        return partidas;
+    }
+
+    /**
+     * Número de partidas ganadas.
+     *
+     * @return Partidas ganadas.
+     */
+    public long getGanadas()
+    {
+        return ganadas;
+    }
+
+    /**
+     * Proporción de partidas ganadas.
+     *
+     * @return Valor entre 0 y 1.
+     */
+    public double tasaVictorias()
+    {
+        return partidas == 0 ? 0 : (double) ganadas / partidas;
+    }
+
+    /**
+     * Veces que se cavó en promedio en cada partida.
+     *
+     * @return Promedio de veces que se cavó por partida.
+     */
+    public double jugadasPorPartida()
+    {
+        return partidas == 0 ? 0 : (double) jugadas / partidas;
+    }
+
+    /**
+     * Casillas sin mina destapadas en promedio en cada partida.
+     *
+     * @return Promedio de casillas destapadas por partida.
+     */
+    public double destapadasPorPartida()
+    {
+        return partidas == 0 ? 0 : (double) casillasDestapadas / partidas;
+    }
+
+    /**
+     * Rendimiento de la simulación.
+     *
+     * @return Partidas por segundo.
+     */
+    public double partidasPorSegundo()
+    {
+        return nanosTotales == 0 ? 0 : partidas * 1e9 / nanosTotales;
+    }
+
+    /**
+     * Tiempo promedio que tarda un hilo en jugar una partida.
+     *
+     * @return Microsegundos por partida.
+     */
+    public double microsegundosPorPartida()
+    {
+        return partidas == 0 ? 0 : nanosPartidas / 1e3 / partidas;
+    }
+
+    /**
+     * Tiempo de reloj de toda la simulación.
+     *
+     * @return Milisegundos.
+     */
+    public double milisegundosTotales()
+    {
+        return nanosTotales / 1e6;
+    }
+
+    /**
+     * Número de hilos usados en la simulación.
+     *
+     * @return Hilos.
+     */
+    public int getHilos()
+    {
+        return hilos;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%2d hilos: %,10d partidas, %6.2f%% ganadas, %6.2f jugadas/partida, %8.2f destapadas/partida, "
+                        + "%,12.0f partidas/s, %8.2f us/partida, %9.1f ms",
+                hilos, partidas, 100 * tasaVictorias(), jugadasPorPartida(), destapadasPorPartida(),
+                partidasPorSegundo(), microsegundosPorPartida(), milisegundosTotales());
+    }
+}
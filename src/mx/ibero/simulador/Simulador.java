@@ -0,0 +1,206 @@
+package mx.ibero.simulador;
+
+import mx.ibero.Buscaminas;
+import mx.ibero.exception.DemasiadasMinasException;
+import mx.ibero.exception.NumeroDeVidasFueraDeRangoException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Juega partidas de {@link Buscaminas} sin interfaz gráfica, repartidas entre
+ * varios hilos de un {@link ForkJoinPool}. Cada hilo tiene su propio
+ * generador aleatorio, su propia política y un único tablero que reutiliza en
+ * todas sus partidas.
+ *
+ * Las partidas se juegan sin banderas: se gana al destapar todas las casillas
+ * sin mina.
+ *
+ * Uso desde la línea de comandos:
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp out mx.ibero.simulador.Simulador [partidas] [ancho alto minas]
+ * </pre>
+ * Sin tamaño se simulan las tres dificultades del juego. Cada configuración se
+ * ejecuta con 1, 2, 4... hasta todos los núcleos para ver cómo escala. Por
+ * defecto juega {@link PoliticaSolucionador}; con
+ * {@code -Dbuscaminas.politica=aleatoria} se usa {@link PoliticaAleatoria}.
+ *
+ * @author agent
+ */
+public class Simulador
+{
+    // Dificultades de ScreenGameController: ancho, alto, minas
+    private static final int[][] DIFICULTADES = { { 8, 8, 10 }, { 16, 16, 40 }, { 30, 16, 99 } };
+
+    private final int ancho;
+    private final int alto;
+    private final int minas;
+    private final int vidas;
+    private final boolean primerClicSeguro;
+    private final Supplier<PoliticaJugada> politicas;
+
+    /**
+     * Prepara un simulador para partidas de la configuración dada.
+     *
+     * @param ancho Columnas del tablero.
+     * @param alto Filas del tablero.
+     * @param minas Minas del tablero.
+     * @param vidas Vidas de cada partida.
+     * @param primerClicSeguro Si la primera jugada nunca cae en mina.
+     * @param politicas Crea la política de cada hilo.
+     * @throws DemasiadasMinasException Si hay más minas que casillas.
+     * @throws NumeroDeVidasFueraDeRangoException Si las vidas no están entre 1 y el número de minas.
+     */
+    public Simulador(int ancho, int alto, int minas, int vidas, boolean primerClicSeguro, Supplier<PoliticaJugada> politicas)
+            throws DemasiadasMinasException, NumeroDeVidasFueraDeRangoException
+    {
+        // Se construye un tablero solo para validar la configuración
+        new Buscaminas(ancho, alto, minas, vidas, 0, true);
+
+        this.ancho = ancho;
+        this.alto = alto;
+        this.minas = minas;
+        this.vidas = vidas;
+        this.primerClicSeguro = primerClicSeguro;
+        this.politicas = politicas;
+    }
+
+    /**
+     * Juega las partidas indicadas repartidas entre varios hilos. Con la misma
+     * semilla y el mismo número de hilos se juegan siempre los mismos
+     * tableros.
+     *
+     * @param partidas Total de partidas a jugar.
+     * @param hilos Hilos a usar.
+     * @param semilla Semilla de la que se derivan los generadores de cada hilo.
+     * @return Estadísticas de la simulación.
+     */
+    public ResultadoSimulacion ejecutar(long partidas, int hilos, long semilla)
+    {
+        SplittableRandom raiz = new SplittableRandom(semilla);
+        List<Callable<long[]>> trabajos = new ArrayList<>();
+
+        for (int h = 0; h < hilos; h++)
+        {
+            long suyas = partidas / hilos + (h < partidas % hilos ? 1 : 0);
+            SplittableRandom aleatorio = raiz.split();
+
+            trabajos.add(() -> jugar(suyas, aleatorio));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(hilos);
+        long[] totales = new long[4];
+        long inicio = System.nanoTime();
+
+        try
+        {
+            for (Future<long[]> trabajo : pool.invokeAll(trabajos))
+            {
+                long[] parcial = trabajo.get();
+                for (int i = 0; i < totales.length; i++)
+                    totales[i] += parcial[i];
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulación interrumpida", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException("Error en la simulación", e.getCause());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        long nanosTotales = System.nanoTime() - inicio;
+
+        return new ResultadoSimulacion(partidas, totales[0], totales[1], totales[2], totales[3], nanosTotales, hilos);
+    }
+
+    /**
+     * Juega una serie de partidas en el hilo actual.
+     *
+     * @param partidas Partidas a jugar.
+     * @param aleatorio Generador propio del hilo.
+     * @return Ganadas, jugadas, casillas destapadas y nanosegundos.
+     */
+    private long[] jugar(long partidas, SplittableRandom aleatorio) throws Exception
+    {
+        Buscaminas juego = new Buscaminas(ancho, alto, minas, vidas, aleatorio.nextLong(), primerClicSeguro);
+        juego.setSoportaBanderas(false);
+
+        PoliticaJugada politica = politicas.get();
+        int casillas = ancho * alto;
+        long ganadas = 0, jugadas = 0, destapadas = 0, nanos = 0;
+
+        for (long p = 0; p < partidas; p++)
+        {
+            if (p > 0)
+                juego.regenerar(aleatorio.nextLong());
+
+            long inicio = System.nanoTime();
+            politica.nuevaPartida(juego);
+
+            // Cada jugada válida destapa al menos una casilla, así que una
+            // partida nunca necesita más jugadas que casillas.
+            for (int n = 0; n < casillas && !juego.isGameOver(); n++)
+            {
+                int i = politica.siguienteCasilla(juego, aleatorio);
+                juego.cavar(i % ancho, i / ancho);
+                jugadas++;
+            }
+
+            nanos += System.nanoTime() - inicio;
+            destapadas += casillas - minas - juego.getCasillasTapadasRestantes();
+
+            if (juego.isGanador())
+                ganadas++;
+        }
+
+        return new long[] { ganadas, jugadas, destapadas, nanos };
+    }
+
+    /**
+     * Ejecuta la simulación desde la línea de comandos.
+     *
+     * @param args Número de partidas y, opcionalmente, ancho, alto y minas.
+     * @throws Exception Si la configuración no es válida.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        long partidas = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        int[][] configuraciones = args.length >= 4
+                ? new int[][] { { Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]) } }
+                : DIFICULTADES;
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        Supplier<PoliticaJugada> politica = "aleatoria".equals(System.getProperty("buscaminas.politica"))
+                ? PoliticaAleatoria::new
+                : PoliticaSolucionador::new;
+
+        for (int[] c : configuraciones)
+        {
+            Simulador simulador = new Simulador(c[0], c[1], c[2], 1, true, politica);
+            System.out.printf("%d x %d, %d minas%n", c[0], c[1], c[2]);
+
+            // Calentamiento
+            simulador.ejecutar(Math.min(partidas, 10_000), nucleos, 0);
+
+            for (int hilos = 1; ; hilos = Math.min(2 * hilos, nucleos))
+            {
+                System.out.println("  " + simulador.ejecutar(partidas, hilos, 1));
+
+                if (hilos == nucleos)
+                    break;
+            }
+        }
+    }
+}
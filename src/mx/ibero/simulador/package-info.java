@@ -0,0 +1,7 @@
+/**
+ * Este paquete contiene un simulador que juega partidas de buscaminas sin
+ * interfaz gráfica para obtener estadísticas de cada dificultad.
+ *
+ * @version 1.0
+ */
+package mx.ibero.simulador;
@@ -0,0 +1,111 @@
+package mx.ibero.solver;
+
+import java.util.Arrays;
+
+/**
+ * Casillas que el {@link Solucionador} pudo demostrar que son seguras o que
+ * tienen mina. Las posiciones se expresan como y * ancho + x.
+ *
+ * El objeto se reutiliza entre llamadas a resolver(), por lo que su contenido
+ * solo es válido hasta la siguiente llamada.
+ *
+ * @author agent
+ */
+public class Deducciones
+{
+    private int[] seguras = new int[16];
+    private int[] minas = new int[16];
+    private int totalSeguras;
+    private int totalMinas;
+    private int ancho;
+
+    /**
+     * Número de casillas tapadas que con seguridad no tienen mina.
+     *
+     * @return Total de casillas seguras.
+     */
+    public int totalSeguras()
+    {
+        return totalSeguras;
+    }
+
+    /**
+     * Posición de una casilla segura.
+     *
+     * @param n Índice entre 0 y totalSeguras() - 1.
+     * @return Posición de la casilla (y * ancho + x).
+     */
+    public int segura(int n)
+    {
+        return seguras[n];
+    }
+
+    /**
+     * Número de casillas tapadas que con seguridad tienen mina.
+     *
+     * @return Total de minas deducidas.
+     */
+    public int totalMinas()
+    {
+        return totalMinas;
+    }
+
+    /**
+     * Posición de una casilla con mina.
+     *
+     * @param n Índice entre 0 y totalMinas() - 1.
+     * @return Posición de la casilla (y * ancho + x).
+     */
+    public int mina(int n)
+    {
+        return minas[n];
+    }
+
+    /**
+     * Ancho del tablero, para convertir posiciones en coordenadas.
+     *
+     * @return Número de columnas.
+     */
+    public int getAncho()
+    {
+        return ancho;
+    }
+
+    /**
+     * Vacía las listas para un tablero del ancho dado.
+     *
+     * @param ancho Número de columnas del tablero.
+     */
+    void limpiar(int ancho)
+    {
+        this.ancho = ancho;
+        totalSeguras = 0;
+        totalMinas = 0;
+    }
+
+    /**
+     * Agrega una casilla segura.
+     *
+     * @param posicion Posición de la casilla.
+     */
+    void agregarSegura(int posicion)
+    {
+        if (totalSeguras == seguras.length)
+            seguras = Arrays.copyOf(seguras, 2 * totalSeguras);
+
+        seguras[totalSeguras++] = posicion;
+    }
+
+    /**
+     * Agrega una casilla con mina.
+     *
+     * @param posicion Posición de la casilla.
+     */
+    void agregarMina(int posicion)
+    {
+        if (totalMinas == minas.length)
+            minas = Arrays.copyOf(minas, 2 * totalMinas);
+
+        minas[totalMinas++] = posicion;
+    }
+}
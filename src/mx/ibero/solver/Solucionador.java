@@ -0,0 +1,333 @@
+package mx.ibero.solver;
+
+import mx.ibero.Buscaminas;
+
+import java.util.Arrays;
+
+/**
+ * Solucionador determinista que trabaja solo con lo que ve el jugador: qué
+ * casillas están destapadas y el número de cada una. Las banderas no se toman
+ * como información porque el jugador puede haberse equivocado al ponerlas.
+ *
+ * Cada casilla destapada con vecinas tapadas es una restricción: entre sus
+ * vecinas desconocidas hay exactamente tantas minas como indica su número
+ * menos las minas ya conocidas. Se aplican dos reglas hasta que no haya
+ * cambios:
+ * <ul>
+ *     <li>Una restricción sola: si le faltan 0 minas todas sus vecinas son
+ *     seguras; si le faltan tantas minas como vecinas, todas son minas.</li>
+ *     <li>Dos restricciones cercanas A y B: si a A le faltan tantas minas más
+ *     que a B como casillas tiene A que no comparte con B, esas casillas son
+ *     minas y las de B que no comparte con A son seguras.</li>
+ * </ul>
+ *
+ * Las vecinas de cada restricción se guardan como máscara de bits. Para
+ * comparar dos restricciones se colocan ambas en una ventana de 7x7 casillas
+ * centrada en A (49 bits de un long), y las intersecciones y diferencias de
+ * conjuntos se reducen a operaciones AND y AND NOT.
+ *
+ * Las restricciones se construyen una sola vez por llamada. Cuando se deduce
+ * una casilla solo se actualizan las restricciones vecinas y se vuelven a
+ * revisar las que están a tres casillas o menos, que son las únicas cuyas
+ * reglas pudieron cambiar.
+ *
+ * La instancia reutiliza sus arreglos entre llamadas; no es segura para usarse
+ * desde varios hilos a la vez.
+ *
+ * @author agent
+ */
+public class Solucionador
+{
+    // Estado de cada casilla para el solucionador
+    private static final byte DESCONOCIDA = 0;
+    private static final byte DESTAPADA = 1;
+    private static final byte MINA_VISIBLE = 2;
+    private static final byte SEGURA_DEDUCIDA = 3;
+    private static final byte MINA_DEDUCIDA = 4;
+
+    // Convierte una máscara de 3x3 (9 bits) a filas de 7 bits de la ventana de 7x7
+    private static final int LADO = 7;
+    private static final int CENTRO = 2 * LADO + 2;   // Desplazamiento de la máscara de A
+    private static final long[] ESPARCIR = new long[512];
+
+    static
+    {
+        for (int m = 0; m < 512; m++)
+            for (int b = 0; b < 9; b++)
+                if ((m & (1 << b)) != 0)
+                    ESPARCIR[m] |= 1L << (b / 3 * LADO + b % 3);
+    }
+
+    private byte[] estado = new byte[0];
+    private int[] indice = new int[0];   // Restricción de cada casilla, o -1
+    private int[] posiciones = new int[64];
+    private int[] mascaras = new int[64];
+    private int[] faltantes = new int[64];
+    private int totalRestricciones;
+    private int ancho;
+    private int alto;
+
+    // Restricciones pendientes de revisar (cola circular)
+    private int[] pendientes = new int[64];
+    private boolean[] enCola = new boolean[64];
+    private int inicioCola;
+    private int tamanoCola;
+
+    private final Deducciones deducciones = new Deducciones();
+
+    /**
+     * Deduce todas las casillas tapadas que se puede demostrar que son seguras
+     * o que tienen mina con las reglas de una y dos restricciones.
+     *
+     * @param juego Partida a analizar.
+     * @return Casillas seguras y minas deducidas. El objeto se reutiliza en
+     *         la siguiente llamada.
+     */
+    public Deducciones resolver(Buscaminas juego)
+    {
+        preparar(juego);
+        construirRestricciones(juego);
+
+        if (pendientes.length < totalRestricciones)
+        {
+            pendientes = new int[posiciones.length];
+            enCola = new boolean[posiciones.length];
+        }
+
+        inicioCola = 0;
+        tamanoCola = totalRestricciones;
+        for (int k = 0; k < totalRestricciones; k++)
+        {
+            pendientes[k] = k;
+            enCola[k] = true;
+        }
+
+        while (tamanoCola > 0)
+        {
+            int k = pendientes[inicioCola];
+            inicioCola = (inicioCola + 1) % totalRestricciones;
+            tamanoCola--;
+            enCola[k] = false;
+
+            if (mascaras[k] == 0)
+                continue;
+
+            aplicarReglaSimple(k);
+            aplicarReglaPares(k);
+        }
+
+        return deducciones;
+    }
+
+    /**
+     * Copia lo que el jugador ve del tablero y reserva los arreglos si el
+     * tablero creció.
+     */
+    private void preparar(Buscaminas juego)
+    {
+        ancho = juego.getAncho();
+        alto = juego.getAlto();
+        int casillas = ancho * alto;
+
+        if (estado.length < casillas)
+        {
+            estado = new byte[casillas];
+            indice = new int[casillas];
+        }
+
+        Arrays.fill(indice, 0, casillas, -1);
+        totalRestricciones = 0;
+        deducciones.limpiar(ancho);
+
+        for (int y = 0, i = 0; y < alto; y++)
+            for (int x = 0; x < ancho; x++, i++)
+            {
+                if (!juego.estaDestapada(x, y))
+                    estado[i] = DESCONOCIDA;
+                else
+                    estado[i] = juego.hayMina(x, y) ? MINA_VISIBLE : DESTAPADA;
+            }
+    }
+
+    /**
+     * Crea una restricción por cada casilla destapada que tenga vecinas
+     * desconocidas.
+     */
+    private void construirRestricciones(Buscaminas juego)
+    {
+        for (int y = 0, i = 0; y < alto; y++)
+            for (int x = 0; x < ancho; x++, i++)
+            {
+                if (estado[i] != DESTAPADA)
+                    continue;
+
+                int mascara = 0;
+                int minasConocidas = 0;
+
+                for (int dy = -1; dy <= 1; dy++)
+                    for (int dx = -1; dx <= 1; dx++)
+                    {
+                        int vx = x + dx;
+                        int vy = y + dy;
+
+                        if ((dx == 0 && dy == 0) || vx < 0 || vy < 0 || vx >= ancho || vy >= alto)
+                            continue;
+
+                        byte vecina = estado[vy * ancho + vx];
+
+                        if (vecina == DESCONOCIDA)
+                            mascara |= 1 << ((dy + 1) * 3 + dx + 1);
+                        else if (vecina == MINA_VISIBLE || vecina == MINA_DEDUCIDA)
+                            minasConocidas++;
+                    }
+
+                if (mascara == 0)
+                    continue;
+
+                if (totalRestricciones == posiciones.length)
+                {
+                    posiciones = Arrays.copyOf(posiciones, 2 * totalRestricciones);
+                    mascaras = Arrays.copyOf(mascaras, 2 * totalRestricciones);
+                    faltantes = Arrays.copyOf(faltantes, 2 * totalRestricciones);
+                }
+
+                posiciones[totalRestricciones] = i;
+                mascaras[totalRestricciones] = mascara;
+                faltantes[totalRestricciones] = juego.contarMinasAlrededor(x, y) - minasConocidas;
+                indice[i] = totalRestricciones++;
+            }
+    }
+
+    /**
+     * Regla de una restricción: 0 minas faltantes o tantas como vecinas.
+     */
+    private void aplicarReglaSimple(int k)
+    {
+        int desconocidas = Integer.bitCount(mascaras[k]);
+
+        if (faltantes[k] == 0)
+            marcar(posiciones[k], ESPARCIR[mascaras[k]] << CENTRO, SEGURA_DEDUCIDA);
+        else if (faltantes[k] == desconocidas)
+            marcar(posiciones[k], ESPARCIR[mascaras[k]] << CENTRO, MINA_DEDUCIDA);
+    }
+
+    /**
+     * Regla de dos restricciones: compara la restricción k con cada
+     * restricción a dos casillas o menos de distancia.
+     */
+    private void aplicarReglaPares(int k)
+    {
+        int a = posiciones[k];
+        int ax = a % ancho;
+        int ay = a / ancho;
+        long mascaraA = ESPARCIR[mascaras[k]] << CENTRO;
+
+        for (int oy = -2; oy <= 2; oy++)
+        {
+            int by = ay + oy;
+            if (by < 0 || by >= alto)
+                continue;
+
+            for (int ox = -2; ox <= 2; ox++)
+            {
+                int bx = ax + ox;
+                if (bx < 0 || bx >= ancho || (ox == 0 && oy == 0))
+                    continue;
+
+                int j = indice[by * ancho + bx];
+                if (j < 0 || mascaras[j] == 0)
+                    continue;
+
+                long mascaraB = ESPARCIR[mascaras[j]] << ((oy + 2) * LADO + ox + 2);
+                if ((mascaraA & mascaraB) == 0)
+                    continue;
+
+                long soloA = mascaraA & ~mascaraB;
+                long soloB = mascaraB & ~mascaraA;
+
+                if (faltantes[k] - faltantes[j] == Long.bitCount(soloA))
+                {
+                    marcar(a, soloA, MINA_DEDUCIDA);
+                    marcar(a, soloB, SEGURA_DEDUCIDA);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marca las casillas de una máscara de la ventana de 7x7 centrada en la
+     * posición dada y actualiza las restricciones afectadas.
+     *
+     * @param centro Posición del centro de la ventana.
+     * @param mascara Casillas a marcar (bit = fila * 7 + columna).
+     * @param valor SEGURA_DEDUCIDA o MINA_DEDUCIDA.
+     */
+    private void marcar(int centro, long mascara, byte valor)
+    {
+        while (mascara != 0)
+        {
+            int bit = Long.numberOfTrailingZeros(mascara);
+            mascara &= mascara - 1;
+
+            int i = centro + (bit / LADO - 3) * ancho + bit % LADO - 3;
+
+            if (estado[i] != DESCONOCIDA)
+                continue;
+
+            estado[i] = valor;
+
+            if (valor == SEGURA_DEDUCIDA)
+                deducciones.agregarSegura(i);
+            else
+                deducciones.agregarMina(i);
+
+            actualizarVecinas(i, valor == MINA_DEDUCIDA);
+        }
+    }
+
+    /**
+     * Quita una casilla recién deducida de las restricciones que la rodean y
+     * vuelve a encolar todas las restricciones que podrían compararse con
+     * ellas.
+     *
+     * @param i Posición de la casilla deducida.
+     * @param mina Si la casilla resultó ser mina.
+     */
+    private void actualizarVecinas(int i, boolean mina)
+    {
+        int x = i % ancho;
+        int y = i / ancho;
+
+        for (int dy = -3; dy <= 3; dy++)
+        {
+            int vy = y + dy;
+            if (vy < 0 || vy >= alto)
+                continue;
+
+            for (int dx = -3; dx <= 3; dx++)
+            {
+                int vx = x + dx;
+                if (vx < 0 || vx >= ancho)
+                    continue;
+
+                int j = indice[vy * ancho + vx];
+                if (j < 0)
+                    continue;
+
+                if (dx >= -1 && dx <= 1 && dy >= -1 && dy <= 1)
+                {
+                    // La casilla deducida es vecina de la restricción j
+                    mascaras[j] &= ~(1 << ((1 - dy) * 3 + 1 - dx));
+                    if (mina)
+                        faltantes[j]--;
+                }
+
+                if (!enCola[j])
+                {
+                    enCola[j] = true;
+                    pendientes[(inicioCola + tamanoCola++) % totalRestricciones] = j;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Este paquete contiene un solucionador que deduce casillas seguras y minas a
+ * partir de lo que el jugador puede ver en el tablero.
+ *
+ * @version 1.0
+ */
+package mx.ibero.solver;
@@ -0,0 +1,63 @@
+package mx.ibero;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de {@link AperturaParalela}: una apertura repartida entre varios
+ * hilos deja el mismo tablero y los mismos contadores que en secuencia.
+ *
+ * @author agent
+ */
+class AperturaParalelaTest
+{
+    @Test
+    void enParaleloIgualQueEnSecuencia() throws Exception
+    {
+        ForkJoinPool secuencial = new ForkJoinPool(1);
+        ForkJoinPool paralelo = new ForkJoinPool(4);
+
+        try
+        {
+            for (long semilla = 0; semilla < 6; semilla++)
+            {
+                // Pocas minas para que la apertura pase de UMBRAL casillas
+                int ancho = 600;
+                int alto = 400;
+                int minas = 200 + (int) semilla * 300;
+
+                Buscaminas uno = new Buscaminas(ancho, alto, minas, 1, semilla, true);
+                Buscaminas varios = new Buscaminas(ancho, alto, minas, 1, semilla, true);
+
+                // Dos veces: la segunda después de reset(), con las filas
+                // de la generación anterior por limpiar
+                for (int vuelta = 0; vuelta < 2; vuelta++)
+                {
+                    String caso = "semilla " + semilla + ", vuelta " + vuelta;
+                    int x = ancho / 2;
+                    int y = alto / 2;
+
+                    secuencial.submit(() -> uno.cavar(x, y)).get();
+                    paralelo.submit(() -> varios.cavar(x, y)).get();
+
+                    assertEquals(uno.getCasillasTapadasRestantes(), varios.getCasillasTapadasRestantes(), caso);
+                    assertEquals(uno.getCambios().tamano(), varios.getCambios().tamano(), caso);
+                    assertEquals(uno.isGameOver(), varios.isGameOver(), caso);
+                    assertArrayEquals(uno.celdas(), varios.celdas(), caso);
+
+                    uno.reset();
+                    varios.reset();
+                }
+            }
+        }
+        finally
+        {
+            secuencial.shutdown();
+            paralelo.shutdown();
+        }
+    }
+}
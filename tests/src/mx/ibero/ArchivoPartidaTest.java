@@ -0,0 +1,156 @@
+package mx.ibero;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de {@link ArchivoPartida}: una partida guardada y cargada debe
+ * quedar igual y seguir jugándose igual.
+ *
+ * @author agent
+ */
+class ArchivoPartidaTest
+{
+    @Test
+    void guardarYCargarDejaLaPartidaIgual() throws Exception
+    {
+        Path archivo = Files.createTempFile("partida", ".bmsp");
+
+        try
+        {
+            for (long semilla = 0; semilla < 60; semilla++)
+            {
+                Random azar = new Random(semilla);
+                Buscaminas juego = partidaAlAzar(azar, semilla);
+
+                ArchivoPartida.guardar(juego, archivo);
+                Buscaminas cargado = ArchivoPartida.cargar(archivo);
+
+                comparar(juego, cargado, "semilla " + semilla);
+                seguirJugando(juego, cargado, azar, "semilla " + semilla);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    @Test
+    void exportarEImportarTextoDejaLaPartidaIgual() throws Exception
+    {
+        for (long semilla = 0; semilla < 60; semilla++)
+        {
+            Random azar = new Random(semilla);
+            Buscaminas juego = partidaAlAzar(azar, semilla);
+            Buscaminas importado = ArchivoPartida.importarTexto(ArchivoPartida.exportarTexto(juego));
+
+            comparar(juego, importado, "semilla " + semilla);
+            seguirJugando(juego, importado, azar, "semilla " + semilla);
+        }
+    }
+
+    @Test
+    void rechazaArchivosDanados() throws Exception
+    {
+        Path archivo = Files.createTempFile("partida", ".bmsp");
+
+        try
+        {
+            Buscaminas juego = new Buscaminas(30, 16, 99, 3, 7L);
+            juego.cavar(0, 0);
+            ArchivoPartida.guardar(juego, archivo);
+
+            byte[] datos = Files.readAllBytes(archivo);
+
+            // Archivo cortado
+            Files.write(archivo, java.util.Arrays.copyOf(datos, datos.length - 1));
+            assertThrows(IOException.class, () -> ArchivoPartida.cargar(archivo));
+
+            // Número mágico equivocado
+            byte[] otro = datos.clone();
+            otro[0] ^= 1;
+            Files.write(archivo, otro);
+            assertThrows(IOException.class, () -> ArchivoPartida.cargar(archivo));
+        }
+        finally
+        {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    /**
+     * Partida con tamaño, opciones y jugadas al azar. Algunas quedan sin
+     * minas (primer clic seguro sin jugar) y otras terminadas.
+     */
+    static Buscaminas partidaAlAzar(Random azar, long semilla) throws Exception
+    {
+        int ancho = 1 + azar.nextInt(40);
+        int alto = 1 + azar.nextInt(40);
+        int minas = 1 + azar.nextInt(Math.max(1, ancho * alto / 4));
+        int vidas = 1 + azar.nextInt(Math.min(minas, 3));
+
+        Buscaminas juego = new Buscaminas(ancho, alto, minas, vidas, semilla, azar.nextBoolean());
+        juego.setSoportaBanderas(azar.nextInt(4) != 0);
+
+        int jugadas = azar.nextInt(3) == 0 ? 0 : azar.nextInt(60);
+        for (int j = 0; j < jugadas; j++)
+            jugar(juego, azar.nextInt(4) == 0, azar.nextInt(ancho), azar.nextInt(alto));
+
+        return juego;
+    }
+
+    /**
+     * Compara todo el estado visible de dos partidas.
+     */
+    static void comparar(Buscaminas esperado, Buscaminas real, String caso)
+    {
+        assertEquals(esperado.getAncho(), real.getAncho(), caso);
+        assertEquals(esperado.getAlto(), real.getAlto(), caso);
+        assertEquals(esperado.getTotalMinas(), real.getTotalMinas(), caso);
+        assertEquals(esperado.getVidas(), real.getVidas(), caso);
+        assertEquals(esperado.getVidasRestantes(), real.getVidasRestantes(), caso);
+        assertEquals(esperado.getCasillasTapadasRestantes(), real.getCasillasTapadasRestantes(), caso);
+        assertEquals(esperado.getMinasSinBanderaRestantes(), real.getMinasSinBanderaRestantes(), caso);
+        assertEquals(esperado.getBanderasPuestas(), real.getBanderasPuestas(), caso);
+        assertEquals(esperado.isGameOver(), real.isGameOver(), caso);
+        assertEquals(esperado.isGanador(), real.isGanador(), caso);
+        assertEquals(esperado.hayBanderas(), real.hayBanderas(), caso);
+        assertEquals(esperado.isTableroGenerado(), real.isTableroGenerado(), caso);
+        assertArrayEquals(esperado.celdas(), real.celdas(), caso);
+    }
+
+    /**
+     * Hace las mismas jugadas en las dos partidas y las compara después de
+     * cada una.
+     */
+    static void seguirJugando(Buscaminas a, Buscaminas b, Random azar, String caso)
+    {
+        for (int j = 0; j < 30; j++)
+        {
+            boolean bandera = azar.nextInt(4) == 0;
+            int x = azar.nextInt(a.getAncho());
+            int y = azar.nextInt(a.getAlto());
+
+            jugar(a, bandera, x, y);
+            jugar(b, bandera, x, y);
+            comparar(a, b, caso + ", jugada " + j);
+        }
+    }
+
+    static void jugar(Buscaminas juego, boolean bandera, int x, int y)
+    {
+        if (bandera)
+            juego.marcarBandera(x, y);
+        else
+            juego.cavar(x, y);
+    }
+}
@@ -0,0 +1,243 @@
+package mx.ibero;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link BuscaminasConcurrente}: desde un solo hilo juega igual
+ * que {@link Buscaminas}, y con varios hilos sus contadores coinciden con
+ * el tablero.
+ *
+ * @author agent
+ */
+class BuscaminasConcurrenteTest
+{
+    @Test
+    void enUnHiloJuegaIgualQueBuscaminas() throws Exception
+    {
+        for (long semilla = 0; semilla < 200; semilla++)
+        {
+            Random azar = new Random(semilla);
+            int ancho = 1 + azar.nextInt(30);
+            int alto = 1 + azar.nextInt(30);
+            int minas = 1 + azar.nextInt(ancho * alto / 4 + 1);
+            int vidas = 1 + azar.nextInt(Math.min(minas, 3));
+            boolean banderas = azar.nextBoolean();
+
+            Buscaminas juego = new Buscaminas(ancho, alto, minas, vidas, semilla);
+            juego.setSoportaBanderas(banderas);
+            BuscaminasConcurrente concurrente = new BuscaminasConcurrente(ancho, alto, minas, vidas, semilla, banderas);
+
+            String caso = "semilla " + semilla;
+            comparar(juego, concurrente, caso);
+
+            for (int j = 0; j < 200 && !juego.isGameOver(); j++)
+            {
+                int x = azar.nextInt(ancho);
+                int y = azar.nextInt(alto);
+
+                if (banderas && azar.nextInt(4) == 0)
+                {
+                    juego.marcarBandera(x, y);
+                    concurrente.marcarBandera(x, y);
+                }
+                else if (!(juego.hayMina(x, y) && juego.estaDestapada(x, y)))
+                {
+                    // Volver a cavar una mina destapada es la única regla
+                    // distinta: en BuscaminasConcurrente no cuesta otra vida
+                    juego.cavar(x, y);
+                    concurrente.cavar(x, y);
+                }
+
+                comparar(juego, concurrente, caso + ", jugada " + j);
+            }
+        }
+    }
+
+    @Test
+    void variosHilosCuentanCadaCasillaUnaVez() throws Exception
+    {
+        int hilos = 4;
+        int jugadas = 50_000;
+
+        for (long semilla = 0; semilla < 5; semilla++)
+        {
+            int ancho = 512;
+            int alto = 512;
+            int minas = ancho * alto / 8;
+
+            // Con tantas vidas como minas la partida no termina antes de
+            // tiempo
+            BuscaminasConcurrente juego = new BuscaminasConcurrente(ancho, alto, minas, minas, semilla, true);
+            AtomicLong reveladas = new AtomicLong();
+            AtomicLong cambiosBandera = new AtomicLong();
+
+            CountDownLatch inicio = new CountDownLatch(1);
+            Thread[] jugadores = new Thread[hilos];
+
+            for (int h = 0; h < hilos; h++)
+            {
+                SplittableRandom azar = new SplittableRandom(semilla * hilos + h);
+
+                jugadores[h] = new Thread(() ->
+                {
+                    try
+                    {
+                        inicio.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+
+                    // Las jugadas se concentran en una zona para que los
+                    // hilos choquen seguido
+                    for (int j = 0; j < jugadas; j++)
+                    {
+                        int x = azar.nextInt(64);
+                        int y = azar.nextInt(64);
+
+                        if (azar.nextInt(10) == 0)
+                        {
+                            if (juego.marcarBandera(x, y))
+                                cambiosBandera.incrementAndGet();
+                        }
+                        else
+                            reveladas.addAndGet(juego.cavar(x, y));
+
+                        // De vez en cuando una apertura lejos de la zona
+                        if (azar.nextInt(1000) == 0)
+                            reveladas.addAndGet(juego.cavar(azar.nextInt(ancho), azar.nextInt(alto)));
+                    }
+                });
+                jugadores[h].start();
+            }
+
+            inicio.countDown();
+            for (Thread jugador : jugadores)
+                jugador.join();
+
+            int destapadas = 0;
+            int minasDestapadas = 0;
+            int tapadas = 0;
+            int banderas = 0;
+
+            for (int y = 0; y < alto; y++)
+                for (int x = 0; x < ancho; x++)
+                {
+                    boolean destapada = juego.estaDestapada(x, y);
+                    boolean mina = juego.hayMina(x, y);
+
+                    assertFalse(destapada && juego.tieneBandera(x, y));
+
+                    if (destapada)
+                        destapadas++;
+                    if (destapada && mina)
+                        minasDestapadas++;
+                    if (!destapada && !mina)
+                        tapadas++;
+                    if (juego.tieneBandera(x, y))
+                        banderas++;
+                }
+
+            String caso = "semilla " + semilla;
+            assertFalse(juego.isGameOver(), caso);
+            assertEquals(destapadas, reveladas.get(), caso);
+            assertEquals(tapadas, juego.getCasillasTapadasRestantes(), caso);
+            assertEquals(banderas, juego.getBanderasPuestas(), caso);
+            assertEquals(minas - minasDestapadas, juego.getVidasRestantes(), caso);
+        }
+    }
+
+    @Test
+    void quitarYPonerBanderasNoDaUnaVictoriaFalsa() throws Exception
+    {
+        int hilos = 4;
+        int vueltas = 200_000;
+
+        // Todas las casillas sin mina destapadas y todas las minas con
+        // bandera menos una. Cada hilo quita y vuelve a poner la bandera de
+        // una mina suya, en ese orden, así que siempre falta al menos una
+        // mina y la partida nunca se gana de verdad.
+        BuscaminasConcurrente juego = new BuscaminasConcurrente(8, 8, hilos + 1, 1, 11L, true);
+        int[] minas = new int[hilos + 1];
+        int numMinas = 0;
+
+        for (int y = 0; y < 8; y++)
+            for (int x = 0; x < 8; x++)
+                if (juego.hayMina(x, y))
+                    minas[numMinas++] = y * 8 + x;
+                else
+                    juego.cavar(x, y);
+
+        for (int m = 0; m < hilos; m++)
+            assertTrue(juego.marcarBandera(minas[m] % 8, minas[m] / 8));
+
+        assertEquals(0, juego.getCasillasTapadasRestantes());
+        assertFalse(juego.isGameOver());
+
+        CountDownLatch inicio = new CountDownLatch(1);
+        Thread[] jugadores = new Thread[hilos];
+
+        for (int h = 0; h < hilos; h++)
+        {
+            int x = minas[h] % 8;
+            int y = minas[h] / 8;
+
+            jugadores[h] = new Thread(() ->
+            {
+                try
+                {
+                    inicio.await();
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+
+                for (int v = 0; v < vueltas && !juego.isGameOver(); v++)
+                {
+                    juego.marcarBandera(x, y);   // Quita
+                    juego.marcarBandera(x, y);   // Pone
+                }
+            });
+            jugadores[h].start();
+        }
+
+        inicio.countDown();
+        for (Thread jugador : jugadores)
+            jugador.join();
+
+        assertFalse(juego.isGameOver());
+
+        // Con la última mina marcada sí se gana
+        assertTrue(juego.marcarBandera(minas[hilos] % 8, minas[hilos] / 8));
+        assertTrue(juego.isGameOver());
+        assertTrue(juego.isGanador());
+    }
+
+    private static void comparar(Buscaminas juego, BuscaminasConcurrente concurrente, String caso)
+    {
+        for (int y = 0; y < juego.getAlto(); y++)
+            for (int x = 0; x < juego.getAncho(); x++)
+            {
+                assertEquals(juego.hayMina(x, y), concurrente.hayMina(x, y), caso);
+                assertEquals(juego.estaDestapada(x, y), concurrente.estaDestapada(x, y), caso);
+                assertEquals(juego.tieneBandera(x, y), concurrente.tieneBandera(x, y), caso);
+            }
+
+        assertEquals(juego.getVidasRestantes(), concurrente.getVidasRestantes(), caso);
+        assertEquals(juego.getCasillasTapadasRestantes(), concurrente.getCasillasTapadasRestantes(), caso);
+        assertEquals(juego.getBanderasPuestas(), concurrente.getBanderasPuestas(), caso);
+        assertEquals(juego.isGameOver(), concurrente.isGameOver(), caso);
+        assertEquals(juego.isGanador(), concurrente.isGanador(), caso);
+    }
+}
@@ -0,0 +1,410 @@
+package mx.ibero;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link Buscaminas}.
+ *
+ * @author agent
+ */
+class BuscaminasTest
+{
+    @Test
+    void casillasFueraDelTableroFallan() throws Exception
+    {
+        Buscaminas juego = new Buscaminas(10, 8, 10, 3, 1L);
+        int[][] fuera = { { -1, 0 }, { 10, 0 }, { 0, -1 }, { 0, 8 }, { 10, 7 }, { -1, 8 } };
+
+        for (int[] casilla : fuera)
+        {
+            int x = casilla[0];
+            int y = casilla[1];
+
+            assertThrows(IndexOutOfBoundsException.class, () -> juego.cavar(x, y));
+            assertThrows(IndexOutOfBoundsException.class, () -> juego.marcarBandera(x, y));
+            assertThrows(IndexOutOfBoundsException.class, () -> juego.tieneBandera(x, y));
+            assertThrows(IndexOutOfBoundsException.class, () -> juego.hayMinasAlrededor(x, y));
+            assertThrows(IndexOutOfBoundsException.class, () -> juego.contarMinasAlrededor(x, y));
+
+            // Estas dos siempre han tratado el borde como destapado y con
+            // mina
+            assertTrue(juego.estaDestapada(x, y));
+            assertTrue(juego.hayMina(x, y));
+        }
+
+        // Ninguna jugada fuera del tablero cambió algo
+        assertEquals(3, juego.getVidasRestantes());
+        assertEquals(0, juego.getBanderasPuestas());
+        assertEquals(10 * 8 - 10, juego.getCasillasTapadasRestantes());
+        assertFalse(juego.tieneBandera(0, 1));
+    }
+
+    @Test
+    void mismaSemillaMismoTablero() throws Exception
+    {
+        int[][] configuraciones = {
+            { 9, 9, 10 }, { 16, 16, 40 }, { 30, 16, 99 }, { 50, 40, 1000 },
+            { 50, 40, 1500 }, { 7, 3, 20 }, { 7, 3, 21 }, { 1, 1, 1 }, { 200, 1, 3 }
+        };
+
+        for (int[] c : configuraciones)
+            for (long semilla = 0; semilla < 20; semilla++)
+            {
+                Buscaminas a = new Buscaminas(c[0], c[1], c[2], 1, semilla);
+                Buscaminas b = new Buscaminas(c[0], c[1], c[2], 1, semilla);
+                String caso = c[0] + "x" + c[1] + ", " + c[2] + " minas, semilla " + semilla;
+
+                assertArrayEquals(a.celdas(), b.celdas(), caso);
+                verificarTablero(a, caso);
+            }
+
+        // Con otra semilla el tablero cambia
+        int distintos = 0;
+        for (long semilla = 0; semilla < 20; semilla++)
+        {
+            Buscaminas a = new Buscaminas(30, 16, 99, 1, semilla);
+            Buscaminas b = new Buscaminas(30, 16, 99, 1, semilla + 1000);
+
+            if (!Arrays.equals(a.celdas(), b.celdas()))
+                distintos++;
+        }
+        assertEquals(20, distintos);
+    }
+
+    @Test
+    void lasMinasSeRepartenIgual() throws Exception
+    {
+        // Cada casilla debe tener mina en la misma proporción, también cuando
+        // hay más minas que casillas libres y se eligen las libres
+        int[][] configuraciones = { { 4, 4, 5 }, { 4, 4, 12 } };
+        int partidas = 16_000;
+
+        for (int[] c : configuraciones)
+        {
+            int casillas = c[0] * c[1];
+            int[] veces = new int[casillas];
+
+            for (long semilla = 0; semilla < partidas; semilla++)
+            {
+                byte[] celdas = new Buscaminas(c[0], c[1], c[2], 1, semilla).celdas();
+
+                for (int i = 0; i < casillas; i++)
+                    if ((celdas[i] & Buscaminas.MINA) != 0)
+                        veces[i]++;
+            }
+
+            double esperado = (double) partidas * c[2] / casillas;
+            for (int i = 0; i < casillas; i++)
+                assertTrue(Math.abs(veces[i] - esperado) < 0.05 * esperado,
+                        c[2] + " minas, casilla " + i + ": " + veces[i] + " veces, se esperaban " + esperado);
+        }
+    }
+
+    @Test
+    void elPrimerClicNuncaTieneMinasCerca() throws Exception
+    {
+        Random azar = new Random(7);
+
+        for (int partida = 0; partida < 2000; partida++)
+        {
+            int ancho = 1 + azar.nextInt(30);
+            int alto = 1 + azar.nextInt(30);
+            int casillas = ancho * alto;
+            int minas = 1 + azar.nextInt(casillas);
+            int x = azar.nextInt(ancho);
+            int y = azar.nextInt(alto);
+            long semilla = azar.nextLong();
+            String caso = ancho + "x" + alto + ", " + minas + " minas, clic en (" + x + ", " + y + ")";
+
+            Buscaminas juego = new Buscaminas(ancho, alto, minas, 1, semilla, true);
+            Buscaminas otro = new Buscaminas(ancho, alto, minas, 1, semilla, true);
+            Buscaminas preparado = new Buscaminas(ancho, alto, minas, 1, semilla, true);
+            preparado.prepararTablero();
+            assertFalse(juego.isTableroGenerado(), caso);
+            assertFalse(preparado.isTableroGenerado(), caso);
+
+            juego.cavar(x, y);
+            otro.cavar(x, y);
+            preparado.cavar(x, y);
+
+            // Preparar el tablero antes no cambia el resultado
+            assertTrue(juego.isTableroGenerado(), caso);
+            assertArrayEquals(juego.celdas(), otro.celdas(), caso);
+            comparar(juego, preparado, caso);
+            verificarTablero(juego, caso);
+
+            int vecinas = (Math.min(ancho - 1, x + 1) - Math.max(0, x - 1) + 1)
+                    * (Math.min(alto - 1, y + 1) - Math.max(0, y - 1) + 1);
+
+            if (minas <= casillas - vecinas)
+            {
+                // Hay lugar para dejar libres la casilla y sus vecinas
+                for (int vy = y - 1; vy <= y + 1; vy++)
+                    for (int vx = x - 1; vx <= x + 1; vx++)
+                        if (vx >= 0 && vx < ancho && vy >= 0 && vy < alto)
+                            assertFalse(juego.hayMina(vx, vy), caso);
+
+                assertEquals(0, juego.contarMinasAlrededor(x, y), caso);
+            }
+
+            if (minas < casillas)
+            {
+                assertFalse(juego.hayMina(x, y), caso);
+                assertEquals(1, juego.getVidasRestantes(), caso);
+                assertFalse(juego.isGameOver() && !juego.isGanador(), caso);
+                assertTrue(juego.estaDestapada(x, y), caso);
+            }
+        }
+    }
+
+    @Test
+    void elTableroPreparadoNoSeVuelveAGenerar() throws Exception
+    {
+        Buscaminas juego = new Buscaminas(30, 16, 99, 1, 42, true);
+        juego.prepararTablero();
+        assertTrue(juego.isTableroPreparado());
+        assertFalse(juego.isTableroGenerado());
+
+        // Mientras no se cave, las minas no se ven
+        assertFalse(juego.hayMinasAlrededor(0, 0));
+        assertEquals(0, contarMinas(juego.mapaDeMinas()));
+
+        // Se altera a mano la colocación: una mina lejos del clic pasa a otra
+        // casilla libre también lejos, y la pista de una esquina queda 5 por
+        // encima. Si cavar() volviera a poner minas o a calcular pistas, los
+        // dos cambios desaparecerían.
+        int clicX = 15, clicY = 8;
+        byte[] celdas = juego.celdas();
+        int mina = -1, libre = -1;
+
+        for (int i = 0; i < celdas.length && (mina < 0 || libre < 0); i++)
+        {
+            int x = i % 30, y = i / 30;
+            if (Math.abs(x - clicX) <= 3 && Math.abs(y - clicY) <= 3)
+                continue;
+
+            if ((celdas[i] & Buscaminas.MINA) != 0 && mina < 0)
+                mina = i;
+            else if ((celdas[i] & Buscaminas.MINA) == 0 && libre < 0)
+                libre = i;
+        }
+
+        celdas[mina] &= ~Buscaminas.MINA;
+        celdas[libre] |= Buscaminas.MINA;
+        recalcularPistas(celdas, 30, 16);
+
+        int esquina = 15 * 30 + 29;
+        celdas[esquina] += 5;
+
+        boolean[] antes = new boolean[celdas.length];
+        for (int i = 0; i < celdas.length; i++)
+            antes[i] = (celdas[i] & Buscaminas.MINA) != 0;
+
+        juego.cavar(clicX, clicY);
+        assertTrue(juego.isTableroGenerado());
+        assertFalse(juego.isTableroPreparado());
+
+        // Las minas de fuera del 3x3 siguen donde estaban, incluida la movida
+        // a mano, y solo aparecen tantas como salieron del 3x3
+        boolean[][] despues = juego.mapaDeMinas();
+        int salieron = 0, entraron = 0;
+
+        for (int i = 0; i < celdas.length; i++)
+        {
+            int x = i % 30, y = i / 30;
+            boolean zona = Math.abs(x - clicX) <= 1 && Math.abs(y - clicY) <= 1;
+
+            if (zona)
+            {
+                assertFalse(despues[y][x]);
+                if (antes[i])
+                    salieron++;
+            }
+            else if (antes[i])
+                assertTrue(despues[y][x], "(" + x + ", " + y + ")");
+            else if (despues[y][x])
+                entraron++;
+        }
+
+        assertEquals(salieron, entraron);
+        assertFalse(despues[mina / 30][mina % 30]);
+        assertTrue(despues[libre / 30][libre % 30]);
+        assertEquals(99, contarMinas(despues));
+
+        // Las pistas se actualizaron solo alrededor de las minas movidas: la
+        // esquina sigue 5 por encima y las demás son correctas
+        for (int y = 0; y < 16; y++)
+            for (int x = 0; x < 30; x++)
+            {
+                int cuenta = 0;
+                for (int vy = Math.max(0, y - 1); vy <= Math.min(15, y + 1); vy++)
+                    for (int vx = Math.max(0, x - 1); vx <= Math.min(29, x + 1); vx++)
+                        if (despues[vy][vx])
+                            cuenta++;
+
+                int extra = y * 30 + x == esquina ? 5 : 0;
+                assertEquals(cuenta + extra, juego.contarMinasAlrededor(x, y), "(" + x + ", " + y + ")");
+            }
+    }
+
+    @Test
+    void resetDejaLaPartidaComoNueva() throws Exception
+    {
+        Random azar = new Random(19);
+
+        for (long semilla = 0; semilla < 50; semilla++)
+        {
+            int ancho = 1 + azar.nextInt(30);
+            int alto = 1 + azar.nextInt(30);
+            int minas = 1 + azar.nextInt(ancho * alto / 4 + 1);
+            Buscaminas juego = new Buscaminas(ancho, alto, minas, 1, semilla);
+            Buscaminas nuevo = new Buscaminas(ancho, alto, minas, 1, semilla);
+            String caso = "semilla " + semilla;
+
+            for (int vuelta = 0; vuelta < 10; vuelta++)
+            {
+                for (int j = 0; j < 40; j++)
+                {
+                    int x = azar.nextInt(ancho);
+                    int y = azar.nextInt(alto);
+
+                    if (azar.nextInt(4) == 0)
+                        juego.marcarBandera(x, y);
+                    else
+                        juego.cavar(x, y);
+                }
+
+                // reset() no recorre el tablero: el arreglo de casillas no
+                // cambia, solo la generación
+                byte[] crudo = celdasSinActualizar(juego).clone();
+                juego.reset();
+                assertArrayEquals(crudo, celdasSinActualizar(juego), caso);
+
+                assertEquals(0, juego.getCambios().tamano(), caso);
+                assertFalse(juego.puedeDeshacer(), caso);
+                comparar(nuevo, juego, caso + ", vuelta " + vuelta);
+            }
+        }
+    }
+
+    @Test
+    void resetAlDarLaVueltaLaGeneracionLimpiaElTablero() throws Exception
+    {
+        Buscaminas juego = new Buscaminas(30, 16, 20, 1, 3L);
+        Buscaminas nuevo = new Buscaminas(30, 16, 20, 1, 3L);
+
+        // Filas destapadas en la generación 0 que no se vuelven a tocar
+        for (int y = 0; y < 16; y++)
+            for (int x = 0; x < 30; x++)
+                if (!juego.hayMina(x, y))
+                    juego.cavar(x, y);
+
+        // Como si se hubiera llamado reset() 2^32 - 1 veces sin tocar esas
+        // filas; el siguiente vuelve a la generación 0
+        Field generacion = Buscaminas.class.getDeclaredField("generacion");
+        generacion.setAccessible(true);
+        generacion.setInt(juego, -1);
+
+        juego.reset();
+        assertEquals(0, generacion.getInt(juego));
+        comparar(nuevo, juego, "vuelta de la generación");
+    }
+
+    /**
+     * Arreglo interno de casillas tal como está, sin limpiar las filas de
+     * generaciones anteriores como hace celdas().
+     */
+    private static byte[] celdasSinActualizar(Buscaminas juego) throws ReflectiveOperationException
+    {
+        Field celdas = Buscaminas.class.getDeclaredField("celdas");
+        celdas.setAccessible(true);
+        return (byte[]) celdas.get(juego);
+    }
+
+    /**
+     * Minas marcadas en un mapa.
+     */
+    private static int contarMinas(boolean[][] mapa)
+    {
+        int total = 0;
+        for (boolean[] fila : mapa)
+            for (boolean mina : fila)
+                if (mina)
+                    total++;
+
+        return total;
+    }
+
+    /**
+     * Vuelve a escribir todas las pistas de un arreglo de casillas a partir
+     * de sus bits de mina.
+     */
+    private static void recalcularPistas(byte[] celdas, int ancho, int alto)
+    {
+        for (int y = 0; y < alto; y++)
+            for (int x = 0; x < ancho; x++)
+            {
+                int cuenta = 0;
+                for (int vy = Math.max(0, y - 1); vy <= Math.min(alto - 1, y + 1); vy++)
+                    for (int vx = Math.max(0, x - 1); vx <= Math.min(ancho - 1, x + 1); vx++)
+                        if ((celdas[vy * ancho + vx] & Buscaminas.MINA) != 0)
+                            cuenta++;
+
+                int i = y * ancho + x;
+                celdas[i] = (byte) ((celdas[i] & ~Buscaminas.PISTA) | cuenta);
+            }
+    }
+
+    /**
+     * Compara las casillas y los contadores de dos partidas.
+     */
+    private static void comparar(Buscaminas esperado, Buscaminas real, String caso)
+    {
+        assertArrayEquals(esperado.celdas(), real.celdas(), caso);
+        assertEquals(esperado.getVidasRestantes(), real.getVidasRestantes(), caso);
+        assertEquals(esperado.getCasillasTapadasRestantes(), real.getCasillasTapadasRestantes(), caso);
+        assertEquals(esperado.getMinasSinBanderaRestantes(), real.getMinasSinBanderaRestantes(), caso);
+        assertEquals(esperado.getBanderasPuestas(), real.getBanderasPuestas(), caso);
+        assertEquals(esperado.isGameOver(), real.isGameOver(), caso);
+        assertEquals(esperado.isGanador(), real.isGanador(), caso);
+    }
+
+    /**
+     * Comprueba el número de minas y que cada pista cuente las minas de su
+     * casilla y sus vecinas.
+     */
+    static void verificarTablero(Buscaminas juego, String caso)
+    {
+        int ancho = juego.getAncho();
+        int alto = juego.getAlto();
+        boolean[][] minas = juego.mapaDeMinas();
+        int total = 0;
+
+        for (int y = 0; y < alto; y++)
+            for (int x = 0; x < ancho; x++)
+            {
+                if (minas[y][x])
+                    total++;
+
+                int cuenta = 0;
+                for (int vy = Math.max(0, y - 1); vy <= Math.min(alto - 1, y + 1); vy++)
+                    for (int vx = Math.max(0, x - 1); vx <= Math.min(ancho - 1, x + 1); vx++)
+                        if (minas[vy][vx])
+                            cuenta++;
+
+                assertEquals(cuenta, juego.contarMinasAlrededor(x, y), caso + ", pista de (" + x + ", " + y + ")");
+            }
+
+        assertEquals(juego.getTotalMinas(), total, caso);
+    }
+}
@@ -0,0 +1,75 @@
+package mx.ibero;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link Cambios}: después de cada jugada la lista tiene
+ * exactamente las casillas que se destaparon o cambiaron de bandera, cada
+ * una una sola vez.
+ *
+ * @author agent
+ */
+class CambiosTest
+{
+    private static final int VISIBLE = Buscaminas.DESTAPADA | Buscaminas.BANDERA;
+
+    @Test
+    void laListaTieneLasCasillasQueCambiaron() throws Exception
+    {
+        for (long semilla = 0; semilla < 100; semilla++)
+        {
+            Random azar = new Random(semilla);
+            int ancho = 1 + azar.nextInt(40);
+            int alto = 1 + azar.nextInt(40);
+            int minas = 1 + azar.nextInt(ancho * alto / 5 + 1);
+
+            Buscaminas juego = new Buscaminas(ancho, alto, minas, minas, semilla, azar.nextBoolean());
+            String caso = "semilla " + semilla;
+
+            for (int j = 0; j < 200; j++)
+            {
+                byte[] antes = juego.celdas().clone();
+                int x = azar.nextInt(ancho);
+                int y = azar.nextInt(alto);
+                int tipo = azar.nextInt(10);
+
+                if (tipo < 6)
+                    juego.cavar(x, y);
+                else if (tipo < 8)
+                    juego.marcarBandera(x, y);
+                else if (tipo < 9)
+                    juego.deshacer();
+                else
+                    juego.rehacer();
+
+                byte[] despues = juego.celdas();
+                Cambios cambios = juego.getCambios();
+                boolean[] enLista = new boolean[ancho * alto];
+
+                for (int n = 0; n < cambios.tamano(); n++)
+                {
+                    int posicion = cambios.getPosicion(n);
+
+                    assertEquals(posicion % ancho, cambios.getX(n), caso);
+                    assertEquals(posicion / ancho, cambios.getY(n), caso);
+                    assertTrue(!enLista[posicion], caso + ": casilla repetida " + posicion);
+                    enLista[posicion] = true;
+                }
+
+                for (int i = 0; i < despues.length; i++)
+                {
+                    boolean cambio = ((antes[i] ^ despues[i]) & VISIBLE) != 0;
+                    assertEquals(cambio, enLista[i], caso + ", jugada " + j + ", casilla " + i);
+                }
+            }
+
+            juego.reset();
+            assertEquals(0, juego.getCambios().tamano(), caso);
+        }
+    }
+}
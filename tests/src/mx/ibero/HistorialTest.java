@@ -0,0 +1,211 @@
+package mx.ibero;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de deshacer y rehacer en {@link Buscaminas}: deshacer una jugada
+ * devuelve exactamente el estado anterior y rehacerla el posterior, con las
+ * casillas y todos los contadores.
+ *
+ * @author agent
+ */
+class HistorialTest
+{
+    @Test
+    void deshacerYRehacerRestauranElEstado() throws Exception
+    {
+        for (long semilla = 0; semilla < 100; semilla++)
+        {
+            Random azar = new Random(semilla);
+            int ancho = 2 + azar.nextInt(30);
+            int alto = 2 + azar.nextInt(30);
+            int minas = 1 + azar.nextInt(ancho * alto / 5 + 1);
+
+            Buscaminas juego = new Buscaminas(ancho, alto, minas, 1 + azar.nextInt(minas), semilla, false);
+            juego.setSoportaBanderas(azar.nextInt(4) != 0);
+
+            // Estados antes de cada jugada que todavía se puede deshacer
+            Deque<Estado> anteriores = new ArrayDeque<>();
+            String caso = "semilla " + semilla;
+
+            for (int j = 0; j < 300 && !juego.isGameOver(); j++)
+            {
+                Estado antes = new Estado(juego);
+                int x = azar.nextInt(ancho);
+                int y = azar.nextInt(alto);
+
+                if (azar.nextInt(4) == 0)
+                    juego.marcarBandera(x, y);
+                else
+                    juego.cavar(x, y);
+
+                Estado despues = new Estado(juego);
+
+                // Una jugada sin efecto no se guarda
+                if (despues.equals(antes))
+                    continue;
+
+                anteriores.push(antes);
+                assertTrue(juego.puedeDeshacer(), caso);
+
+                assertTrue(juego.deshacer(), caso);
+                antes.comparar(juego, caso + ", deshacer jugada " + j);
+
+                assertTrue(juego.rehacer(), caso);
+                despues.comparar(juego, caso + ", rehacer jugada " + j);
+                assertFalse(juego.puedeRehacer(), caso);
+
+                // De vez en cuando se deshacen varias jugadas seguidas y se
+                // vuelven a hacer todas
+                if (azar.nextInt(20) == 0)
+                {
+                    Deque<Estado> deshechas = new ArrayDeque<>();
+
+                    while (!anteriores.isEmpty() && deshechas.size() < 10)
+                    {
+                        assertTrue(juego.deshacer(), caso);
+                        Estado estado = anteriores.pop();
+                        estado.comparar(juego, caso + ", deshacer varias");
+                        deshechas.push(estado);
+                    }
+
+                    while (deshechas.size() > 1)
+                    {
+                        assertTrue(juego.rehacer(), caso);
+                        anteriores.push(deshechas.pop());
+                        deshechas.peek().comparar(juego, caso + ", rehacer varias");
+                    }
+
+                    assertTrue(juego.rehacer(), caso);
+                    anteriores.push(deshechas.pop());
+                    despues.comparar(juego, caso + ", rehacer varias");
+                }
+            }
+        }
+    }
+
+    @Test
+    void deshacerElPrimerClicConservaLasMinas() throws Exception
+    {
+        for (long semilla = 0; semilla < 200; semilla++)
+        {
+            Random azar = new Random(semilla);
+            int ancho = 4 + azar.nextInt(20);
+            int alto = 4 + azar.nextInt(20);
+            int minas = 1 + azar.nextInt(ancho * alto / 3);
+            int vidas = Math.min(3, minas);
+
+            Buscaminas juego = new Buscaminas(ancho, alto, minas, vidas, semilla, true);
+            String caso = "semilla " + semilla;
+
+            // Banderas antes de que existan las minas; se cuentan como si
+            // todas fueran correctas hasta el primer clic
+            int banderas = azar.nextInt(6);
+            for (int b = 0; b < banderas; b++)
+                juego.marcarBandera(azar.nextInt(ancho), azar.nextInt(alto));
+
+            int x, y;
+            do
+            {
+                x = azar.nextInt(ancho);
+                y = azar.nextInt(alto);
+            }
+            while (juego.tieneBandera(x, y));
+
+            juego.cavar(x, y);
+            assertTrue(juego.isTableroGenerado(), caso);
+            Estado despues = new Estado(juego);
+
+            // Deshacer el primer clic tapa las casillas pero deja las minas,
+            // las banderas y los contadores corregidos para esas minas
+            assertTrue(juego.deshacer(), caso);
+            assertFalse(juego.puedeDeshacer(), caso);
+            assertFalse(juego.deshacer(), caso);
+
+            Estado generado = new Estado(juego);
+            for (int i = 0; i < generado.celdas.length; i++)
+            {
+                assertEquals(0, generado.celdas[i] & Buscaminas.DESTAPADA, caso);
+                assertEquals(despues.celdas[i] & ~Buscaminas.DESTAPADA, generado.celdas[i] & 0xFF, caso);
+            }
+
+            assertEquals(minasSinBandera(juego), juego.getMinasSinBanderaRestantes(), caso);
+            assertEquals(vidas, juego.getVidasRestantes(), caso);
+            assertFalse(juego.isGameOver(), caso);
+
+            // Rehacer y volver a deshacer es exacto a partir de aquí
+            assertTrue(juego.rehacer(), caso);
+            despues.comparar(juego, caso + ", rehacer el primer clic");
+            assertTrue(juego.deshacer(), caso);
+            generado.comparar(juego, caso + ", deshacer otra vez");
+        }
+    }
+
+    /**
+     * Minas sin bandera más banderas mal puestas, contadas en el tablero.
+     * Es lo que lleva la partida mientras no se ha cavado ninguna mina.
+     */
+    private static int minasSinBandera(Buscaminas juego)
+    {
+        int total = juego.getTotalMinas();
+
+        for (byte celda : juego.celdas())
+            if ((celda & Buscaminas.BANDERA) != 0)
+                total += (celda & Buscaminas.MINA) != 0 ? -1 : 1;
+
+        return total;
+    }
+
+    /**
+     * Copia de las casillas y los contadores de una partida.
+     */
+    private static final class Estado
+    {
+        final byte[] celdas;
+        final int[] contadores;
+
+        Estado(Buscaminas juego)
+        {
+            celdas = juego.celdas().clone();
+            contadores = new int[] {
+                juego.getVidasRestantes(),
+                juego.getCasillasTapadasRestantes(),
+                juego.getMinasSinBanderaRestantes(),
+                juego.getBanderasPuestas(),
+                juego.isGameOver() ? 1 : 0,
+                juego.isGanador() ? 1 : 0
+            };
+        }
+
+        void comparar(Buscaminas juego, String caso)
+        {
+            Estado actual = new Estado(juego);
+            assertArrayEquals(celdas, actual.celdas, caso);
+            assertArrayEquals(contadores, actual.contadores, caso);
+        }
+
+        @Override
+        public boolean equals(Object otro)
+        {
+            return otro instanceof Estado
+                    && Arrays.equals(celdas, ((Estado) otro).celdas)
+                    && Arrays.equals(contadores, ((Estado) otro).contadores);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Arrays.hashCode(celdas);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package mx.ibero;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de {@link RegistroJugadas} y {@link Reproductor}: al reproducir la
+ * bitácora de una partida se debe llegar al mismo estado después de cada
+ * jugada.
+ *
+ * @author agent
+ */
+class RegistroJugadasTest
+{
+    @Test
+    void reproducirDaLaMismaPartida() throws Exception
+    {
+        for (long semilla = 0; semilla < 20; semilla++)
+        {
+            Random azar = new Random(semilla);
+            Buscaminas juego = new Buscaminas(16, 16, 40, 40, semilla, azar.nextBoolean());
+            RegistroJugadas registro = new RegistroJugadas(juego, 1_000_000L);
+
+            // Estado después de cada jugada; el 0 es la partida sin jugar
+            List<byte[]> celdas = new ArrayList<>();
+            List<long[]> contadores = new ArrayList<>();
+            celdas.add(juego.celdas().clone());
+            contadores.add(contadores(juego));
+
+            // Más jugadas que Reproductor.INTERVALO, para usar fotogramas
+            int jugadas = 2 * Reproductor.INTERVALO + azar.nextInt(500);
+            long instante = 1_000_000L;
+
+            for (int j = 0; j < jugadas; j++)
+            {
+                instante += azar.nextInt(2000);
+                int x = azar.nextInt(juego.getAncho());
+                int y = azar.nextInt(juego.getAlto());
+                int tipo = azar.nextInt(100);
+
+                if (tipo < 60)
+                {
+                    juego.cavar(x, y);
+                    registro.cavar(x, y, instante);
+                }
+                else if (tipo < 80)
+                {
+                    juego.marcarBandera(x, y);
+                    registro.marcarBandera(x, y, instante);
+                }
+                else if (tipo < 88)
+                {
+                    juego.deshacer();
+                    registro.deshacer(instante);
+                }
+                else if (tipo < 96)
+                {
+                    juego.rehacer();
+                    registro.rehacer(instante);
+                }
+                else
+                {
+                    juego.reset();
+                    registro.reset(instante);
+                }
+
+                celdas.add(juego.celdas().clone());
+                contadores.add(contadores(juego));
+            }
+
+            assertEquals(jugadas, registro.getJugadas());
+
+            Reproductor reproductor = new Reproductor(registro.toByteArray());
+            assertEquals(jugadas, reproductor.totalJugadas());
+
+            // Hacia adelante, una por una
+            for (int j = 0; j <= jugadas; j++)
+            {
+                comparar(celdas.get(j), contadores.get(j), reproductor, "semilla " + semilla + ", jugada " + j);
+
+                if (j < jugadas)
+                    reproductor.avanzar();
+            }
+
+            // Saltos al azar, hacia atrás y hacia adelante
+            for (int k = 0; k < 200; k++)
+            {
+                int destino = azar.nextInt(jugadas + 1);
+                reproductor.irA(destino);
+                comparar(celdas.get(destino), contadores.get(destino), reproductor, "semilla " + semilla + ", salto a " + destino);
+            }
+
+            reproductor.irAlFinal();
+            comparar(celdas.get(jugadas), contadores.get(jugadas), reproductor, "semilla " + semilla + ", final");
+            assertEquals(1_000_000L, reproductor.getInicio());
+            assertEquals(instante - 1_000_000L, reproductor.getInstante());
+            assertEquals(instante - 1_000_000L, reproductor.duracion());
+        }
+    }
+
+    @Test
+    void guardarEscribeLaBitacora() throws Exception
+    {
+        Buscaminas juego = new Buscaminas(30, 16, 99, 3, 5L, true);
+        RegistroJugadas registro = new RegistroJugadas(juego, 0);
+
+        juego.cavar(15, 8);
+        registro.cavar(15, 8, 10);
+        juego.marcarBandera(0, 0);
+        registro.marcarBandera(0, 0, 20);
+
+        Path archivo = Files.createTempFile("partida", ".jugadas");
+
+        try
+        {
+            registro.guardar(archivo);
+            byte[] datos = Files.readAllBytes(archivo);
+            assertArrayEquals(registro.toByteArray(), datos);
+
+            Reproductor reproductor = new Reproductor(datos);
+            reproductor.irAlFinal();
+            comparar(juego.celdas(), contadores(juego), reproductor, "archivo");
+        }
+        finally
+        {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    @Test
+    void rechazaBitacorasDanadas() throws Exception
+    {
+        Buscaminas juego = new Buscaminas(30, 16, 99, 3, 5L, true);
+        RegistroJugadas registro = new RegistroJugadas(juego, 0);
+        registro.cavar(15, 8, 10);
+
+        byte[] datos = registro.toByteArray();
+
+        // Versión desconocida
+        byte[] otra = datos.clone();
+        otra[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> new Reproductor(otra));
+
+        // Encabezado cortado
+        assertThrows(IllegalArgumentException.class, () -> new Reproductor(java.util.Arrays.copyOf(datos, 10)));
+    }
+
+    private static long[] contadores(Buscaminas juego)
+    {
+        return new long[] {
+            juego.getVidasRestantes(),
+            juego.getCasillasTapadasRestantes(),
+            juego.getMinasSinBanderaRestantes(),
+            juego.getBanderasPuestas(),
+            juego.isGameOver() ? 1 : 0,
+            juego.isGanador() ? 1 : 0
+        };
+    }
+
+    private static void comparar(byte[] celdas, long[] contadores, Reproductor reproductor, String caso)
+    {
+        assertArrayEquals(celdas, reproductor.getJuego().celdas(), caso);
+        assertArrayEquals(contadores, contadores(reproductor.getJuego()), caso);
+    }
+}
@@ -0,0 +1,102 @@
+package mx.ibero;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link ReservaTableros}: la cola se llena en segundo plano sin
+ * pasar del límite de bytes, con las minas ya colocadas.
+ *
+ * @author agent
+ */
+class ReservaTablerosTest
+{
+    @Test
+    void llenaLaColaHastaSuCapacidad() throws Exception
+    {
+        ReservaTableros reserva = new ReservaTableros(3);
+        Buscaminas juego = reserva.tomar(30, 16, 99, 1);
+
+        assertEquals(30, juego.getAncho());
+        assertEquals(16, juego.getAlto());
+        assertEquals(99, juego.getTotalMinas());
+        assertTrue(esperarDisponibles(reserva, 3));
+
+        // La siguiente sale de la cola
+        reserva.tomar(30, 16, 99, 1);
+        assertTrue(reserva.getTasaAciertos() > 0);
+    }
+
+    @Test
+    void noPasaDelMaximoDeBytes() throws Exception
+    {
+        // Caben dos partidas de este tamaño, aunque la capacidad sea mayor
+        int lado = 1400;
+        assertEquals(2, ReservaTableros.MAXIMO_BYTES / ReservaTableros.bytesPartida(lado, lado));
+        ReservaTableros reserva = new ReservaTableros(8);
+
+        reserva.tomar(lado, lado, 10, 1);
+        assertTrue(esperarDisponibles(reserva, 2));
+        Thread.sleep(200);
+        assertEquals(2, reserva.getDisponibles());
+
+        // Una partida más grande que el máximo se guarda sola, y cambiar a
+        // ella descarta las anteriores
+        int grande = (int) Math.sqrt(ReservaTableros.MAXIMO_BYTES) + 1;
+        assertTrue(ReservaTableros.bytesPartida(grande, grande) > ReservaTableros.MAXIMO_BYTES);
+
+        reserva.tomar(grande, grande, 10, 1);
+        assertTrue(esperarDisponibles(reserva, 1));
+        Thread.sleep(200);
+        assertEquals(1, reserva.getDisponibles());
+
+        Buscaminas juego = reserva.tomar(grande, grande, 10, 1);
+        assertEquals(grande, juego.getAncho());
+        assertTrue(reserva.getTasaAciertos() > 0);
+    }
+
+    @Test
+    void lasPartidasDeLaColaLleganPreparadas() throws Exception
+    {
+        ReservaTableros reserva = new ReservaTableros(2);
+
+        // La primera no estaba en la cola: se crea al momento, sin preparar
+        Buscaminas primera = reserva.tomar(30, 16, 99, 1);
+        assertFalse(primera.isTableroPreparado());
+        assertTrue(esperarDisponibles(reserva, 2));
+
+        // La de la cola ya tiene minas y pistas; el primer clic solo aparta
+        // las minas de junto a la casilla, y el tablero queda igual que el de
+        // una partida nueva con la misma semilla
+        Buscaminas juego = reserva.tomar(30, 16, 99, 1);
+        assertTrue(juego.isTableroPreparado());
+        assertFalse(juego.isTableroGenerado());
+
+        Buscaminas nueva = new Buscaminas(30, 16, 99, 1, juego.getSemilla(), true);
+        juego.cavar(4, 4);
+        nueva.cavar(4, 4);
+
+        assertTrue(juego.isTableroGenerado());
+        assertArrayEquals(nueva.celdas(), juego.celdas());
+        BuscaminasTest.verificarTablero(juego, "partida de la reserva");
+
+        for (int y = 3; y <= 5; y++)
+            for (int x = 3; x <= 5; x++)
+                assertFalse(juego.hayMina(x, y));
+    }
+
+    /**
+     * Espera hasta 10 segundos a que la cola tenga el número de partidas.
+     */
+    private static boolean esperarDisponibles(ReservaTableros reserva, int partidas) throws InterruptedException
+    {
+        for (int i = 0; i < 1000 && reserva.getDisponibles() < partidas; i++)
+            Thread.sleep(10);
+
+        return reserva.getDisponibles() == partidas;
+    }
+}
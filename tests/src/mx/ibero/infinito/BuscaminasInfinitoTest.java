@@ -0,0 +1,67 @@
+package mx.ibero.infinito;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link BuscaminasInfinito}: con un límite de apertura pequeño
+ * las aperturas se reparten entre varias llamadas, pero al terminarlas el
+ * tablero queda igual que sin límite.
+ *
+ * @author agent
+ */
+class BuscaminasInfinitoTest
+{
+    private static final int RADIO = 200;
+
+    @Test
+    void lasAperturasPendientesNoSePierden() throws Exception
+    {
+        for (long semilla = 0; semilla < 10; semilla++)
+        {
+            try (BuscaminasInfinito conLimite = new BuscaminasInfinito(semilla, 0.12, 1000);
+                 BuscaminasInfinito sinLimite = new BuscaminasInfinito(semilla, 0.12, 1000))
+            {
+                conLimite.setLimiteApertura(20);
+                sinLimite.setLimiteApertura(Integer.MAX_VALUE);
+
+                // Varias jugadas seguidas, cada una antes de que termine la
+                // apertura de la anterior
+                Random azar = new Random(semilla);
+                for (int j = 0; j < 30; j++)
+                {
+                    int x = azar.nextInt(RADIO) - RADIO / 2;
+                    int y = azar.nextInt(RADIO) - RADIO / 2;
+
+                    conLimite.cavar(x, y);
+                    sinLimite.cavar(x, y);
+                    assertFalse(sinLimite.hayAperturaPendiente());
+                }
+
+                while (conLimite.hayAperturaPendiente())
+                    assertTrue(conLimite.continuarApertura() > 0);
+
+                String caso = "semilla " + semilla;
+                assertEquals(sinLimite.getCasillasDestapadas(), conLimite.getCasillasDestapadas(), caso);
+                assertEquals(sinLimite.getMinasCavadas(), conLimite.getMinasCavadas(), caso);
+
+                for (int y = -RADIO; y <= RADIO; y++)
+                    for (int x = -RADIO; x <= RADIO; x++)
+                    {
+                        assertEquals(sinLimite.estaDestapada(x, y), conLimite.estaDestapada(x, y), caso);
+
+                        if (conLimite.estaDestapada(x, y) && !conLimite.hayMina(x, y) && conLimite.contarMinasAlrededor(x, y) == 0)
+                            for (int vy = y - 1; vy <= y + 1; vy++)
+                                for (int vx = x - 1; vx <= x + 1; vx++)
+                                    assertTrue(conLimite.estaDestapada(vx, vy),
+                                            caso + ": (" + vx + ", " + vy + ") tapada junto a una casilla vacía");
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package mx.ibero.servidor;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de los varints de {@link Protocolo}.
+ *
+ * @author agent
+ */
+class ProtocoloTest
+{
+    @Test
+    void varintIdaYVuelta() throws IOException
+    {
+        int[] valores = { 0, 1, 127, 128, 16_383, 16_384, 1 << 21, 1 << 28, Integer.MAX_VALUE };
+
+        for (int valor : valores)
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Protocolo.escribirVarint(new DataOutputStream(bytes), valor);
+
+            assertEquals(valor, Protocolo.leerVarint(leer(bytes.toByteArray())));
+        }
+    }
+
+    @Test
+    void rechazaVarintsNegativosOLargos()
+    {
+        // -1 como int sin signo: cinco bytes, el último con el bit de signo
+        assertThrows(IOException.class, () -> Protocolo.leerVarint(leer(0xFF, 0xFF, 0xFF, 0xFF, 0x0F)));
+
+        // Integer.MAX_VALUE + 1
+        assertThrows(IOException.class, () -> Protocolo.leerVarint(leer(0x80, 0x80, 0x80, 0x80, 0x08)));
+
+        // Seis bytes
+        assertThrows(IOException.class, () -> Protocolo.leerVarint(leer(0x80, 0x80, 0x80, 0x80, 0x80, 0x01)));
+
+        // Flujo cortado
+        assertThrows(IOException.class, () -> Protocolo.leerVarint(leer(0x80)));
+    }
+
+    private static DataInputStream leer(byte[] datos)
+    {
+        return new DataInputStream(new ByteArrayInputStream(datos));
+    }
+
+    private static DataInputStream leer(int... datos)
+    {
+        byte[] bytes = new byte[datos.length];
+        for (int i = 0; i < datos.length; i++)
+            bytes[i] = (byte) datos[i];
+
+        return leer(bytes);
+    }
+}
@@ -0,0 +1,76 @@
+package mx.ibero.solver;
+
+import mx.ibero.Buscaminas;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link Solucionador}: sus deducciones deben ser siempre
+ * correctas, sin importar cuántas haga.
+ *
+ * @author agent
+ */
+class SolucionadorTest
+{
+    /**
+     * Juega partidas expertas usando solo las deducciones y comprueba cada
+     * una contra las minas reales del tablero.
+     */
+    @Test
+    void nuncaSeEquivoca() throws Exception
+    {
+        Solucionador solucionador = new Solucionador();
+        int deducidas = 0;
+
+        for (long semilla = 0; semilla < 200; semilla++)
+        {
+            Buscaminas juego = new Buscaminas(30, 16, 99, 1, semilla, true);
+            juego.cavar(15, 8);
+
+            boolean avanzo = true;
+            while (avanzo && !juego.isGameOver())
+            {
+                Deducciones d = solucionador.resolver(juego);
+
+                // El solucionador no usa las banderas, así que vuelve a
+                // deducir las minas ya marcadas; solo cuentan las nuevas
+                avanzo = d.totalSeguras() > 0;
+
+                for (int n = 0; n < d.totalMinas(); n++)
+                {
+                    int x = d.mina(n) % 30, y = d.mina(n) / 30;
+
+                    assertTrue(juego.hayMina(x, y), "Mina deducida sin mina en " + x + ", " + y + " (semilla " + semilla + ")");
+                    assertFalse(juego.estaDestapada(x, y));
+                    if (!juego.tieneBandera(x, y))
+                    {
+                        juego.marcarBandera(x, y);
+                        avanzo = true;
+                    }
+                }
+
+                // Se guardan antes de cavar porque cavar no cambia las
+                // deducciones, pero sí puede terminar la partida
+                int[] seguras = new int[d.totalSeguras()];
+                for (int n = 0; n < seguras.length; n++)
+                    seguras[n] = d.segura(n);
+
+                for (int posicion : seguras)
+                {
+                    int x = posicion % 30, y = posicion / 30;
+
+                    assertFalse(juego.hayMina(x, y), "Casilla segura con mina en " + x + ", " + y + " (semilla " + semilla + ")");
+                    juego.cavar(x, y);
+                }
+
+                deducidas += seguras.length + d.totalMinas();
+            }
+
+            assertFalse(juego.isGameOver() && !juego.isGanador(), "Perdió siguiendo al solucionador (semilla " + semilla + ")");
+        }
+
+        assertTrue(deducidas > 0);
+    }
+}